@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Copies process output to the Maven log with a prefix like 'GCLOUD: ', on a separate thread so a
+ * slow console doesn't slow down the process.
+ */
+class AsyncLogOutputLineListener extends AsyncOutputLineListener {
+
+  @VisibleForTesting static final long SUMMARY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  static final String DEFAULT_PREFIX = "GCLOUD: ";
+
+  // per-file operations of uploads and staging, like
+  // "INFO: Uploading [/path/to/file.class] to [bucket/3f5a...]"
+  private static final Pattern PER_FILE_LINE =
+      Pattern.compile(
+          "^(?:[A-Z]+: )?"
+              + "(?:Uploading|Uploaded|Copying|Copied|Skipping|Adding|Processing) .*[/\\\\].*");
+  private static final Pattern PROBLEM_LINE =
+      Pattern.compile("^(?:ERROR|WARNING|SEVERE|FATAL)\\b.*|.*(?:Exception|Error:).*");
+
+  private final Log log;
+  private final ProcessOutputVerbosity verbosity;
+  private final String prefix;
+  private final LongSupplier nanoTime;
+
+  // only used by the writer thread, there is only ever one
+  private long collapsedLines;
+  private String lastCollapsedLine;
+  private long lastSummaryNanos;
+
+  AsyncLogOutputLineListener(Log log, ProcessOutputVerbosity verbosity, String prefix) {
+    this(log, verbosity, prefix, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  AsyncLogOutputLineListener(
+      Log log, ProcessOutputVerbosity verbosity, String prefix, LongSupplier nanoTime) {
+    super("process-output-log");
+    this.log = log;
+    this.verbosity = verbosity;
+    this.prefix = prefix;
+    this.nanoTime = nanoTime;
+    this.lastSummaryNanos = nanoTime.getAsLong();
+  }
+
+  @Override
+  void writeLine(String line) {
+    boolean shown;
+    if (verbosity != ProcessOutputVerbosity.ALL && PER_FILE_LINE.matcher(line).matches()) {
+      collapsedLines++;
+      lastCollapsedLine = line;
+      shown = false;
+    } else {
+      shown = verbosity != ProcessOutputVerbosity.QUIET || PROBLEM_LINE.matcher(line).matches();
+    }
+    if (shown) {
+      log.info(prefix + line);
+    } else if (log.isDebugEnabled()) {
+      log.debug(prefix + line);
+    }
+  }
+
+  @Override
+  void afterBatch() {
+    if (nanoTime.getAsLong() - lastSummaryNanos >= SUMMARY_INTERVAL_NANOS) {
+      writeSummary();
+    }
+  }
+
+  @Override
+  void afterClose() {
+    writeSummary();
+  }
+
+  private void writeSummary() {
+    lastSummaryNanos = nanoTime.getAsLong();
+    if (collapsedLines > 0) {
+      log.info(
+          prefix
+              + "("
+              + collapsedLines
+              + " file lines not shown, last: "
+              + lastCollapsedLine
+              + ")");
+      collapsedLines = 0;
+      lastCollapsedLine = null;
+    }
+  }
+}
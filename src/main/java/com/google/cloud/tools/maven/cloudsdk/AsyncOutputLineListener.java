@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessExitListener;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handles process output on a separate thread, so a slow destination doesn't slow down the process.
+ * Lines are buffered in a bounded queue and handed to {@link #writeLine} in batches. Only when the
+ * writer falls behind by the whole queue the process reader thread waits.
+ *
+ * <p>The writer thread is started with the first line and stops after a second without output.
+ * {@link #close()} writes the remaining lines, {@link #closeBefore} does it when the process exits.
+ */
+abstract class AsyncOutputLineListener implements ProcessOutputLineListener {
+
+  @VisibleForTesting static final int CAPACITY = 8192;
+
+  private static final int MAX_BATCH = 512;
+  private static final long IDLE_MILLIS = 1000;
+  // marks the end of the output in the queue
+  private static final Object CLOSED = new Object();
+
+  private final String threadName;
+  private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+  private final AtomicBoolean writing = new AtomicBoolean();
+  private final CountDownLatch closed = new CountDownLatch(1);
+
+  AsyncOutputLineListener(String threadName) {
+    this.threadName = threadName;
+  }
+
+  /** Writes a line, on the writer thread. */
+  abstract void writeLine(String line);
+
+  /** Called on the writer thread after every batch of lines. */
+  void afterBatch() {}
+
+  /** Called on the writer thread after the last line, when the listener is closed. */
+  void afterClose() {}
+
+  @Override
+  public void onOutputLine(String line) {
+    enqueue(line);
+  }
+
+  /** Writes all output received so far, and waits until it is written. */
+  void close() {
+    if (closed.getCount() == 0) {
+      return;
+    }
+    enqueue(CLOSED);
+    try {
+      closed.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Returns an exit listener that writes all output before calling {@code exitListener}. */
+  ProcessExitListener closeBefore(ProcessExitListener exitListener) {
+    return exitCode -> {
+      close();
+      exitListener.onExit(exitCode);
+    };
+  }
+
+  private void enqueue(Object line) {
+    try {
+      queue.put(line);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (writing.compareAndSet(false, true)) {
+      Thread writer = new Thread(this::write, threadName);
+      writer.setDaemon(true);
+      writer.start();
+    }
+  }
+
+  private void write() {
+    List<Object> batch = new ArrayList<>(MAX_BATCH);
+    try {
+      while (true) {
+        Object first = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          writing.set(false);
+          // a line may have been added after the poll, without starting another writer
+          if (queue.isEmpty() || !writing.compareAndSet(false, true)) {
+            return;
+          }
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, MAX_BATCH - 1);
+        for (Object line : batch) {
+          if (line == CLOSED) {
+            afterClose();
+            closed.countDown();
+          } else {
+            writeLine((String) line);
+          }
+        }
+        batch.clear();
+        afterBatch();
+      }
+    } catch (InterruptedException ex) {
+      writing.set(false);
+    }
+  }
+}
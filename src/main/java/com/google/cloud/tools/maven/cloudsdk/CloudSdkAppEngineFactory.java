@@ -36,24 +36,40 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandl
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.common.annotations.VisibleForTesting;
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import org.apache.maven.plugin.logging.Log;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.apache.maven.execution.MavenSession;
 
 /** Factory for App Engine dependencies. */
 public class CloudSdkAppEngineFactory {
 
   private final CloudSdkMojo mojo;
+  private final CloudSdkChecker cloudSdkChecker;
+  private final CloudSdkDownloader cloudSdkDownloader;
+  // used when the session has no session data, to still resolve once per mojo execution
+  private final SessionCache fallbackCache = new SessionCache();
+  private volatile Future<?> cloudSdkProvisioning;
 
+  /** Creates a factory for the configuration of {@code mojo}. */
   public CloudSdkAppEngineFactory(CloudSdkMojo mojo) {
+    this(
+        mojo,
+        new CloudSdkChecker(),
+        new CloudSdkDownloader(CloudSdkDownloader.newManagedSdkFactory()));
+  }
+
+  @VisibleForTesting
+  CloudSdkAppEngineFactory(
+      CloudSdkMojo mojo, CloudSdkChecker cloudSdkChecker, CloudSdkDownloader cloudSdkDownloader) {
     this.mojo = mojo;
+    this.cloudSdkChecker = cloudSdkChecker;
+    this.cloudSdkDownloader = cloudSdkDownloader;
   }
 
   /** Constructs an object used for auth */
@@ -76,6 +92,28 @@ public class CloudSdkAppEngineFactory {
     return getGcloud().newDeployment(newDefaultProcessHandler());
   }
 
+  /**
+   * Constructs an object used for deployment, that also passes every line of gcloud output to
+   * {@code outputListener}.
+   */
+  public Deployment deployment(ProcessOutputLineListener outputListener) {
+    return deployment(outputListener, outputPrefix(mojo));
+  }
+
+  /**
+   * Constructs an object used for deployment, that passes every line of gcloud output to {@code
+   * outputListener} and logs it with {@code outputPrefix}. Every deployment has its own process
+   * handler, so several can run at the same time.
+   */
+  public Deployment deployment(ProcessOutputLineListener outputListener, String outputPrefix) {
+    return getGcloud()
+        .newDeployment(
+            newDefaultProcessHandlerBuilder(outputPrefix)
+                .addStdOutLineListener(outputListener)
+                .addStdErrLineListener(outputListener)
+                .build());
+  }
+
   /** Constructs a dev server for the run goal */
   public DevServer devServerRunSync() {
     return getDevServers().newDevAppServer(newDefaultProcessHandler());
@@ -83,7 +121,13 @@ public class CloudSdkAppEngineFactory {
 
   /** Constructs a dev server in async mode */
   public DevServer devServerRunAsync(int startSuccessTimeout) {
-    return getDevServers().newDevAppServer(newDevAppServerAsyncHandler(startSuccessTimeout));
+    return devServerRunAsync(startSuccessTimeout, DevServerLogRotation.DEFAULT);
+  }
+
+  /** Constructs a dev server in async mode, with its output file rotated by {@code logRotation} */
+  public DevServer devServerRunAsync(int startSuccessTimeout, DevServerLogRotation logRotation) {
+    return getDevServers()
+        .newDevAppServer(newDevAppServerAsyncHandler(startSuccessTimeout, logRotation));
   }
 
   /** Constructs a dev server for the stop goal */
@@ -96,21 +140,92 @@ public class CloudSdkAppEngineFactory {
     return getGcloud().newGenRepoInfo(newDefaultProcessHandler());
   }
 
+  /**
+   * Starts resolving, and if necessary downloading, the Cloud SDK on a background thread. Anything
+   * that needs the Cloud SDK later waits for the same result, so provisioning overlaps with work
+   * that does not need it, like staging, and a failure is reported by the next use of the Cloud SDK
+   * instead of being attempted again. Callers must {@link #awaitCloudSdkProvisioning} on every exit
+   * path, so that a failure elsewhere never ends the build with a half-installed Cloud SDK.
+   */
+  public void provisionCloudSdkInBackground(boolean requiresAppEngineComponents) {
+    cloudSdkProvisioning =
+        getSessionCache()
+            .computeInBackground(
+                cloudSdkCacheKey(requiresAppEngineComponents),
+                () -> loadCloudSdk(requiresAppEngineComponents),
+                "cloud-sdk-provisioning");
+  }
+
+  /**
+   * Waits for the Cloud SDK provisioning started by {@link #provisionCloudSdkInBackground}, if any,
+   * to finish. A provisioning failure is not thrown here, it is reported by the next use of the
+   * Cloud SDK.
+   */
+  @SuppressWarnings("PMD.EmptyCatchBlock")
+  public void awaitCloudSdkProvisioning() {
+    Future<?> provisioning = cloudSdkProvisioning;
+    if (provisioning == null) {
+      return;
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          provisioning.get();
+          return;
+        } catch (InterruptedException ex) {
+          // keep waiting, stopping halfway would leave a broken installation behind
+          interrupted = true;
+        } catch (ExecutionException ex) {
+          // reported by the next use of the Cloud SDK
+          return;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   private CloudSdk buildCloudSdkMinimal() {
-    return buildCloudSdk(
-        mojo,
-        new CloudSdkChecker(),
-        new CloudSdkDownloader(CloudSdkDownloader.newManagedSdkFactory()),
-        false);
+    return getCachedCloudSdk(false);
   }
 
   @VisibleForTesting
   CloudSdk buildCloudSdkWithAppEngineComponents() {
-    return buildCloudSdk(
-        mojo,
-        new CloudSdkChecker(),
-        new CloudSdkDownloader(CloudSdkDownloader.newManagedSdkFactory()),
-        true);
+    return getCachedCloudSdk(true);
+  }
+
+  /**
+   * Resolves and validates the Cloud SDK once per build. Every goal of every module with the same
+   * Cloud SDK configuration shares the result.
+   */
+  private CloudSdk getCachedCloudSdk(boolean requiresAppEngineComponents) {
+    return getSessionCache()
+        .get(
+            cloudSdkCacheKey(requiresAppEngineComponents),
+            () -> loadCloudSdk(requiresAppEngineComponents));
+  }
+
+  private String cloudSdkCacheKey(boolean requiresAppEngineComponents) {
+    return "cloudSdk:"
+        + mojo.getCloudSdkHome()
+        + ":"
+        + mojo.getCloudSdkVersion()
+        + ":"
+        + (requiresAppEngineComponents ? SdkComponent.APP_ENGINE_JAVA : "")
+        + ":"
+        + (mojo.getMavenSession() != null && mojo.getMavenSession().isOffline());
+  }
+
+  private CloudSdk loadCloudSdk(boolean requiresAppEngineComponents) {
+    return buildCloudSdk(mojo, cloudSdkChecker, cloudSdkDownloader, requiresAppEngineComponents);
+  }
+
+  private SessionCache getSessionCache() {
+    SessionCache cache = SessionCache.forSession(mojo.getMavenSession());
+    return cache == null ? fallbackCache : cache;
   }
 
   static CloudSdk buildCloudSdk(
@@ -119,16 +234,33 @@ public class CloudSdkAppEngineFactory {
       CloudSdkDownloader cloudSdkDownloader,
       boolean requiresAppEngineComponents) {
 
+    CloudSdkValidationCache validationCache =
+        mojo.getCloudSdkCacheDirectory() == null
+            ? null
+            : new CloudSdkValidationCache(mojo.getCloudSdkCacheDirectory());
     try {
       if (mojo.getCloudSdkHome() != null) {
         // if user defined
-        CloudSdk cloudSdk = new CloudSdk.Builder().sdkPath(mojo.getCloudSdkHome()).build();
+        Path sdkHome = mojo.getCloudSdkHome();
+        CloudSdk cloudSdk = new CloudSdk.Builder().sdkPath(sdkHome).build();
 
         if (mojo.getCloudSdkVersion() != null) {
-          cloudSdkChecker.checkCloudSdk(cloudSdk, mojo.getCloudSdkVersion());
+          String check = "version " + mojo.getCloudSdkVersion();
+          if (validationCache == null || !validationCache.isValidated(sdkHome, check)) {
+            cloudSdkChecker.checkCloudSdk(cloudSdk, mojo.getCloudSdkVersion());
+            if (validationCache != null) {
+              validationCache.recordValidated(sdkHome, check);
+            }
+          }
         }
         if (requiresAppEngineComponents) {
-          cloudSdkChecker.checkForAppEngine(cloudSdk);
+          String check = "components [" + SdkComponent.APP_ENGINE_JAVA + "]";
+          if (validationCache == null || !validationCache.isValidated(sdkHome, check)) {
+            cloudSdkChecker.checkForAppEngine(cloudSdk);
+            if (validationCache != null) {
+              validationCache.recordValidated(sdkHome, check);
+            }
+          }
         }
         return cloudSdk;
       } else {
@@ -143,7 +275,12 @@ public class CloudSdkAppEngineFactory {
                     mojo.getCloudSdkVersion(),
                     mojo.getLog(),
                     requiredComponents,
-                    mojo.getMavenSession().isOffline()))
+                    mojo.getMavenSession().isOffline(),
+                    validationCache,
+                    UpdateCheckThrottle.parseInterval(mojo.getCloudSdkUpdateCheckInterval()),
+                    mojo.getCloudSdkArchiveCache() == null
+                        ? null
+                        : new CloudSdkArchiveCache(mojo.getCloudSdkArchiveCache())))
             .build();
       }
     } catch (CloudSdkNotFoundException
@@ -171,15 +308,39 @@ public class CloudSdkAppEngineFactory {
   }
 
   private ProcessHandler newDefaultProcessHandler() {
-    ProcessOutputLineListener lineListener = new DefaultProcessOutputLineListener(mojo.getLog());
+    return newDefaultProcessHandlerBuilder(outputPrefix(mojo)).build();
+  }
+
+  private LegacyProcessHandler.Builder newDefaultProcessHandlerBuilder(String outputPrefix) {
+    AsyncLogOutputLineListener lineListener = newLogLineListener(outputPrefix);
     return LegacyProcessHandler.builder()
         .addStdOutLineListener(lineListener)
         .addStdErrLineListener(lineListener)
-        .setExitListener(new NonZeroExceptionExitListener())
-        .build();
+        .setExitListener(lineListener.closeBefore(new NonZeroExceptionExitListener()));
+  }
+
+  private AsyncLogOutputLineListener newLogLineListener(String outputPrefix) {
+    return new AsyncLogOutputLineListener(
+        mojo.getLog(),
+        ProcessOutputVerbosity.fromConfigValue(mojo.getProcessOutputVerbosity()),
+        outputPrefix);
+  }
+
+  /**
+   * The prefix of process output lines. In parallel builds the output of several modules is
+   * interleaved, so it names the module.
+   */
+  @VisibleForTesting
+  static String outputPrefix(CloudSdkMojo mojo) {
+    MavenSession session = mojo.getMavenSession();
+    if (session != null && session.isParallel() && mojo.getMavenProject() != null) {
+      return "GCLOUD [" + mojo.getMavenProject().getArtifactId() + "]: ";
+    }
+    return AsyncLogOutputLineListener.DEFAULT_PREFIX;
   }
 
-  private ProcessHandler newDevAppServerAsyncHandler(int timeout) {
+  private ProcessHandler newDevAppServerAsyncHandler(
+      int timeout, DevServerLogRotation logRotation) {
     Path logDir =
         Paths.get(mojo.getMavenProject().getBuild().getDirectory()).resolve("dev-appserver-out");
     if (!Files.exists(logDir)) {
@@ -189,65 +350,39 @@ public class CloudSdkAppEngineFactory {
         throw new RuntimeException("Failed to create dev-appserver logging directory.");
       }
     }
-    File logFile = logDir.resolve("dev_appserver.out").toFile();
-    FileOutputLineListener fileListener = new FileOutputLineListener(logFile);
+    Path logFile = logDir.resolve("dev_appserver.out");
+    RotatingFileOutputLineListener fileListener =
+        new RotatingFileOutputLineListener(logFile, logRotation, mojo.getLog());
     mojo.getLog().info("Dev App Server output written to : " + logFile);
 
-    ProcessOutputLineListener lineListener = new DefaultProcessOutputLineListener(mojo.getLog());
+    AsyncLogOutputLineListener lineListener = newLogLineListener(outputPrefix(mojo));
 
     return LegacyProcessHandler.builder()
         .addStdOutLineListener(lineListener)
         .addStdOutLineListener(fileListener)
         .addStdErrLineListener(lineListener)
         .addStdErrLineListener(fileListener)
-        .setExitListener(new NonZeroExceptionExitListener())
+        .setExitListener(
+            lineListener.closeBefore(fileListener.closeBefore(new NonZeroExceptionExitListener())))
         .buildDevAppServerAsync(timeout);
   }
 
-  public ConfigReader newConfigReader() {
-    return new ConfigReader(getGcloud());
-  }
-
   /**
-   * Default output listener that copies output to the Maven Mojo logger with a 'GCLOUD: ' prefix.
+   * Returns a reader of the gcloud configuration, which reads the project once per build and Cloud
+   * SDK installation.
    */
-  static class DefaultProcessOutputLineListener implements ProcessOutputLineListener {
-
-    private final Log log;
-
-    DefaultProcessOutputLineListener(Log log) {
-      this.log = log;
-    }
-
-    @Override
-    public void onOutputLine(String line) {
-      log.info("GCLOUD: " + line);
-    }
-  }
-
-  /** A listener that redirects process output to a file. */
-  static class FileOutputLineListener implements ProcessOutputLineListener {
-
-    private final PrintStream logFilePrinter;
-
-    FileOutputLineListener(final File logFile) {
-      try {
-        logFilePrinter = new PrintStream(logFile, StandardCharsets.UTF_8.name());
-        Runtime.getRuntime()
-            .addShutdownHook(
-                new Thread() {
-                  public void run() {
-                    logFilePrinter.close();
-                  }
-                });
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
-      }
-    }
-
-    @Override
-    public void onOutputLine(String line) {
-      logFilePrinter.println(line);
-    }
+  public ConfigReader newConfigReader() {
+    GcloudConfigDirectory configDirectory = GcloudConfigDirectory.fromEnvironment();
+    return new ConfigReader(
+        this::getGcloud,
+        getSessionCache(),
+        "gcloudProject:" + mojo.getCloudSdkHome() + ":" + mojo.getCloudSdkVersion(),
+        mojo.isCacheGcloudConfig() && mojo.getCloudSdkCacheDirectory() != null
+            ? new GcloudProjectCache(
+                mojo.getCloudSdkCacheDirectory(),
+                () -> buildCloudSdkMinimal().getPath(),
+                configDirectory.getProjectOverride())
+            : null,
+        configDirectory);
   }
 }
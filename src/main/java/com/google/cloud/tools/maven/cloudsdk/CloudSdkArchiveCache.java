@@ -0,0 +1,327 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+/**
+ * A store of provisioned managed Cloud SDK installations, as tar.gz snapshots of the SDK home with
+ * the requested components installed. Restoring a snapshot replaces the download of the SDK and the
+ * component installs, so a cold agent is provisioned from a local or shared directory in seconds
+ * and without network access.
+ *
+ * <p>Snapshots are keyed by Cloud SDK version, operating system, architecture and components. The
+ * first build that installs a combination from the network stores it, and builds that update the
+ * latest Cloud SDK replace its snapshot. The directory can also be seeded by copying snapshots from
+ * another machine.
+ */
+class CloudSdkArchiveCache {
+
+  // permission bits in tar mode order, from 0400 down to 0001
+  private static final PosixFilePermission[] PERMISSIONS = {
+    PosixFilePermission.OWNER_READ,
+    PosixFilePermission.OWNER_WRITE,
+    PosixFilePermission.OWNER_EXECUTE,
+    PosixFilePermission.GROUP_READ,
+    PosixFilePermission.GROUP_WRITE,
+    PosixFilePermission.GROUP_EXECUTE,
+    PosixFilePermission.OTHERS_READ,
+    PosixFilePermission.OTHERS_WRITE,
+    PosixFilePermission.OTHERS_EXECUTE
+  };
+
+  // the permission bits of a tar mode, 0777
+  private static final int PERMISSION_BITS = (1 << PERMISSIONS.length) - 1;
+
+  private final Path directory;
+
+  CloudSdkArchiveCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the snapshot file of a Cloud SDK version ({@code null} for the latest) with components.
+   */
+  Path archiveFor(String version, List<SdkComponent> components) {
+    StringBuilder name =
+        new StringBuilder("google-cloud-sdk-")
+            .append(version == null ? "LATEST" : version)
+            .append('-')
+            .append(System.getProperty("os.name").split(" ")[0].toLowerCase(Locale.US))
+            .append('-')
+            .append(System.getProperty("os.arch").toLowerCase(Locale.US));
+    if (components != null && !components.isEmpty()) {
+      name.append('-')
+          .append(
+              components.stream().map(Object::toString).sorted().collect(Collectors.joining("+")));
+    }
+    return directory.resolve(name.append(".tar.gz").toString());
+  }
+
+  /**
+   * Replaces the installation at {@code sdkHome} with a snapshot.
+   *
+   * @return {@code false} if there is no snapshot for this combination
+   */
+  boolean restore(String version, List<SdkComponent> components, Path sdkHome) throws IOException {
+    Path archive = archiveFor(version, components);
+    if (!Files.isRegularFile(archive)) {
+      return false;
+    }
+    Path restoring = sdkHome.resolveSibling(sdkHome.getFileName() + ".restoring");
+    deleteIfExists(restoring);
+    try {
+      extract(archive, restoring);
+      deleteIfExists(sdkHome);
+      Files.move(restoring, sdkHome);
+    } finally {
+      deleteIfExists(restoring);
+    }
+    return true;
+  }
+
+  /** Stores a snapshot of the installation at {@code sdkHome}, unless there already is one. */
+  void storeIfAbsent(String version, List<SdkComponent> components, Path sdkHome)
+      throws IOException {
+    if (!Files.exists(archiveFor(version, components))) {
+      store(version, components, sdkHome);
+    }
+  }
+
+  /**
+   * Stores a snapshot of the installation at {@code sdkHome}, replacing an older one. Used when the
+   * latest Cloud SDK is updated, so restoring it does not install an outdated version.
+   */
+  void store(String version, List<SdkComponent> components, Path sdkHome) throws IOException {
+    Path archive = archiveFor(version, components);
+    Files.createDirectories(directory);
+    // written next to the snapshot and moved into place, other builds never see partial files
+    Path partial =
+        Files.createTempFile(directory, MoreFiles.getNameWithoutExtension(archive), ".part");
+    try {
+      archive(sdkHome, partial);
+      try {
+        Files.move(
+            partial, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(partial);
+    }
+  }
+
+  @VisibleForTesting
+  static void archive(Path root, Path archive) throws IOException {
+    try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(archive));
+        TarArchiveOutputStream tar =
+            new TarArchiveOutputStream(new GzipCompressorOutputStream(file))) {
+      tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+      tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+      Files.walkFileTree(
+          root,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              if (!dir.equals(root)) {
+                TarArchiveEntry entry = new TarArchiveEntry(entryName(root, dir) + "/");
+                setMode(entry, dir);
+                tar.putArchiveEntry(entry);
+                tar.closeArchiveEntry();
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              if (attrs.isSymbolicLink()) {
+                TarArchiveEntry entry =
+                    new TarArchiveEntry(entryName(root, file), TarConstants.LF_SYMLINK);
+                entry.setLinkName(Files.readSymbolicLink(file).toString());
+                tar.putArchiveEntry(entry);
+                tar.closeArchiveEntry();
+              } else if (attrs.isRegularFile()) {
+                TarArchiveEntry entry = new TarArchiveEntry(file.toFile(), entryName(root, file));
+                setMode(entry, file);
+                tar.putArchiveEntry(entry);
+                Files.copy(file, tar);
+                tar.closeArchiveEntry();
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+  }
+
+  @VisibleForTesting
+  static void extract(Path archive, Path root) throws IOException {
+    Path normalizedRoot = root.toAbsolutePath().normalize();
+    Files.createDirectories(normalizedRoot);
+    Path realRoot = normalizedRoot.toRealPath();
+    // applied once the directories are complete, a read-only directory can't take its children
+    Map<Path, Set<PosixFilePermission>> directoryPermissions = new LinkedHashMap<>();
+    try (InputStream file = new BufferedInputStream(Files.newInputStream(archive));
+        TarArchiveInputStream tar =
+            new TarArchiveInputStream(new GzipCompressorInputStream(file))) {
+      for (TarArchiveEntry entry = tar.getNextTarEntry();
+          entry != null;
+          entry = tar.getNextTarEntry()) {
+        Path target = normalizedRoot.resolve(entry.getName()).normalize();
+        if (!target.startsWith(normalizedRoot)) {
+          throw new IOException("Entry " + entry.getName() + " is outside of " + archive);
+        }
+        if (entry.isDirectory()) {
+          checkInside(realRoot, target, entry, archive);
+          Files.createDirectories(target);
+          directoryPermissions.put(target, toPermissions(entry.getMode()));
+          continue;
+        }
+        Path parent = target.getParent();
+        if (parent == null) {
+          throw new IOException("Entry " + entry.getName() + " is outside of " + archive);
+        }
+        checkInside(realRoot, parent, entry, archive);
+        Files.createDirectories(parent);
+        // links extracted before must not lead the entry out of the root
+        checkInside(realRoot, parent, entry, archive);
+        if (entry.isSymbolicLink()) {
+          Path linkTarget = Paths.get(entry.getLinkName());
+          if (linkTarget.isAbsolute()
+              || !parent.resolve(linkTarget).normalize().startsWith(normalizedRoot)) {
+            throw new IOException(
+                "Link "
+                    + entry.getName()
+                    + " -> "
+                    + entry.getLinkName()
+                    + " points outside of "
+                    + archive);
+          }
+          Files.createSymbolicLink(target, linkTarget);
+        } else {
+          Files.copy(tar, target);
+          Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getModTime().getTime()));
+          setPermissions(target, toPermissions(entry.getMode()));
+        }
+      }
+    }
+    // children before their parents
+    List<Path> directories = new ArrayList<>(directoryPermissions.keySet());
+    Collections.reverse(directories);
+    for (Path directory : directories) {
+      setPermissions(directory, directoryPermissions.get(directory));
+    }
+  }
+
+  /** Fails if the nearest existing ancestor of {@code path} really is outside {@code realRoot}. */
+  private static void checkInside(Path realRoot, Path path, TarArchiveEntry entry, Path archive)
+      throws IOException {
+    Path existing = path;
+    while (existing != null && !Files.exists(existing)) {
+      existing = existing.getParent();
+    }
+    if (existing == null || !existing.toRealPath().startsWith(realRoot)) {
+      throw new IOException("Entry " + entry.getName() + " is outside of " + archive);
+    }
+  }
+
+  private static void setPermissions(Path path, Set<PosixFilePermission> permissions)
+      throws IOException {
+    PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+    if (posix != null) {
+      posix.setPermissions(permissions);
+    }
+  }
+
+  private static String entryName(Path root, Path file) {
+    return root.relativize(file).toString().replace('\\', '/');
+  }
+
+  private static void setMode(TarArchiveEntry entry, Path file) throws IOException {
+    PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+    if (posix != null) {
+      int type = entry.getMode() & ~PERMISSION_BITS;
+      entry.setMode(type | toMode(posix.readAttributes().permissions()));
+    }
+  }
+
+  private static int toMode(Set<PosixFilePermission> permissions) {
+    int mode = 0;
+    for (int i = 0; i < PERMISSIONS.length; i++) {
+      if (permissions.contains(PERMISSIONS[i])) {
+        mode |= permissionBit(i);
+      }
+    }
+    return mode;
+  }
+
+  private static Set<PosixFilePermission> toPermissions(int mode) {
+    Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+    for (int i = 0; i < PERMISSIONS.length; i++) {
+      if ((mode & permissionBit(i)) != 0) {
+        permissions.add(PERMISSIONS[i]);
+      }
+    }
+    return permissions;
+  }
+
+  /** The mode bit of {@code PERMISSIONS[index]}. */
+  private static int permissionBit(int index) {
+    return 1 << (PERMISSIONS.length - 1 - index);
+  }
+
+  private static void deleteIfExists(Path path) throws IOException {
+    if (Files.exists(path)) {
+      MoreFiles.deleteRecursively(path, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+}
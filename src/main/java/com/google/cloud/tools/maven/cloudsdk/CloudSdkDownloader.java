@@ -26,21 +26,40 @@ import com.google.cloud.tools.managedcloudsdk.UnsupportedOsException;
 import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.cloud.tools.managedcloudsdk.install.SdkInstallerException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.function.Function;
 import org.apache.maven.plugin.logging.Log;
 
 public class CloudSdkDownloader {
 
+  private static final boolean IS_WINDOWS =
+      System.getProperty("os.name").toLowerCase(Locale.US).contains("windows");
+
   private final Function<String, ManagedCloudSdk> managedCloudSdkFactory;
+  private final CommandRunner commandRunner;
 
   public CloudSdkDownloader(Function<String, ManagedCloudSdk> managedCloudSdkFactory) {
+    this(managedCloudSdkFactory, CommandRunner.newRunner());
+  }
+
+  @VisibleForTesting
+  CloudSdkDownloader(
+      Function<String, ManagedCloudSdk> managedCloudSdkFactory, CommandRunner commandRunner) {
     this.managedCloudSdkFactory = managedCloudSdkFactory;
+    this.commandRunner = commandRunner;
   }
 
   /**
@@ -50,34 +69,103 @@ public class CloudSdkDownloader {
    */
   public Path downloadIfNecessary(
       String version, Log log, List<SdkComponent> components, boolean offline) {
+    return downloadIfNecessary(version, log, components, offline, null, null, null);
+  }
+
+  /**
+   * Downloads/installs/updates the Cloud SDK, skipping the installation and component checks if
+   * {@code validationCache} shows they already passed on the current installation, and the update
+   * check if the last one is more recent than {@code updateCheckInterval}. A missing installation
+   * is restored from {@code archiveCache} if it has a snapshot, also in offline mode.
+   *
+   * @param validationCache cache of passed checks, or {@code null} to always check
+   * @param updateCheckInterval minimum time between update checks, or {@code null} to always check
+   * @param archiveCache snapshots of installations, or {@code null} to always download
+   * @return The cloud SDK installation directory
+   */
+  public Path downloadIfNecessary(
+      String version,
+      Log log,
+      List<SdkComponent> components,
+      boolean offline,
+      CloudSdkValidationCache validationCache,
+      Duration updateCheckInterval,
+      CloudSdkArchiveCache archiveCache) {
     ManagedCloudSdk managedCloudSdk = managedCloudSdkFactory.apply(version);
     if (offline) { // in offline mode, don't download anything
+      if (archiveCache != null) {
+        restoreIfMissing(managedCloudSdk, version, log, components, archiveCache);
+      }
       return managedCloudSdk.getSdkHome();
     }
+    String check = "installed " + (components == null ? "[]" : components.toString());
+    CloudSdkDownloaderConsoleListener consoleListener = new CloudSdkDownloaderConsoleListener(log);
     try {
-      ProgressListener progressListener = new NoOpProgressListener();
-      ConsoleListener consoleListener = new CloudSdkDownloaderConsoleListener(log);
+      Path sdkHome = managedCloudSdk.getSdkHome();
+      LoggingProgressListener.Summary summary = new LoggingProgressListener.Summary();
+      ProgressListener progressListener = new LoggingProgressListener(log, summary);
 
-      if (!managedCloudSdk.isInstalled()) {
-        managedCloudSdk.newInstaller().install(progressListener, consoleListener);
-      }
+      boolean validated = validationCache != null && validationCache.isValidated(sdkHome, check);
+      if (!validated && !isInstalled(managedCloudSdk, components)) {
+        try (CloudSdkInstallLock lock = CloudSdkInstallLock.acquire(sdkHome, log)) {
+          boolean downloaded = false;
+          // check again, another build may have installed it while we were waiting
+          if (!managedCloudSdk.isInstalled()
+              && !restore(archiveCache, version, log, components, sdkHome)) {
+            managedCloudSdk.newInstaller().install(progressListener, consoleListener);
+            downloaded = true;
+          }
 
-      // install requested components
-      if (components != null) {
-        for (SdkComponent component : components) {
-          if (!managedCloudSdk.hasComponent(component)) {
-            managedCloudSdk
-                .newComponentInstaller()
-                .installComponent(component, progressListener, consoleListener);
+          // install requested components
+          List<SdkComponent> missingComponents = new ArrayList<>();
+          if (components != null) {
+            for (SdkComponent component : components) {
+              if (!managedCloudSdk.hasComponent(component)) {
+                missingComponents.add(component);
+              }
+            }
+          }
+          if (!missingComponents.isEmpty()) {
+            installComponents(
+                managedCloudSdk, missingComponents, progressListener, consoleListener);
+            downloaded = true;
+          }
+
+          if (downloaded && archiveCache != null) {
+            store(archiveCache, version, log, components, sdkHome, false);
           }
         }
       }
 
-      if (!managedCloudSdk.isUpToDate()) {
-        managedCloudSdk.newUpdater().update(progressListener, consoleListener);
+      UpdateCheckThrottle updateCheckThrottle =
+          updateCheckInterval == null
+              ? null
+              : new UpdateCheckThrottle(sdkHome, updateCheckInterval);
+      if (updateCheckThrottle == null || updateCheckThrottle.isCheckDue()) {
+        if (!managedCloudSdk.isUpToDate()) {
+          try (CloudSdkInstallLock lock = CloudSdkInstallLock.acquire(sdkHome, log)) {
+            if (!managedCloudSdk.isUpToDate()) {
+              managedCloudSdk.newUpdater().update(progressListener, consoleListener);
+              // a stale snapshot of the latest version would be restored and updated every time
+              if (archiveCache != null) {
+                store(archiveCache, version, log, components, sdkHome, true);
+              }
+            }
+          }
+        }
+        if (updateCheckThrottle != null) {
+          updateCheckThrottle.recordCheck();
+        }
       }
 
-      return managedCloudSdk.getSdkHome();
+      // recorded after updating, an update changes the VERSION file
+      if (validationCache != null && !validated) {
+        validationCache.recordValidated(sdkHome, check);
+      }
+      if (!summary.isEmpty()) {
+        writeSummary(summary, sdkHome, log);
+      }
+      return sdkHome;
     } catch (IOException
         | SdkInstallerException
         | ManagedSdkVersionMismatchException
@@ -86,7 +174,145 @@ public class CloudSdkDownloader {
         | CommandExitException
         | ManagedSdkVerificationException ex) {
       throw new RuntimeException(ex);
+    } finally {
+      // the last line of a failed install often has no line feed
+      consoleListener.flush();
+    }
+  }
+
+  /**
+   * Installs components with a single {@code gcloud components install} call, gcloud resolves and
+   * downloads them together. Components can't be installed concurrently, gcloud keeps a single
+   * installation state per Cloud SDK.
+   */
+  private void installComponents(
+      ManagedCloudSdk managedCloudSdk,
+      List<SdkComponent> components,
+      ProgressListener progressListener,
+      ConsoleListener consoleListener)
+      throws InterruptedException, CommandExitException, CommandExecutionException {
+    // on windows the component installer has to run gcloud with a copy of the bundled python
+    if (components.size() == 1 || IS_WINDOWS) {
+      for (SdkComponent component : components) {
+        managedCloudSdk
+            .newComponentInstaller()
+            .installComponent(component, progressListener, consoleListener);
+      }
+      return;
+    }
+    Path gcloud = managedCloudSdk.getGcloudPath();
+    List<String> command = new ArrayList<>();
+    command.add(gcloud.toString());
+    command.add("components");
+    command.add("install");
+    for (SdkComponent component : components) {
+      command.add(component.toString());
+    }
+    command.add("--quiet");
+
+    progressListener.start("Installing " + Joiner.on(", ").join(components), -1);
+    commandRunner.run(command, managedCloudSdk.getSdkHome(), null, consoleListener);
+    progressListener.done();
+  }
+
+  /**
+   * Logs the timings of this provisioning and writes them to {@code <sdk-home>.provisioning.json}
+   * next to the installation, for build analytics.
+   */
+  private static void writeSummary(LoggingProgressListener.Summary summary, Path sdkHome, Log log) {
+    String json = summary.toJson();
+    log.debug("Cloud SDK provisioning summary: " + json);
+    Path summaryFile = summaryFileFor(sdkHome);
+    try {
+      Files.write(summaryFile, json.getBytes(StandardCharsets.UTF_8));
+      log.info("Cloud SDK provisioning timings written to " + summaryFile);
+    } catch (IOException ex) {
+      log.debug("Failed to write " + summaryFile, ex);
+    }
+  }
+
+  @VisibleForTesting
+  static Path summaryFileFor(Path sdkHome) {
+    return sdkHome.resolveSibling(sdkHome.getFileName() + ".provisioning.json");
+  }
+
+  private static void restoreIfMissing(
+      ManagedCloudSdk managedCloudSdk,
+      String version,
+      Log log,
+      List<SdkComponent> components,
+      CloudSdkArchiveCache archiveCache) {
+    try {
+      if (!isInstalled(managedCloudSdk, components)) {
+        try (CloudSdkInstallLock lock =
+            CloudSdkInstallLock.acquire(managedCloudSdk.getSdkHome(), log)) {
+          if (!isInstalled(managedCloudSdk, components)) {
+            restore(archiveCache, version, log, components, managedCloudSdk.getSdkHome());
+          }
+        }
+      }
+    } catch (IOException
+        | InterruptedException
+        | ManagedSdkVersionMismatchException
+        | ManagedSdkVerificationException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /** Restores a snapshot, returns {@code false} if the SDK has to be downloaded instead. */
+  private static boolean restore(
+      CloudSdkArchiveCache archiveCache,
+      String version,
+      Log log,
+      List<SdkComponent> components,
+      Path sdkHome) {
+    if (archiveCache == null) {
+      return false;
+    }
+    try {
+      if (archiveCache.restore(version, components, sdkHome)) {
+        log.info("Restored Cloud SDK from " + archiveCache.archiveFor(version, components));
+        return true;
+      }
+    } catch (IOException ex) {
+      log.warn("Failed to restore Cloud SDK from the archive cache, downloading it instead", ex);
+    }
+    return false;
+  }
+
+  /** Stores a snapshot, replacing an existing one if {@code replace} is set. */
+  private static void store(
+      CloudSdkArchiveCache archiveCache,
+      String version,
+      Log log,
+      List<SdkComponent> components,
+      Path sdkHome,
+      boolean replace) {
+    try {
+      if (replace) {
+        archiveCache.store(version, components, sdkHome);
+      } else {
+        archiveCache.storeIfAbsent(version, components, sdkHome);
+      }
+    } catch (IOException ex) {
+      log.warn("Failed to store Cloud SDK in the archive cache", ex);
+    }
+  }
+
+  /** Whether the Cloud SDK and all {@code components} are installed, without locking. */
+  private static boolean isInstalled(ManagedCloudSdk managedCloudSdk, List<SdkComponent> components)
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    if (!managedCloudSdk.isInstalled()) {
+      return false;
+    }
+    if (components != null) {
+      for (SdkComponent component : components) {
+        if (!managedCloudSdk.hasComponent(component)) {
+          return false;
+        }
+      }
     }
+    return true;
   }
 
   // for delayed instantiation because it can error unnecessarily
@@ -19,17 +19,47 @@ package com.google.cloud.tools.maven.cloudsdk;
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import org.apache.maven.plugin.logging.Log;
 
+/**
+ * Logs the output of Cloud SDK installs and updates, line by line, to the Maven log. A carriage
+ * return without a line feed redraws the line, like a progress bar, so only the last version of the
+ * line is logged. Call {@link #flush} when the output ends to log a last line without a line feed.
+ */
 public class CloudSdkDownloaderConsoleListener implements ConsoleListener {
-  private Log log;
+  private final Log log;
+  private final StringBuilder line = new StringBuilder();
+  private boolean carriageReturn;
 
   public CloudSdkDownloaderConsoleListener(Log log) {
     this.log = log;
   }
 
   @Override
-  public void console(String rawString) {
-    if (log.isInfoEnabled()) {
-      System.out.print(rawString);
+  public synchronized void console(String rawString) {
+    for (int i = 0; i < rawString.length(); i++) {
+      char c = rawString.charAt(i);
+      if (c == '\n') {
+        log.info(line.toString());
+        line.setLength(0);
+        carriageReturn = false;
+      } else if (c == '\r') {
+        // the line feed of a \r\n may come with the next output
+        carriageReturn = true;
+      } else {
+        if (carriageReturn) {
+          line.setLength(0);
+          carriageReturn = false;
+        }
+        line.append(c);
+      }
+    }
+  }
+
+  /** Logs the last line of output, if it didn't end with a line feed. */
+  public synchronized void flush() {
+    if (line.length() > 0) {
+      log.info(line.toString());
+      line.setLength(0);
     }
+    carriageReturn = false;
   }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Serializes changes to a managed Cloud SDK installation between builds running at the same time,
+ * in this and in other processes. The lock is a {@link FileLock} on a {@code <sdk-home>.lock} file
+ * next to the installation. File locks are held on behalf of the whole JVM, so builds in the same
+ * JVM are serialized with an additional in-memory lock.
+ *
+ * <p>Whoever waited for the lock must check the installation again once it holds it, the previous
+ * holder has likely done the work already.
+ */
+class CloudSdkInstallLock implements AutoCloseable {
+
+  private static final ConcurrentMap<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+  private final ReentrantLock jvmLock;
+  private final FileChannel channel;
+  private final FileLock fileLock;
+
+  private CloudSdkInstallLock(ReentrantLock jvmLock, FileChannel channel, FileLock fileLock) {
+    this.jvmLock = jvmLock;
+    this.channel = channel;
+    this.fileLock = fileLock;
+  }
+
+  /** Blocks until no other build is changing the installation at {@code sdkHome}. */
+  static CloudSdkInstallLock acquire(Path sdkHome, Log log)
+      throws IOException, InterruptedException {
+    Path lockFile = lockFileFor(sdkHome);
+    ReentrantLock jvmLock = JVM_LOCKS.computeIfAbsent(lockFile, file -> new ReentrantLock());
+    if (!jvmLock.tryLock()) {
+      log.info("Waiting for another build to finish installing the Cloud SDK at " + sdkHome);
+      jvmLock.lockInterruptibly();
+    }
+    try {
+      Path directory = lockFile.getParent();
+      if (directory != null) {
+        Files.createDirectories(directory);
+      }
+      FileChannel channel =
+          FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      try {
+        FileLock fileLock = channel.tryLock();
+        if (fileLock == null) {
+          log.info("Waiting for another build to finish installing the Cloud SDK at " + sdkHome);
+          fileLock = channel.lock();
+        }
+        return new CloudSdkInstallLock(jvmLock, channel, fileLock);
+      } catch (IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    } catch (IOException | RuntimeException ex) {
+      jvmLock.unlock();
+      throw ex;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      fileLock.release();
+      channel.close();
+    } finally {
+      jvmLock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  static Path lockFileFor(Path sdkHome) {
+    Path absoluteSdkHome = sdkHome.toAbsolutePath().normalize();
+    return absoluteSdkHome.resolveSibling(absoluteSdkHome.getFileName() + ".lock");
+  }
+}
@@ -38,6 +38,50 @@ public abstract class CloudSdkMojo extends AbstractMojo {
   @Parameter(property = "cloudSdkVersion", required = false)
   private String cloudSdkVersion;
 
+  /**
+   * Optional parameter to configure where Cloud SDK validation results are cached between builds.
+   */
+  @Parameter(
+    property = "cloudSdkCacheDirectory",
+    defaultValue = "${user.home}/.m2/appengine-maven-plugin",
+    required = false
+  )
+  private File cloudSdkCacheDirectory;
+
+  /**
+   * Optional parameter to configure how often the managed Cloud SDK is checked for updates, like
+   * {@code 30m} or {@code 24h}. By default the check runs at most once a day, {@code 0} checks on
+   * every build.
+   */
+  @Parameter(property = "cloudSdkUpdateCheckInterval", defaultValue = "24h", required = false)
+  private String cloudSdkUpdateCheckInterval;
+
+  /**
+   * Optional parameter to configure a directory of Cloud SDK installation snapshots, which may be
+   * shared between machines. A missing managed Cloud SDK is restored from a snapshot instead of
+   * downloaded, new installations are added to it and updates of the latest Cloud SDK replace its
+   * snapshot.
+   */
+  @Parameter(property = "cloudSdkArchiveCache", required = false)
+  private File cloudSdkArchiveCache;
+
+  /**
+   * Optional parameter to cache the project read from the gcloud configuration in {@code
+   * cloudSdkCacheDirectory}, so it is only read with gcloud again after the active gcloud
+   * configuration, the properties of the Cloud SDK installation or {@code CLOUDSDK_CORE_PROJECT}
+   * change.
+   */
+  @Parameter(property = "cacheGcloudConfig", defaultValue = "false", required = false)
+  private boolean cacheGcloudConfig;
+
+  /**
+   * Optional parameter to configure how much of the output of gcloud, appcfg and the dev server is
+   * logged: {@code all}, {@code summary} to collapse per-file lines like uploads into periodic
+   * summaries, or {@code quiet} to only log warnings, errors and those summaries.
+   */
+  @Parameter(property = "processOutputVerbosity", defaultValue = "all", required = false)
+  private String processOutputVerbosity;
+
   /** Optional parameter to configure the key file used for gcloud authentication */
   @Parameter(property = "serviceAccountKeyFile", required = false)
   private File serviceAccountKeyFile;
@@ -72,6 +116,26 @@ public abstract class CloudSdkMojo extends AbstractMojo {
     return cloudSdkVersion;
   }
 
+  public Path getCloudSdkCacheDirectory() {
+    return cloudSdkCacheDirectory != null ? cloudSdkCacheDirectory.toPath() : null;
+  }
+
+  public String getCloudSdkUpdateCheckInterval() {
+    return cloudSdkUpdateCheckInterval;
+  }
+
+  public Path getCloudSdkArchiveCache() {
+    return cloudSdkArchiveCache != null ? cloudSdkArchiveCache.toPath() : null;
+  }
+
+  public boolean isCacheGcloudConfig() {
+    return cacheGcloudConfig;
+  }
+
+  public String getProcessOutputVerbosity() {
+    return processOutputVerbosity;
+  }
+
   public Path getServiceAccountKeyFile() {
     return (serviceAccountKeyFile == null) ? null : serviceAccountKeyFile.toPath();
   }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Remembers, across builds, which checks passed on which Cloud SDK installation, so an unchanged
+ * installation is not validated again. A check is identified by the SDK path, the size and last
+ * modified time of its VERSION file and of its {@code .install} directory (which changes when
+ * components are added or removed) and a description of the check.
+ *
+ * <p>Every passed check is a marker file in the {@code validated} subdirectory of the cache
+ * directory. The cache is only an optimization, failures to read or write it are ignored.
+ */
+class CloudSdkValidationCache {
+
+  private final Path cacheDirectory;
+
+  CloudSdkValidationCache(Path cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /** Whether {@code check} passed on the current state of the installation at {@code sdkHome}. */
+  boolean isValidated(Path sdkHome, String check) {
+    Path marker = markerFile(sdkHome, check);
+    return marker != null && Files.exists(marker);
+  }
+
+  /** Records that {@code check} passed on the current state of the installation. */
+  @SuppressWarnings("PMD.EmptyCatchBlock")
+  void recordValidated(Path sdkHome, String check) {
+    Path marker = markerFile(sdkHome, check);
+    if (marker == null) {
+      return;
+    }
+    try {
+      Files.createDirectories(cacheDirectory.resolve("validated"));
+      Files.write(
+          marker, (sdkHome.toAbsolutePath() + "\n" + check).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      // validating again next time is always safe
+    }
+  }
+
+  /**
+   * Returns the marker file of a check, or {@code null} if the installation can't be identified.
+   */
+  @VisibleForTesting
+  Path markerFile(Path sdkHome, String check) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(sdkHome.toAbsolutePath().normalize().toString(), StandardCharsets.UTF_8);
+    hasher.putString("\n" + check + "\n", StandardCharsets.UTF_8);
+    try {
+      BasicFileAttributes version =
+          Files.readAttributes(sdkHome.resolve("VERSION"), BasicFileAttributes.class);
+      hasher.putString(
+          version.size() + "@" + version.lastModifiedTime().toMillis(), StandardCharsets.UTF_8);
+      Path install = sdkHome.resolve(".install");
+      if (Files.isDirectory(install)) {
+        hasher.putString(
+            "\n" + Files.getLastModifiedTime(install).toMillis(), StandardCharsets.UTF_8);
+      }
+    } catch (IOException ex) {
+      // no VERSION file, not a Cloud SDK or not installed yet
+      return null;
+    }
+    return cacheDirectory.resolve("validated").resolve(hasher.hash().toString());
+  }
+}
@@ -22,22 +22,68 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateExc
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
 
 public class ConfigReader {
   public static final String APPENGINE_CONFIG = "APPENGINE_CONFIG";
   public static final String GCLOUD_CONFIG = "GCLOUD_CONFIG";
 
-  private final Gcloud gcloud;
+  private final Supplier<Gcloud> gcloud;
+  private final SessionCache sessionCache;
+  private final String projectKey;
+  private final GcloudProjectCache projectCache;
+  private final GcloudConfigDirectory configDirectory;
 
-  // use CloudSdkAppEngineFactory to instantiate
-  ConfigReader(Gcloud gcloud) {
+  // use CloudSdkAppEngineFactory to instantiate, gcloud is only resolved when it is used
+  // projectKey identifies the Cloud SDK installation, whose properties can set the project
+  ConfigReader(
+      Supplier<Gcloud> gcloud,
+      SessionCache sessionCache,
+      String projectKey,
+      GcloudProjectCache projectCache,
+      GcloudConfigDirectory configDirectory) {
     this.gcloud = gcloud;
+    this.sessionCache = sessionCache;
+    this.projectKey = projectKey;
+    this.projectCache = projectCache;
+    this.configDirectory = configDirectory;
   }
 
-  /** Return gcloud config property for project, or error out if not found. */
+  /**
+   * Return gcloud config property for project, or error out if not found. The project is read once
+   * per build and Cloud SDK installation, from the gcloud configuration files when possible.
+   * Otherwise gcloud is asked, and with a project cache only again when the active gcloud
+   * configuration changes.
+   */
   public String getProjectId() {
+    return sessionCache.get(projectKey, this::readProjectId);
+  }
+
+  private String readProjectId() {
+    String project = configDirectory.readProject();
+    if (project != null) {
+      return project;
+    }
+
+    // gcloud finds the project somewhere else, like the installation properties
+    Path configFile = projectCache == null ? null : configDirectory.getActiveConfigurationFile();
+    if (configFile != null) {
+      String cachedProject = projectCache.get(configFile);
+      if (cachedProject != null) {
+        return cachedProject;
+      }
+    }
+    String gcloudProject = readProjectIdFromGcloud();
+    if (configFile != null) {
+      projectCache.put(configFile, gcloudProject);
+    }
+    return gcloudProject;
+  }
+
+  private String readProjectIdFromGcloud() {
     try {
-      String gcloudProject = gcloud.getConfig().getProject();
+      String gcloudProject = gcloud.get().getConfig().getProject();
       if (gcloudProject == null || gcloudProject.trim().isEmpty()) {
         throw new RuntimeException("Project was not found in gcloud config");
       }
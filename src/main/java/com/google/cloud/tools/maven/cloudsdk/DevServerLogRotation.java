@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** How the output file of a dev server started with {@code appengine:start} is rotated. */
+public class DevServerLogRotation {
+
+  /** Rotates at 100 MB, keeps 5 uncompressed rotated files. */
+  public static final DevServerLogRotation DEFAULT =
+      new DevServerLogRotation(100L * 1024 * 1024, 5, false);
+
+  private static final Pattern SIZE = Pattern.compile("(\\d+)\\s*([kmg]?)b?");
+
+  private final long maxFileSize;
+  private final int maxFiles;
+  private final boolean compress;
+
+  /**
+   * Creates a rotation policy.
+   *
+   * @param maxFileSize size in bytes at which the file is rotated, {@code 0} to never rotate
+   * @param maxFiles number of rotated files to keep
+   * @param compress whether rotated files are compressed with gzip
+   */
+  public DevServerLogRotation(long maxFileSize, int maxFiles, boolean compress) {
+    this.maxFileSize = maxFileSize;
+    this.maxFiles = maxFiles;
+    this.compress = compress;
+  }
+
+  /**
+   * Parses a file size parameter, a number of bytes, kilobytes, megabytes or gigabytes like {@code
+   * 512KB} or {@code 100MB}.
+   */
+  public static long parseSize(String value) {
+    Matcher matcher = value == null ? null : SIZE.matcher(value.trim().toLowerCase(Locale.US));
+    if (matcher == null || !matcher.matches()) {
+      throw new IllegalArgumentException(
+          "Invalid logMaxSize '" + value + "', expected a number of bytes like 512KB or 100MB");
+    }
+    long size = Long.parseLong(matcher.group(1));
+    switch (matcher.group(2)) {
+      case "k":
+        return size * 1024;
+      case "m":
+        return size * 1024 * 1024;
+      case "g":
+        return size * 1024 * 1024 * 1024;
+      default:
+        return size;
+    }
+  }
+
+  public long getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  public int getMaxFiles() {
+    return maxFiles;
+  }
+
+  public boolean isCompress() {
+    return compress;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The gcloud configuration directory of the user, as gcloud finds it: {@code CLOUDSDK_CONFIG}, or
+ * {@code %APPDATA%\gcloud} on Windows and {@code ~/.config/gcloud} elsewhere. The active named
+ * configuration is {@code CLOUDSDK_ACTIVE_CONFIG_NAME}, or the one named in the {@code
+ * active_config} file, or {@code default}.
+ *
+ * <p>Reading a property here takes a few file reads, instead of starting gcloud.
+ */
+class GcloudConfigDirectory {
+
+  private final Map<String, String> environment;
+  private final String userHome;
+  private final boolean windows;
+
+  @VisibleForTesting
+  GcloudConfigDirectory(Map<String, String> environment, String userHome, boolean windows) {
+    this.environment = environment;
+    this.userHome = userHome;
+    this.windows = windows;
+  }
+
+  /** The configuration directory of the user running this build. */
+  static GcloudConfigDirectory fromEnvironment() {
+    return new GcloudConfigDirectory(
+        System.getenv(),
+        System.getProperty("user.home"),
+        System.getProperty("os.name").toLowerCase(Locale.US).contains("windows"));
+  }
+
+  Path getDirectory() {
+    String configured = environment.get("CLOUDSDK_CONFIG");
+    if (!Strings.isNullOrEmpty(configured)) {
+      return Paths.get(configured);
+    }
+    String appData = environment.get("APPDATA");
+    if (windows && !Strings.isNullOrEmpty(appData)) {
+      return Paths.get(appData, "gcloud");
+    }
+    return Paths.get(userHome, ".config", "gcloud");
+  }
+
+  /** Returns the name of the active configuration. */
+  String getActiveConfigurationName() {
+    String name = environment.get("CLOUDSDK_ACTIVE_CONFIG_NAME");
+    if (!Strings.isNullOrEmpty(name)) {
+      return name;
+    }
+    try {
+      name =
+          new String(
+                  Files.readAllBytes(getDirectory().resolve("active_config")),
+                  StandardCharsets.UTF_8)
+              .trim();
+      return name.isEmpty() ? "default" : name;
+    } catch (IOException ex) {
+      return "default";
+    }
+  }
+
+  /** Returns the properties file of the active configuration, which may not exist. */
+  Path getActiveConfigurationFile() {
+    return getDirectory()
+        .resolve("configurations")
+        .resolve("config_" + getActiveConfigurationName());
+  }
+
+  /**
+   * Returns the project of the active configuration, like {@code gcloud config get-value project}
+   * does, or {@code null} if it can't be read from the files gcloud writes and only gcloud can
+   * tell, for example because it is set in the properties of the Cloud SDK installation or the
+   * configuration directory has an older layout.
+   */
+  String readProject() {
+    String project = getProjectOverride();
+    if (project != null) {
+      return project;
+    }
+    Path configFile = getActiveConfigurationFile();
+    if (!Files.isRegularFile(configFile)) {
+      return null;
+    }
+    try {
+      return Strings.emptyToNull(readProperty(configFile, "core", "project"));
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads a property from a gcloud properties file, which has the INI format of Python's
+   * configparser: {@code [section]} headers, {@code key = value} or {@code key: value} lines and
+   * full line comments starting with {@code #} or {@code ;}.
+   */
+  @VisibleForTesting
+  static String readProperty(Path propertiesFile, String section, String key) throws IOException {
+    String currentSection = null;
+    for (String line : Files.readAllLines(propertiesFile, StandardCharsets.UTF_8)) {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith(";")) {
+        continue;
+      }
+      if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+        currentSection = trimmed.substring(1, trimmed.length() - 1).trim();
+        continue;
+      }
+      if (Character.isWhitespace(line.charAt(0))) {
+        // continuation of a multi-line value, never used for a property we read
+        continue;
+      }
+      int separator = indexOfSeparator(trimmed);
+      if (separator < 0) {
+        throw new IOException("Unrecognized line in " + propertiesFile + ": " + line);
+      }
+      if (section.equals(currentSection)
+          && key.equalsIgnoreCase(trimmed.substring(0, separator).trim())) {
+        return trimmed.substring(separator + 1).trim();
+      }
+    }
+    return null;
+  }
+
+  private static int indexOfSeparator(String line) {
+    int equals = line.indexOf('=');
+    int colon = line.indexOf(':');
+    if (equals < 0 || colon < 0) {
+      return Math.max(equals, colon);
+    }
+    return Math.min(equals, colon);
+  }
+
+  /** Returns the project set with {@code CLOUDSDK_CORE_PROJECT}, which overrides any file. */
+  String getProjectOverride() {
+    return Strings.emptyToNull(environment.get("CLOUDSDK_CORE_PROJECT"));
+  }
+}
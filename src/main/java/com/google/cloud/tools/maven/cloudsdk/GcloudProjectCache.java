@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Remembers, across builds, the project of a gcloud configuration file, so it is not read with
+ * gcloud again until the file changes. Every configuration file has an entry in the {@code
+ * gcloud-project} subdirectory of the cache directory, with the state gcloud read the project from
+ * and the project. That state is the last modified time of the configuration file and of the
+ * properties of the Cloud SDK installation, and the value of {@code CLOUDSDK_CORE_PROJECT}, which
+ * gcloud all take the project from.
+ *
+ * <p>The cache is only an optimization, failures to read or write it are ignored.
+ */
+class GcloudProjectCache {
+
+  private final Path cacheDirectory;
+  private final Supplier<Path> cloudSdkHome;
+  private final String projectOverride;
+
+  /**
+   * Creates a cache for the Cloud SDK in {@code cloudSdkHome}, which is only resolved when the
+   * cache is used, with {@code projectOverride} as the value of {@code CLOUDSDK_CORE_PROJECT}.
+   */
+  GcloudProjectCache(Path cacheDirectory, Supplier<Path> cloudSdkHome, String projectOverride) {
+    this.cacheDirectory = cacheDirectory;
+    this.cloudSdkHome = cloudSdkHome;
+    this.projectOverride = projectOverride;
+  }
+
+  /** Returns the project of {@code configFile}, or {@code null} if anything changed since. */
+  String get(Path configFile) {
+    try {
+      List<String> entry = Files.readAllLines(entryFile(configFile), StandardCharsets.UTF_8);
+      if (entry.size() == 2 && entry.get(0).equals(state(configFile))) {
+        return entry.get(1);
+      }
+      return null;
+    } catch (IOException ex) {
+      // not cached, or the configuration file is gone
+      return null;
+    }
+  }
+
+  /** Records the project of the current state of {@code configFile}. */
+  @SuppressWarnings("PMD.EmptyCatchBlock")
+  void put(Path configFile, String project) {
+    try {
+      Path directory = cacheDirectory.resolve("gcloud-project");
+      Path entry = directory.resolve(entryName(configFile));
+      Files.createDirectories(directory);
+      // moved into place, builds running in parallel never read a partial entry
+      Path partial = Files.createTempFile(directory, entryName(configFile), ".part");
+      try {
+        Files.write(
+            partial, (state(configFile) + "\n" + project + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+          Files.move(partial, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+          Files.move(partial, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(partial);
+      }
+    } catch (IOException ex) {
+      // reading gcloud again next time is always safe
+    }
+  }
+
+  @VisibleForTesting
+  Path entryFile(Path configFile) {
+    return cacheDirectory.resolve("gcloud-project").resolve(entryName(configFile));
+  }
+
+  private static String entryName(Path configFile) {
+    return Hashing.sha256()
+        .hashString(configFile.toAbsolutePath().normalize().toString(), StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  private String state(Path configFile) throws IOException {
+    String configModified = lastModified(configFile);
+    Path installationProperties = cloudSdkHome.get().resolve("properties");
+    return configModified
+        + " "
+        + (Files.exists(installationProperties) ? lastModified(installationProperties) : "-")
+        + " "
+        + (projectOverride == null ? "-" : "=" + projectOverride);
+  }
+
+  private static String lastModified(Path file) throws IOException {
+    return String.valueOf(Files.getLastModifiedTime(file).toMillis());
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Reports Cloud SDK provisioning progress to the Maven log. Every task (download, extraction,
+ * installation) logs its amount of work done, rate and estimated time left at most every {@link
+ * #UPDATE_INTERVAL_NANOS}, and its total time when it is done. Finished tasks are collected in a
+ * {@link Summary}.
+ */
+class LoggingProgressListener implements ProgressListener {
+
+  @VisibleForTesting static final long UPDATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private final Log log;
+  private final LongSupplier nanoTime;
+  private final Summary summary;
+
+  private String task;
+  private long total = UNKNOWN;
+  private long workDone;
+  private long startNanos;
+  private long lastUpdateNanos;
+
+  LoggingProgressListener(Log log, Summary summary) {
+    this(log, System::nanoTime, summary);
+  }
+
+  @VisibleForTesting
+  LoggingProgressListener(Log log, LongSupplier nanoTime, Summary summary) {
+    this.log = log;
+    this.nanoTime = nanoTime;
+    this.summary = summary;
+  }
+
+  @Override
+  public void start(String message, long totalWork) {
+    task = message;
+    total = totalWork;
+    workDone = 0;
+    startNanos = nanoTime.getAsLong();
+    lastUpdateNanos = startNanos;
+    log.info(message + (totalWork > 0 ? " (" + format(totalWork) + ")" : ""));
+  }
+
+  @Override
+  public void update(long workDone) {
+    this.workDone += workDone;
+    long now = nanoTime.getAsLong();
+    if (now - lastUpdateNanos < UPDATE_INTERVAL_NANOS) {
+      return;
+    }
+    lastUpdateNanos = now;
+
+    double seconds = (now - startNanos) / 1e9;
+    long rate = seconds > 0 ? (long) (this.workDone / seconds) : 0;
+    StringBuilder message = new StringBuilder(task).append(": ").append(format(this.workDone));
+    if (total > 0) {
+      message
+          .append(" of ")
+          .append(format(total))
+          .append(" (")
+          .append(this.workDone * 100 / total)
+          .append("%)");
+    }
+    message.append(", ").append(format(rate)).append("/s");
+    if (total > 0 && rate > 0) {
+      message.append(", ").append(Math.max(0, (total - this.workDone) / rate)).append("s left");
+    }
+    log.info(message.toString());
+  }
+
+  @Override
+  public void update(String message) {
+    log.info(message);
+  }
+
+  @Override
+  public void done() {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanoTime.getAsLong() - startNanos);
+    log.info(
+        task
+            + ": done in "
+            + String.format(Locale.US, "%.1f", millis / 1000.0)
+            + "s"
+            + (workDone > 0 ? " (" + format(workDone) + ")" : ""));
+    summary.add(new Summary.Task(task, millis, workDone));
+  }
+
+  @Override
+  public ProgressListener newChild(long allocation) {
+    return new LoggingProgressListener(log, nanoTime, summary);
+  }
+
+  /** Tasks are downloads and extractions of bytes, shown in binary units. */
+  @VisibleForTesting
+  static String format(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+    return String.format(
+        Locale.US, "%.1f %sB", bytes / (double) (1L << (unit * 10)), " KMGTPE".charAt(unit));
+  }
+
+  /** The timings of all finished provisioning tasks, serializable as JSON. */
+  static class Summary {
+
+    private final List<Task> tasks = Collections.synchronizedList(new ArrayList<>());
+
+    void add(Task task) {
+      tasks.add(task);
+    }
+
+    boolean isEmpty() {
+      return tasks.isEmpty();
+    }
+
+    String toJson() {
+      synchronized (tasks) {
+        return new Gson().toJson(this);
+      }
+    }
+
+    static class Task {
+      private final String name;
+      private final long millis;
+      private final long workDone;
+
+      Task(String name, long millis, long workDone) {
+        this.name = name;
+        this.millis = millis;
+        this.workDone = workDone;
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/** How much of the output of gcloud, appcfg and the dev server is copied to the Maven log. */
+enum ProcessOutputVerbosity {
+  /** Every line. */
+  ALL("all"),
+  /**
+   * Every line, except per-file lines like upload and copy progress, which are collapsed into a
+   * periodic summary.
+   */
+  SUMMARY("summary"),
+  /** Only warnings, errors and the summaries of per-file lines. */
+  QUIET("quiet");
+
+  private final String configValue;
+
+  ProcessOutputVerbosity(String configValue) {
+    this.configValue = configValue;
+  }
+
+  /** Parses the {@code processOutputVerbosity} parameter, {@code null} means {@link #ALL}. */
+  static ProcessOutputVerbosity fromConfigValue(String value) {
+    if (value == null) {
+      return ALL;
+    }
+    for (ProcessOutputVerbosity verbosity : values()) {
+      if (verbosity.configValue.equals(value.trim().toLowerCase(Locale.US))) {
+        return verbosity;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Invalid processOutputVerbosity '"
+            + value
+            + "', expected one of: "
+            + Arrays.stream(values())
+                .map(ProcessOutputVerbosity::toString)
+                .collect(Collectors.joining(", ")));
+  }
+
+  @Override
+  public String toString() {
+    return configValue;
+  }
+}
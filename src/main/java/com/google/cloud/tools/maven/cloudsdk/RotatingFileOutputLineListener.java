@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Writes process output to a file, on a separate thread. When the file reaches the maximum size of
+ * its {@link DevServerLogRotation}, it is renamed to {@code <file>.1}, the previous {@code
+ * <file>.1} to {@code <file>.2} and so on, optionally compressed to {@code <file>.1.gz}, and the
+ * oldest rotated file is deleted.
+ *
+ * <p>The writer thread only renames the full file out of the way and continues with a new one.
+ * Renumbering and compressing the rotated files happens on a rotation thread, so a slow compression
+ * never holds up the output of the process.
+ *
+ * <p>All open files are closed by a single shutdown hook, so output is flushed even when the build
+ * ends while the process is still running.
+ */
+class RotatingFileOutputLineListener extends AsyncOutputLineListener {
+
+  private static final Set<RotatingFileOutputLineListener> OPEN = ConcurrentHashMap.newKeySet();
+  private static final AtomicBoolean SHUTDOWN_HOOK_ADDED = new AtomicBoolean();
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+  private final Path file;
+  private final DevServerLogRotation rotation;
+  private final Log log;
+
+  // only used by the writer thread, there is only ever one
+  private OutputStream out;
+  private long size;
+  private int rotations;
+  // started with the first rotation, renumbers and compresses rotated files in order
+  private ExecutorService rotator;
+
+  RotatingFileOutputLineListener(Path file, DevServerLogRotation rotation, Log log) {
+    super("dev-appserver-log");
+    this.file = file;
+    this.rotation = rotation;
+    this.log = log;
+    try {
+      // like the output, rotated files are of this run only
+      for (int i = 1; i <= rotation.getMaxFiles() + 1; i++) {
+        Files.deleteIfExists(segment(i, false));
+        Files.deleteIfExists(segment(i, true));
+      }
+      Path directory = file.toAbsolutePath().getParent();
+      if (directory != null && Files.isDirectory(directory)) {
+        try (DirectoryStream<Path> pending =
+            Files.newDirectoryStream(directory, file.getFileName() + ".rotating.*")) {
+          for (Path rotated : pending) {
+            Files.deleteIfExists(rotated);
+          }
+        }
+      }
+      out = open();
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    OPEN.add(this);
+    if (SHUTDOWN_HOOK_ADDED.compareAndSet(false, true)) {
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> OPEN.forEach(AsyncOutputLineListener::close), "dev-appserver-log-close"));
+    }
+  }
+
+  @Override
+  void writeLine(String line) {
+    if (out == null) {
+      return;
+    }
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    try {
+      if (rotation.getMaxFileSize() > 0
+          && size > 0
+          && size + bytes.length + LINE_SEPARATOR.length > rotation.getMaxFileSize()) {
+        rotate();
+      }
+      out.write(bytes);
+      out.write(LINE_SEPARATOR);
+      size += bytes.length + LINE_SEPARATOR.length;
+    } catch (IOException ex) {
+      fail(ex);
+    }
+  }
+
+  @Override
+  void afterBatch() {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.flush();
+    } catch (IOException ex) {
+      fail(ex);
+    }
+  }
+
+  @Override
+  void afterClose() {
+    OPEN.remove(this);
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException ex) {
+        fail(ex);
+      }
+      out = null;
+    }
+    if (rotator != null) {
+      // rotated files are complete once the listener is closed
+      rotator.shutdown();
+      try {
+        while (!rotator.awaitTermination(1, TimeUnit.MINUTES)) {
+          log.debug("Waiting for the rotation of " + file);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void rotate() throws IOException {
+    out.close();
+    if (rotation.getMaxFiles() > 0) {
+      Path rotated = file.resolveSibling(file.getFileName() + ".rotating." + ++rotations);
+      Files.move(file, rotated, StandardCopyOption.REPLACE_EXISTING);
+      if (rotator == null) {
+        rotator =
+            Executors.newSingleThreadExecutor(
+                runnable -> {
+                  Thread thread = new Thread(runnable, "dev-appserver-log-rotation");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+      }
+      rotator.execute(() -> shift(rotated));
+    }
+    out = open();
+  }
+
+  /** Makes {@code rotated} the first rotated file, called on the rotation thread. */
+  private void shift(Path rotated) {
+    try {
+      int maxFiles = rotation.getMaxFiles();
+      Files.deleteIfExists(segment(maxFiles, false));
+      Files.deleteIfExists(segment(maxFiles, true));
+      for (int i = maxFiles - 1; i >= 1; i--) {
+        for (boolean compressed : new boolean[] {false, true}) {
+          if (Files.exists(segment(i, compressed))) {
+            Files.move(
+                segment(i, compressed),
+                segment(i + 1, compressed),
+                StandardCopyOption.REPLACE_EXISTING);
+          }
+        }
+      }
+      if (rotation.isCompress()) {
+        // compressed next to the segment, an interrupted compression never looks complete
+        Path partial = segment(1, true).resolveSibling(segment(1, true).getFileName() + ".part");
+        try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+          Files.copy(rotated, gzip);
+        }
+        Files.move(partial, segment(1, true), StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(rotated);
+      } else {
+        Files.move(rotated, segment(1, false), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException ex) {
+      log.warn("Failed to rotate Dev App Server output file " + rotated, ex);
+    }
+  }
+
+  private OutputStream open() throws IOException {
+    size = 0;
+    return new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+  }
+
+  @VisibleForTesting
+  Path segment(int index, boolean compressed) {
+    return file.resolveSibling(file.getFileName() + "." + index + (compressed ? ".gz" : ""));
+  }
+
+  private void fail(IOException ex) {
+    log.warn("Failed to write Dev App Server output to " + file + ", output is not saved", ex);
+    try {
+      if (out != null) {
+        out.close();
+      }
+    } catch (IOException closeException) {
+      ex.addSuppressed(closeException);
+    }
+    out = null;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Results that are expensive to compute and stay valid for a whole build, like a resolved and
+ * validated Cloud SDK. The cache is stored in the session data of the Maven session, so it is
+ * shared by every goal and every module of the build, and discarded with the session.
+ *
+ * <p>A value is computed once per key, concurrent callers wait for the first one. A failed
+ * computation is not cached.
+ */
+public class SessionCache {
+
+  private static final String SESSION_DATA_KEY = SessionCache.class.getName();
+
+  private final ConcurrentMap<String, FutureTask<?>> values = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the cache of {@code session}, or {@code null} if the session has no session data to
+   * hold one.
+   */
+  public static SessionCache forSession(MavenSession session) {
+    RepositorySystemSession repositorySession =
+        session == null ? null : session.getRepositorySession();
+    SessionData data = repositorySession == null ? null : repositorySession.getData();
+    if (data == null) {
+      return null;
+    }
+    Object existing = data.get(SESSION_DATA_KEY);
+    if (existing == null) {
+      SessionCache cache = new SessionCache();
+      existing = data.set(SESSION_DATA_KEY, null, cache) ? cache : data.get(SESSION_DATA_KEY);
+    }
+    // a different version of the plugin in the same build has its own class
+    return existing instanceof SessionCache ? (SessionCache) existing : null;
+  }
+
+  /** Returns the value for {@code key}, computing it with {@code loader} on first use. */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String key, Supplier<T> loader) {
+    FutureTask<?> newTask = new FutureTask<>(loader::get);
+    FutureTask<?> task = values.putIfAbsent(key, newTask);
+    if (task == null) {
+      task = newTask;
+      task.run();
+    }
+    try {
+      return (T) task.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(ex);
+    } catch (ExecutionException ex) {
+      values.remove(key, task);
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  /**
+   * Starts computing the value for {@code key} on a daemon thread, unless it is already computed or
+   * being computed. The next {@link #get} waits for the result, and rethrows a failure once before
+   * computing again.
+   *
+   * @return the computation of the value, which callers must wait for before the build ends so that
+   *     it is never abandoned halfway
+   */
+  Future<?> computeInBackground(String key, Supplier<?> loader, String threadName) {
+    FutureTask<?> newTask = new FutureTask<>(loader::get);
+    FutureTask<?> task = values.putIfAbsent(key, newTask);
+    if (task == null) {
+      task = newTask;
+      Thread thread = new Thread(task, threadName);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return task;
+  }
+
+  /** Forgets the value for {@code key}. */
+  void invalidate(String key) {
+    values.remove(key);
+  }
+}
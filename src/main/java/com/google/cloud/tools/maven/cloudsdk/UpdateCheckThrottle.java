@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Limits how often the managed Cloud SDK is checked for updates. The time of the last check is the
+ * last modified time of a timestamp file next to the managed Cloud SDK, so it is shared by all
+ * builds that use the same installation.
+ */
+class UpdateCheckThrottle {
+
+  private static final Pattern INTERVAL = Pattern.compile("(\\d+)\\s*([smhd]?)");
+
+  private final Path timestampFile;
+  private final Duration interval;
+  private final Clock clock;
+
+  UpdateCheckThrottle(Path sdkHome, Duration interval) {
+    this(sdkHome, interval, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  UpdateCheckThrottle(Path sdkHome, Duration interval, Clock clock) {
+    this.timestampFile = timestampFileFor(sdkHome);
+    this.interval = interval;
+    this.clock = clock;
+  }
+
+  /**
+   * Parses the {@code cloudSdkUpdateCheckInterval} parameter, a number of seconds, minutes, hours
+   * or days like {@code 30m} or {@code 24h}. Returns {@code null} for a {@code null} value, which
+   * turns throttling off so the check runs on every build. The parameter itself defaults to {@code
+   * 24h}.
+   */
+  static Duration parseInterval(String value) {
+    if (value == null) {
+      return null;
+    }
+    Matcher matcher = INTERVAL.matcher(value.trim().toLowerCase(Locale.US));
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(
+          "Invalid cloudSdkUpdateCheckInterval '"
+              + value
+              + "', expected a number of seconds, minutes, hours or days like 30m or 24h");
+    }
+    long amount = Long.parseLong(matcher.group(1));
+    switch (matcher.group(2)) {
+      case "m":
+        return Duration.ofMinutes(amount);
+      case "h":
+        return Duration.ofHours(amount);
+      case "d":
+        return Duration.ofDays(amount);
+      default:
+        return Duration.ofSeconds(amount);
+    }
+  }
+
+  /** Whether the last check is older than the interval, or there was no check yet. */
+  boolean isCheckDue() {
+    try {
+      Instant lastCheck = Files.getLastModifiedTime(timestampFile).toInstant();
+      Instant now = clock.instant();
+      // a last check in the future means the clock was changed, don't trust it
+      return lastCheck.isAfter(now) || !lastCheck.plus(interval).isAfter(now);
+    } catch (IOException ex) {
+      return true;
+    }
+  }
+
+  /** Records a check that completed now. */
+  @SuppressWarnings("PMD.EmptyCatchBlock")
+  void recordCheck() {
+    try {
+      if (!Files.exists(timestampFile)) {
+        Files.createFile(timestampFile);
+      }
+      Files.setLastModifiedTime(timestampFile, FileTime.from(clock.instant()));
+    } catch (IOException ex) {
+      // the next build checks again
+    }
+  }
+
+  @VisibleForTesting
+  static Path timestampFileFor(Path sdkHome) {
+    return sdkHome.resolveSibling(sdkHome.getFileName() + ".last-update-check");
+  }
+}
@@ -19,147 +19,214 @@ package com.google.cloud.tools.maven.deploy;
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
 import com.google.cloud.tools.appengine.configuration.DeployProjectConfigurationConfiguration;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
 import com.google.cloud.tools.maven.stage.Stager;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class AppDeployer implements Deployer {
 
+  /** The project configuration files deployed with the application by deployAll. */
+  static final ImmutableList<String> CONFIG_YAMLS =
+      ImmutableList.of("cron.yaml", "dispatch.yaml", "dos.yaml", "index.yaml", "queue.yaml");
+
   @VisibleForTesting final Stager stager;
   @VisibleForTesting final Path appengineDirectory;
   private final AbstractDeployMojo deployMojo;
   private final ConfigBuilder configBuilder;
+  private final ReactorStaging reactorStaging;
 
   @VisibleForTesting
   AppDeployer(
       AbstractDeployMojo deployMojo,
       Stager stager,
       ConfigBuilder configBuilder,
-      Path appengineDirectory) {
+      Path appengineDirectory,
+      ReactorStaging reactorStaging) {
     this.deployMojo = deployMojo;
     this.stager = stager;
     this.configBuilder = configBuilder;
     this.appengineDirectory = appengineDirectory;
+    this.reactorStaging = reactorStaging;
   }
 
   /** Deploy a single application (and no project configuration). */
   public void deploy() throws MojoExecutionException {
-    stager.stage();
+    try {
+      stageApplication();
 
-    DeployConfiguration config =
-        configBuilder.buildDeployConfiguration(ImmutableList.of(deployMojo.getStagingDirectory()));
+      DeployConfiguration config =
+          configBuilder.buildDeployConfiguration(
+              ImmutableList.of(deployMojo.getStagingDirectory()));
 
-    try {
-      deployMojo.getAppEngineFactory().deployment().deploy(config);
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("App Engine application deployment failed", ex);
+      runDeployment(deployMojo, config, "App Engine application deployment failed");
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
   /** Deploy a single application and any found yaml configuration files. */
   public void deployAll() throws MojoExecutionException {
-    stager.stage();
-    ImmutableList.Builder<Path> computedDeployables = ImmutableList.builder();
+    try {
+      stageApplication();
+      ImmutableList.Builder<Path> computedDeployables = ImmutableList.builder();
 
-    // Look for app.yaml
-    Path appYaml = deployMojo.getStagingDirectory().resolve("app.yaml");
-    if (!Files.exists(appYaml)) {
-      throw new MojoExecutionException("Failed to deploy all: could not find app.yaml.");
-    }
-    deployMojo.getLog().info("deployAll: Preparing to deploy app.yaml");
-    computedDeployables.add(appYaml);
-
-    // Look for config yamls
-    String[] configYamls = {"cron.yaml", "dispatch.yaml", "dos.yaml", "index.yaml", "queue.yaml"};
-    for (String yamlName : configYamls) {
-      Path yaml = appengineDirectory.resolve(yamlName);
-      if (Files.exists(yaml)) {
-        deployMojo.getLog().info("deployAll: Preparing to deploy " + yamlName);
-        computedDeployables.add(yaml);
+      // Look for app.yaml
+      Path appYaml = deployMojo.getStagingDirectory().resolve("app.yaml");
+      if (!Files.exists(appYaml)) {
+        throw new MojoExecutionException("Failed to deploy all: could not find app.yaml.");
+      }
+      deployMojo.getLog().info("deployAll: Preparing to deploy app.yaml");
+      computedDeployables.add(appYaml);
+
+      // Look for config yamls
+      for (String yamlName : CONFIG_YAMLS) {
+        Path yaml = appengineDirectory.resolve(yamlName);
+        if (Files.exists(yaml)) {
+          deployMojo.getLog().info("deployAll: Preparing to deploy " + yamlName);
+          computedDeployables.add(yaml);
+        }
       }
+
+      DeployConfiguration config =
+          configBuilder.buildDeployConfiguration(computedDeployables.build());
+
+      runDeployment(deployMojo, config, "Failed to deploy");
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
+  }
 
-    DeployConfiguration config =
-        configBuilder.buildDeployConfiguration(computedDeployables.build());
+  /** Stages the application, unless an earlier goal of this build already staged it. */
+  private void stageApplication() throws MojoExecutionException {
+    if (reactorStaging.isStaged(deployMojo)) {
+      deployMojo
+          .getLog()
+          .info("Reusing the application staged in " + deployMojo.getStagingDirectory());
+      return;
+    }
+    long start = System.nanoTime();
+    stager.stage();
+    reactorStaging.record(deployMojo, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Stages the application if the project configuration is staged with it, as for appengine-web.xml
+   * based applications where the config yamls are generated. app.yaml based applications deploy
+   * their configuration from the source directory.
+   */
+  private void stageProjectConfiguration() throws MojoExecutionException {
+    if (appengineDirectory.startsWith(deployMojo.getStagingDirectory())) {
+      stageApplication();
+    }
+  }
 
+  /** Deploys, reporting upload progress and the time of each deployment phase. */
+  static void runDeployment(
+      AbstractDeployMojo deployMojo, DeployConfiguration config, String failureMessage)
+      throws MojoExecutionException {
+    DeployProgressReporter reporter = new DeployProgressReporter(deployMojo.getLog());
     try {
-      deployMojo.getAppEngineFactory().deployment().deploy(config);
+      deployMojo.getAppEngineFactory().deployment(new DeployOutputParser(reporter)).deploy(config);
     } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      throw new MojoExecutionException(failureMessage, ex);
+    } finally {
+      reporter.report();
     }
   }
 
   /** Deploy only cron.yaml. */
   public void deployCron() throws MojoExecutionException {
-    stager.stage();
     try {
-      deployMojo
-          .getAppEngineFactory()
-          .deployment()
-          .deployCron(
-              configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      stageProjectConfiguration();
+      try {
+        deployMojo
+            .getAppEngineFactory()
+            .deployment()
+            .deployCron(
+                configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to deploy", ex);
+      }
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
   /** Deploy only dispatch.yaml. */
   public void deployDispatch() throws MojoExecutionException {
-    stager.stage();
     try {
-      deployMojo
-          .getAppEngineFactory()
-          .deployment()
-          .deployDispatch(
-              configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      stageProjectConfiguration();
+      try {
+        deployMojo
+            .getAppEngineFactory()
+            .deployment()
+            .deployDispatch(
+                configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to deploy", ex);
+      }
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
   /** Deploy only dos.yaml. */
   public void deployDos() throws MojoExecutionException {
-    stager.stage();
     try {
-      deployMojo
-          .getAppEngineFactory()
-          .deployment()
-          .deployDos(
-              configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      stageProjectConfiguration();
+      try {
+        deployMojo
+            .getAppEngineFactory()
+            .deployment()
+            .deployDos(
+                configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to deploy", ex);
+      }
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
   /** Deploy only index.yaml. */
   public void deployIndex() throws MojoExecutionException {
-    stager.stage();
     try {
-      deployMojo
-          .getAppEngineFactory()
-          .deployment()
-          .deployIndex(
-              configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      stageProjectConfiguration();
+      try {
+        deployMojo
+            .getAppEngineFactory()
+            .deployment()
+            .deployIndex(
+                configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to deploy", ex);
+      }
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
   /** Deploy only queue.yaml. */
   public void deployQueue() throws MojoExecutionException {
-    stager.stage();
     try {
-      deployMojo
-          .getAppEngineFactory()
-          .deployment()
-          .deployQueue(
-              configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("Failed to deploy", ex);
+      stageProjectConfiguration();
+      try {
+        deployMojo
+            .getAppEngineFactory()
+            .deployment()
+            .deployQueue(
+                configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory));
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to deploy", ex);
+      }
+    } finally {
+      deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
     }
   }
 
@@ -186,6 +253,24 @@ public class AppDeployer implements Deployer {
           .build();
     }
 
+    /** Builds the configuration of one service, with the parameters it overrides. */
+    DeployConfiguration buildDeployConfiguration(List<Path> deployables, DeployService service) {
+      return DeployConfiguration.builder(deployables)
+          .bucket(override(service.getBucket(), deployMojo.getBucket()))
+          .gcloudMode(deployMojo.getGcloudMode())
+          .imageUrl(override(service.getImageUrl(), deployMojo.getImageUrl()))
+          .projectId(
+              configProcessor.processProjectId(
+                  override(service.getProjectId(), deployMojo.getProjectId())))
+          .promote(override(service.getPromote(), deployMojo.getPromote()))
+          .server(deployMojo.getServer())
+          .stopPreviousVersion(deployMojo.getStopPreviousVersion())
+          .version(
+              configProcessor.processVersion(
+                  override(service.getVersion(), deployMojo.getVersion())))
+          .build();
+    }
+
     DeployProjectConfigurationConfiguration buildDeployProjectConfigurationConfiguration(
         Path appengineDirectory) {
       return DeployProjectConfigurationConfiguration.builder(appengineDirectory)
@@ -193,5 +278,9 @@ public class AppDeployer implements Deployer {
           .server(deployMojo.getServer())
           .build();
     }
+
+    private static <T> T override(T value, T fallback) {
+      return value != null ? value : fallback;
+    }
   }
 }
@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy the application and all configs to Google App Engine. */
-@Mojo(name = "deployAll", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployAll", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployAllMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy cron.yaml to Google App Engine. */
-@Mojo(name = "deployCron", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployCron", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployCronMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
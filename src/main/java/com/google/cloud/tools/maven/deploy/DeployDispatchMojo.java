@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy dispatch.yaml to Google App Engine. */
-@Mojo(name = "deployDispatch", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployDispatch", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployDispatchMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy dos.yaml to Google App Engine. */
-@Mojo(name = "deployDos", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployDos", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployDosMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
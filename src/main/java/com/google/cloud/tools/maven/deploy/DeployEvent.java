@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import java.time.Instant;
+
+/** A step of {@code gcloud app deploy}, recognized in its output by {@link DeployOutputParser}. */
+class DeployEvent {
+
+  enum Type {
+    /** Deployment of a service started, the subject is the service. */
+    SERVICE_STARTED,
+    /** The file manifest was computed, the count is the number of files. */
+    MANIFEST,
+    /** The upload started, the count is the number of files to upload. */
+    UPLOAD_STARTED,
+    /** All files are uploaded. */
+    UPLOAD_FINISHED,
+    /** A container image build started, the subject is the service or build. */
+    BUILD_STARTED,
+    /** The version of a service was updated, the subject is the service. */
+    VERSION_UPDATED,
+    /** The version of a service is being updated, the subject is the service. */
+    VERSION_UPDATE_STARTED,
+    /** Traffic was migrated to the new version, the subject is the service. */
+    TRAFFIC_MIGRATED,
+    /** Traffic is being migrated to the new version, the subject is the service. */
+    TRAFFIC_MIGRATION_STARTED,
+    /** The running step finished. */
+    STEP_DONE,
+    /** A service is deployed, the subject is the service. */
+    SERVICE_DEPLOYED
+  }
+
+  private final Type type;
+  private final Instant time;
+  private final String subject;
+  private final long count;
+
+  DeployEvent(Type type, Instant time, String subject, long count) {
+    this.type = type;
+    this.time = time;
+    this.subject = subject;
+    this.count = count;
+  }
+
+  Type getType() {
+    return type;
+  }
+
+  Instant getTime() {
+    return time;
+  }
+
+  /** The service, file or build of the event, or {@code null}. */
+  String getSubject() {
+    return subject;
+  }
+
+  /** The number of files of the event, or {@code -1}. */
+  long getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return time
+        + " "
+        + type
+        + (subject != null ? " " + subject : "")
+        + (count >= 0 ? " " + count : "");
+  }
+}
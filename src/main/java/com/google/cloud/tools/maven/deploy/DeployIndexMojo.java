@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy index.yaml to Google App Engine. */
-@Mojo(name = "deployIndex", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployIndex", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployIndexMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.maven.deploy.DeployEvent.Type;
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the steps of {@code gcloud app deploy} in its output, and passes them as {@link
+ * DeployEvent}s with the time their line was printed to a consumer. Lines that aren't a step are
+ * ignored.
+ *
+ * <p>The patterns follow the status messages of {@code gcloud app deploy}. Output of other versions
+ * that doesn't match is not an error, the deployment is just reported in less detail.
+ */
+class DeployOutputParser implements ProcessOutputLineListener {
+
+  private static final String TRAFFIC_MIGRATION =
+      "(?:Setting traffic split|Migrating traffic) for service \\[(?<subject>.+?)\\]";
+
+  // checked in the order of the types, a finished step also looks like a started one
+  private static final Map<Type, Pattern> STEPS = new EnumMap<>(Type.class);
+
+  static {
+    STEPS.put(Type.SERVICE_STARTED, step("Beginning deployment of service \\[(?<subject>.+?)\\]"));
+    STEPS.put(Type.MANIFEST, step("(?:INFO: )?Manifest: \\[?(?<count>\\d+)\\]? files?"));
+    STEPS.put(
+        Type.UPLOAD_STARTED,
+        step("[^A-Za-z]*Uploading \\[?(?<count>\\d+)\\]? files? to Google Cloud Storage"));
+    STEPS.put(Type.UPLOAD_FINISHED, step("File upload done\\."));
+    STEPS.put(
+        Type.BUILD_STARTED,
+        step(
+            "(?:Building and pushing image for service|Started cloud build)"
+                + " \\[(?<subject>.+?)\\]"));
+    STEPS.put(Type.VERSION_UPDATED, done("Updating service \\[(?<subject>.+?)\\]"));
+    STEPS.put(Type.VERSION_UPDATE_STARTED, step("Updating service \\[(?<subject>.+?)\\]"));
+    STEPS.put(Type.TRAFFIC_MIGRATED, done(TRAFFIC_MIGRATION));
+    STEPS.put(Type.TRAFFIC_MIGRATION_STARTED, step(TRAFFIC_MIGRATION));
+    STEPS.put(Type.STEP_DONE, Pattern.compile("\\.*done\\."));
+    STEPS.put(Type.SERVICE_DEPLOYED, step("Deployed service \\[(?<subject>.+?)\\]"));
+  }
+
+  private final Consumer<DeployEvent> consumer;
+  private final Clock clock;
+
+  DeployOutputParser(Consumer<DeployEvent> consumer) {
+    this(consumer, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  DeployOutputParser(Consumer<DeployEvent> consumer, Clock clock) {
+    this.consumer = consumer;
+    this.clock = clock;
+  }
+
+  // called by the stdout and stderr reader threads
+  @Override
+  public synchronized void onOutputLine(String line) {
+    String trimmed = line.trim();
+    for (Map.Entry<Type, Pattern> step : STEPS.entrySet()) {
+      Matcher matcher = step.getValue().matcher(trimmed);
+      if (matcher.matches()) {
+        String pattern = step.getValue().pattern();
+        String subject = pattern.contains("(?<subject>") ? matcher.group("subject") : null;
+        long count = pattern.contains("(?<count>") ? Long.parseLong(matcher.group("count")) : -1;
+        consumer.accept(new DeployEvent(step.getKey(), clock.instant(), subject, count));
+        return;
+      }
+    }
+  }
+
+  /** A line that starts with {@code regex}, gcloud may add details after it. */
+  private static Pattern step(String regex) {
+    return Pattern.compile(regex + ".*");
+  }
+
+  /**
+   * A finished step. Without a terminal gcloud prints the step and its {@code done.} on one line
+   * when the step finishes.
+   */
+  private static Pattern done(String regex) {
+    return Pattern.compile(regex + ".*\\.done\\.");
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Reports the progress of a deployment from its {@link DeployEvent}s: the upload rate once the
+ * files are uploaded, and at the end the time spent in each phase of the deployment, summed over
+ * all services.
+ *
+ * <p>A phase runs from its start event to the next event that ends it. A phase that is only
+ * reported once it finished, like a version update printed with its {@code done.} on one line,
+ * covers the time since the previous event.
+ */
+class DeployProgressReporter implements Consumer<DeployEvent> {
+
+  enum Phase {
+    MANIFEST("file manifest"),
+    UPLOAD("upload"),
+    BUILD("build"),
+    VERSION_UPDATE("version update"),
+    TRAFFIC_MIGRATION("traffic migration");
+
+    private final String description;
+
+    Phase(String description) {
+      this.description = description;
+    }
+  }
+
+  private final Log log;
+  private final String prefix;
+  private final Map<Phase, Duration> durations = new EnumMap<>(Phase.class);
+
+  private Phase phase;
+  private Instant phaseStart;
+  private long filesToUpload = -1;
+  private Instant lastEvent;
+
+  DeployProgressReporter(Log log) {
+    this(log, "");
+  }
+
+  /** Starts every logged message with {@code prefix}, to tell concurrent deployments apart. */
+  DeployProgressReporter(Log log, String prefix) {
+    this.log = log;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public synchronized void accept(DeployEvent event) {
+    handle(event);
+    lastEvent = event.getTime();
+  }
+
+  private void handle(DeployEvent event) {
+    switch (event.getType()) {
+      case SERVICE_STARTED:
+        startPhase(Phase.MANIFEST, event.getTime());
+        break;
+      case UPLOAD_STARTED:
+        startPhase(Phase.UPLOAD, event.getTime());
+        filesToUpload = event.getCount();
+        break;
+      case UPLOAD_FINISHED:
+        if (phase == Phase.UPLOAD && filesToUpload > 0) {
+          double seconds = seconds(Duration.between(phaseStart, event.getTime()));
+          log.info(
+              prefix
+                  + String.format(
+                      Locale.US,
+                      "Uploaded %d files in %.1fs (%.1f files/s)",
+                      filesToUpload,
+                      seconds,
+                      seconds > 0 ? filesToUpload / seconds : 0));
+        }
+        finishedPhase(Phase.UPLOAD, event.getTime());
+        break;
+      case BUILD_STARTED:
+        // gcloud reports the image build and the cloud build that runs it
+        if (phase != Phase.BUILD) {
+          startPhase(Phase.BUILD, event.getTime());
+        }
+        break;
+      case VERSION_UPDATED:
+        finishedPhase(Phase.VERSION_UPDATE, event.getTime());
+        break;
+      case VERSION_UPDATE_STARTED:
+        startPhase(Phase.VERSION_UPDATE, event.getTime());
+        break;
+      case TRAFFIC_MIGRATED:
+        finishedPhase(Phase.TRAFFIC_MIGRATION, event.getTime());
+        break;
+      case TRAFFIC_MIGRATION_STARTED:
+        startPhase(Phase.TRAFFIC_MIGRATION, event.getTime());
+        break;
+      case STEP_DONE:
+      case SERVICE_DEPLOYED:
+        finishPhase(event.getTime());
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** Logs the time spent in each phase, if any phase was recognized. */
+  synchronized void report() {
+    if (durations.isEmpty()) {
+      return;
+    }
+    log.info(
+        prefix
+            + "Deployment timings: "
+            + durations
+                .entrySet()
+                .stream()
+                .map(
+                    phaseDuration ->
+                        String.format(
+                            Locale.US,
+                            "%s %.1fs",
+                            phaseDuration.getKey().description,
+                            seconds(phaseDuration.getValue())))
+                .collect(Collectors.joining(", ")));
+  }
+
+  Map<Phase, Duration> getDurations() {
+    return durations;
+  }
+
+  private void startPhase(Phase newPhase, Instant time) {
+    finishPhase(time);
+    phase = newPhase;
+    phaseStart = time;
+  }
+
+  /** Ends {@code finished}, which started at the previous event if it isn't running. */
+  private void finishedPhase(Phase finished, Instant time) {
+    if (phase != finished) {
+      startPhase(finished, lastEvent != null ? lastEvent : time);
+    }
+    finishPhase(time);
+  }
+
+  private void finishPhase(Instant time) {
+    if (phase != null) {
+      durations.merge(phase, Duration.between(phaseStart, time), Duration::plus);
+      phase = null;
+    }
+  }
+
+  private static double seconds(Duration duration) {
+    return duration.toMillis() / 1000.0;
+  }
+}
@@ -21,7 +21,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 /** Stage and deploy queue.yaml to Google App Engine. */
-@Mojo(name = "deployQueue", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "deployQueue", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class DeployQueueMojo extends AbstractDeployMojo {
 
   private Deployer.Factory deployerFactory = new Deployer.Factory();
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Deploy the applications staged by appengine:stage in all modules of the build, and their configs,
+ * to Google App Engine in a single deployment. Run it after staging, like {@code mvn package
+ * appengine:stage appengine:deployReactor}.
+ */
+@Mojo(name = "deployReactor", aggregator = true, threadSafe = true)
+public class DeployReactorMojo extends AbstractDeployMojo {
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:deployReactor");
+      return;
+    }
+    ConfigBuilder configBuilder =
+        new ConfigBuilder(this, new ConfigProcessor(getAppEngineFactory().newConfigReader()));
+    new ReactorDeployer(this, configBuilder, ReactorStaging.forSession(getMavenSession()))
+        .deploy(getMavenSession().getProjects());
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+/**
+ * A module deployed by appengine:deployServices, with the deploy parameters it sets differently
+ * from the rest of the build. Parameters that are not set are taken from the goal configuration.
+ */
+public class DeployService {
+
+  /** The artifactId of the module that staged the service. */
+  private String module;
+
+  private String projectId;
+  private String version;
+  private String imageUrl;
+  private String bucket;
+  private Boolean promote;
+
+  public DeployService() {}
+
+  DeployService(String module) {
+    this.module = module;
+  }
+
+  public String getModule() {
+    return module;
+  }
+
+  public String getProjectId() {
+    return projectId;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public String getImageUrl() {
+    return imageUrl;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public Boolean getPromote() {
+    return promote;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import java.util.List;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Deploy the applications staged by appengine:stage in the modules of the build to Google App
+ * Engine as separate deployments running side by side. Use it for services that can't be deployed
+ * together by appengine:deployReactor, like services with their own projectId or imageUrl. Run it
+ * after staging, like {@code mvn package appengine:stage appengine:deployServices}.
+ */
+@Mojo(name = "deployServices", aggregator = true, threadSafe = true)
+public class DeployServicesMojo extends AbstractDeployMojo {
+
+  /**
+   * The services to deploy, by module artifactId, each with the deploy parameters it overrides:
+   * projectId, version, imageUrl, bucket and promote. Deploys every staged module if not set.
+   */
+  @Parameter private List<DeployService> services;
+
+  /** The maximum number of deployments running at the same time. */
+  @Parameter(defaultValue = "4", alias = "deploy.parallelism", property = "app.deploy.parallelism")
+  private int deployParallelism;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:deployServices");
+      return;
+    }
+    ConfigBuilder configBuilder =
+        new ConfigBuilder(this, new ConfigProcessor(getAppEngineFactory().newConfigReader()));
+    new ServicesDeployer(
+            this, configBuilder, ReactorStaging.forSession(getMavenSession()), deployParallelism)
+        .deploy(getMavenSession().getProjects(), services);
+  }
+}
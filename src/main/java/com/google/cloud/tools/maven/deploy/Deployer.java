@@ -19,6 +19,7 @@ package com.google.cloud.tools.maven.deploy;
 import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
 import com.google.cloud.tools.maven.stage.AppEngineWebXmlStager;
 import com.google.cloud.tools.maven.stage.AppYamlStager;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
 import com.google.cloud.tools.maven.stage.Stager;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -37,30 +38,43 @@ public interface Deployer {
                 + "\nRun 'mvn package appengine:deploy'");
       }
 
-      ConfigProcessor configProcessor =
-          new ConfigProcessor(deployMojo.getAppEngineFactory().newConfigReader());
-      ConfigBuilder configBuilder = new ConfigBuilder(deployMojo, configProcessor);
+      // only deployment needs the Cloud SDK, get it ready while staging
+      boolean appEngineWebXmlBased = deployMojo.isAppEngineWebXmlBased();
+      deployMojo.getAppEngineFactory().provisionCloudSdkInBackground(appEngineWebXmlBased);
 
-      if (deployMojo.isAppEngineWebXmlBased()) {
-        // deployments using appengine-web.xml
-        Stager stager = AppEngineWebXmlStager.newAppEngineWebXmlStager(deployMojo);
-        Path appengineDirectory =
-            deployMojo.getStagingDirectory().resolve("WEB-INF").resolve("appengine-generated");
-        return new AppDeployer(deployMojo, stager, configBuilder, appengineDirectory);
-      } else {
-        // deployments using app.yaml
-        Stager stager = AppYamlStager.newAppYamlStager(deployMojo);
-        Path appengineDirctory =
-            (deployMojo.getAppEngineDirectory() == null)
-                ? deployMojo
-                    .getMavenProject()
-                    .getBasedir()
-                    .toPath()
-                    .resolve("src")
-                    .resolve("main")
-                    .resolve("appengine")
-                : deployMojo.getAppEngineDirectory();
-        return new AppDeployer(deployMojo, stager, configBuilder, appengineDirctory);
+      try {
+        ConfigProcessor configProcessor =
+            new ConfigProcessor(deployMojo.getAppEngineFactory().newConfigReader());
+        ConfigBuilder configBuilder = new ConfigBuilder(deployMojo, configProcessor);
+        ReactorStaging reactorStaging = ReactorStaging.forSession(deployMojo.getMavenSession());
+
+        if (appEngineWebXmlBased) {
+          // deployments using appengine-web.xml
+          Stager stager = AppEngineWebXmlStager.newAppEngineWebXmlStager(deployMojo);
+          Path appengineDirectory =
+              deployMojo.getStagingDirectory().resolve("WEB-INF").resolve("appengine-generated");
+          return new AppDeployer(
+              deployMojo, stager, configBuilder, appengineDirectory, reactorStaging);
+        } else {
+          // deployments using app.yaml
+          Stager stager = AppYamlStager.newAppYamlStager(deployMojo);
+          Path appengineDirctory =
+              (deployMojo.getAppEngineDirectory() == null)
+                  ? deployMojo
+                      .getMavenProject()
+                      .getBasedir()
+                      .toPath()
+                      .resolve("src")
+                      .resolve("main")
+                      .resolve("appengine")
+                  : deployMojo.getAppEngineDirectory();
+          return new AppDeployer(
+              deployMojo, stager, configBuilder, appengineDirctory, reactorStaging);
+        }
+      } catch (RuntimeException ex) {
+        // the deployer that would have waited for provisioning is never created
+        deployMojo.getAppEngineFactory().awaitCloudSdkProvisioning();
+        throw ex;
       }
     }
   }
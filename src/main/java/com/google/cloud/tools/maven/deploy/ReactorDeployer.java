@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import com.google.cloud.tools.maven.stage.ReactorStaging.StagedApplication;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Deploys the applications staged in all modules of a build, and their project configuration, in a
+ * single gcloud invocation. gcloud then authenticates and uploads once for all services.
+ */
+class ReactorDeployer {
+
+  private final AbstractDeployMojo deployMojo;
+  private final ConfigBuilder configBuilder;
+  private final ReactorStaging reactorStaging;
+
+  ReactorDeployer(
+      AbstractDeployMojo deployMojo, ConfigBuilder configBuilder, ReactorStaging reactorStaging) {
+    this.deployMojo = deployMojo;
+    this.configBuilder = configBuilder;
+    this.reactorStaging = reactorStaging;
+  }
+
+  /** Deploys every staged module of {@code reactorProjects}, in reactor order. */
+  void deploy(List<MavenProject> reactorProjects) throws MojoExecutionException {
+    ImmutableList.Builder<Path> appYamls = ImmutableList.builder();
+    ImmutableList.Builder<Path> configYamls = ImmutableList.builder();
+    Map<String, MavenProject> configYamlOwners = new HashMap<>();
+
+    for (MavenProject project : reactorProjects) {
+      StagedApplication application = reactorStaging.get(project);
+      if (application == null) {
+        continue;
+      }
+      Path appYaml = application.getStagingDirectory().resolve("app.yaml");
+      if (!Files.exists(appYaml)) {
+        throw new MojoExecutionException(
+            "Failed to deploy reactor: could not find app.yaml of " + project.getArtifactId());
+      }
+      deployMojo.getLog().info("deployReactor: Preparing to deploy " + project.getArtifactId());
+      appYamls.add(appYaml);
+
+      for (String yamlName : AppDeployer.CONFIG_YAMLS) {
+        Path yaml = application.getConfigDirectory().resolve(yamlName);
+        if (!Files.exists(yaml)) {
+          continue;
+        }
+        // project configuration applies to the whole application, gcloud rejects duplicates
+        MavenProject owner = configYamlOwners.putIfAbsent(yamlName, project);
+        if (owner != null) {
+          throw new MojoExecutionException(
+              "Failed to deploy reactor: "
+                  + yamlName
+                  + " found in both "
+                  + owner.getArtifactId()
+                  + " and "
+                  + project.getArtifactId());
+        }
+        deployMojo
+            .getLog()
+            .info(
+                "deployReactor: Preparing to deploy "
+                    + yamlName
+                    + " of "
+                    + project.getArtifactId());
+        configYamls.add(yaml);
+      }
+    }
+
+    List<Path> deployables =
+        ImmutableList.<Path>builder().addAll(appYamls.build()).addAll(configYamls.build()).build();
+    if (deployables.isEmpty()) {
+      throw new MojoExecutionException(
+          "\nNo staged App Engine applications found in the build, did you stage them?"
+              + "\nRun 'mvn package appengine:stage appengine:deployReactor'");
+    }
+    AppDeployer.runDeployment(
+        deployMojo, configBuilder.buildDeployConfiguration(deployables), "Failed to deploy");
+  }
+}
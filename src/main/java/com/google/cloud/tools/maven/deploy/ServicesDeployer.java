@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import com.google.cloud.tools.maven.stage.ReactorStaging.StagedApplication;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Deploys the applications staged in the modules of a build as separate gcloud deployments, at most
+ * {@code parallelism} at a time. For services that can't be deployed together, like services of
+ * different projects or with their own images. Every deployment has its own gcloud process and log
+ * prefix, a failed deployment doesn't stop the others.
+ */
+class ServicesDeployer {
+
+  private final AbstractDeployMojo deployMojo;
+  private final ConfigBuilder configBuilder;
+  private final ReactorStaging reactorStaging;
+  private final int parallelism;
+
+  ServicesDeployer(
+      AbstractDeployMojo deployMojo,
+      ConfigBuilder configBuilder,
+      ReactorStaging reactorStaging,
+      int parallelism) {
+    this.deployMojo = deployMojo;
+    this.configBuilder = configBuilder;
+    this.reactorStaging = reactorStaging;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Deploys {@code services}, or every staged module of {@code reactorProjects} if no services are
+   * configured, and logs the staging and deployment time of each.
+   */
+  void deploy(List<MavenProject> reactorProjects, List<DeployService> services)
+      throws MojoExecutionException {
+    if (parallelism < 1) {
+      throw new MojoExecutionException(
+          "Invalid deployParallelism " + parallelism + ", expected at least 1");
+    }
+    Map<String, StagedApplication> stagedModules = new LinkedHashMap<>();
+    Map<String, MavenProject> stagedProjects = new HashMap<>();
+    for (MavenProject project : reactorProjects) {
+      StagedApplication application = reactorStaging.get(project);
+      if (application == null) {
+        continue;
+      }
+      // services name their module by artifactId, which must tell the modules apart
+      MavenProject other = stagedProjects.putIfAbsent(project.getArtifactId(), project);
+      if (other != null) {
+        throw new MojoExecutionException(
+            "Failed to deploy services: modules "
+                + other.getId()
+                + " and "
+                + project.getId()
+                + " have the same artifactId "
+                + project.getArtifactId());
+      }
+      stagedModules.put(project.getArtifactId(), application);
+    }
+    if (services == null || services.isEmpty()) {
+      services =
+          stagedModules.keySet().stream().map(DeployService::new).collect(Collectors.toList());
+    }
+    if (services.isEmpty()) {
+      throw new MojoExecutionException(
+          "\nNo staged App Engine applications found in the build, did you stage them?"
+              + "\nRun 'mvn package appengine:stage appengine:deployServices'");
+    }
+
+    // configuration errors fail the build before anything is deployed
+    List<String> modules = new ArrayList<>(services.size());
+    List<Callable<ServiceResult>> pipelines = new ArrayList<>(services.size());
+    for (DeployService service : services) {
+      StagedApplication application = stagedModules.get(service.getModule());
+      if (application == null) {
+        throw new MojoExecutionException(
+            "Failed to deploy services: module " + service.getModule() + " was not staged");
+      }
+      Path appYaml = application.getStagingDirectory().resolve("app.yaml");
+      if (!Files.exists(appYaml)) {
+        throw new MojoExecutionException(
+            "Failed to deploy services: could not find app.yaml of " + service.getModule());
+      }
+      DeployConfiguration config =
+          configBuilder.buildDeployConfiguration(ImmutableList.of(appYaml), service);
+      modules.add(service.getModule());
+      pipelines.add(() -> deploy(service.getModule(), application.getStagingTime(), config));
+    }
+
+    List<ServiceResult> results = runPipelines(modules, pipelines);
+    deployMojo.getLog().info(summary(results));
+
+    List<ServiceResult> failed =
+        results.stream().filter(result -> result.failure != null).collect(Collectors.toList());
+    if (!failed.isEmpty()) {
+      throw new MojoExecutionException(
+          "Failed to deploy services: "
+              + failed.stream().map(result -> result.module).collect(Collectors.joining(", ")),
+          failed.get(0).failure);
+    }
+  }
+
+  private ServiceResult deploy(String module, Duration stagingTime, DeployConfiguration config) {
+    DeployProgressReporter reporter =
+        new DeployProgressReporter(deployMojo.getLog(), "[" + module + "] ");
+    long start = System.nanoTime();
+    Exception failure = null;
+    try {
+      deployMojo
+          .getAppEngineFactory()
+          .deployment(new DeployOutputParser(reporter), "GCLOUD [" + module + "]: ")
+          .deploy(config);
+    } catch (AppEngineException | RuntimeException ex) {
+      deployMojo.getLog().error("[" + module + "] Deployment failed: " + ex.getMessage());
+      failure = ex;
+    } finally {
+      reporter.report();
+    }
+    return new ServiceResult(
+        module, stagingTime, Duration.ofNanos(System.nanoTime() - start), failure);
+  }
+
+  /** Runs {@code pipelines}, which deploy the module at the same index of {@code modules}. */
+  private List<ServiceResult> runPipelines(
+      List<String> modules, List<Callable<ServiceResult>> pipelines) throws MojoExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, pipelines.size()));
+    try {
+      List<Future<ServiceResult>> futures = pool.invokeAll(pipelines);
+      List<ServiceResult> results = new ArrayList<>(futures.size());
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          results.add(futures.get(i).get());
+        } catch (ExecutionException ex) {
+          // pipelines catch deployment failures, anything else stops the build
+          throw new MojoExecutionException(
+              "Failed to deploy service " + modules.get(i), ex.getCause());
+        }
+      }
+      return results;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while deploying services", ex);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Formats the staging and deployment times of all services as a table. */
+  @VisibleForTesting
+  static String summary(List<ServiceResult> results) {
+    int width = "service".length();
+    for (ServiceResult result : results) {
+      width = Math.max(width, result.module.length());
+    }
+    String row = "%n  %-" + width + "s  %8s  %8s  %s";
+    StringBuilder summary = new StringBuilder("Service deployment summary:");
+    summary.append(String.format(Locale.US, row, "service", "staging", "deploy", "result"));
+    for (ServiceResult result : results) {
+      summary.append(
+          String.format(
+              Locale.US,
+              row,
+              result.module,
+              format(result.stagingTime),
+              format(result.deployTime),
+              result.failure == null ? "OK" : "FAILED"));
+    }
+    return summary.toString();
+  }
+
+  private static String format(Duration duration) {
+    return duration == null ? "-" : String.format(Locale.US, "%.1fs", duration.toMillis() / 1000.0);
+  }
+
+  @VisibleForTesting
+  static class ServiceResult {
+    private final String module;
+    private final Duration stagingTime;
+    private final Duration deployTime;
+    private final Exception failure;
+
+    ServiceResult(String module, Duration stagingTime, Duration deployTime, Exception failure) {
+      this.module = module;
+      this.stagingTime = stagingTime;
+      this.deployTime = deployTime;
+      this.failure = failure;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.maven.run;
 
+import com.google.cloud.tools.maven.cloudsdk.DevServerLogRotation;
 import com.google.cloud.tools.maven.run.Runner.Factory;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -34,6 +35,33 @@ public class RunAsyncMojo extends AbstractRunMojo {
   )
   protected int startSuccessTimeout;
 
+  /**
+   * Size at which the Dev App Server output file in {@code target/dev-appserver-out} is rotated,
+   * like {@code 512KB} or {@code 100MB}. Set to 0 to never rotate.
+   */
+  @Parameter(
+    defaultValue = "100MB",
+    alias = "devserver.logMaxSize",
+    property = "app.devserver.logMaxSize"
+  )
+  protected String logMaxSize;
+
+  /** Number of rotated Dev App Server output files to keep. */
+  @Parameter(
+    defaultValue = "5",
+    alias = "devserver.logMaxFiles",
+    property = "app.devserver.logMaxFiles"
+  )
+  protected int logMaxFiles;
+
+  /** Compress rotated Dev App Server output files with gzip. */
+  @Parameter(
+    defaultValue = "false",
+    alias = "devserver.logCompress",
+    property = "app.devserver.logCompress"
+  )
+  protected boolean logCompress;
+
   private Runner.Factory factory = new Factory();
 
   @Override
@@ -42,6 +70,14 @@ public class RunAsyncMojo extends AbstractRunMojo {
       getLog().info("Skipping appengine:start");
       return;
     }
-    factory.newRunner(this).runAsync(startSuccessTimeout);
+    DevServerLogRotation logRotation;
+    try {
+      logRotation =
+          new DevServerLogRotation(
+              DevServerLogRotation.parseSize(logMaxSize), logMaxFiles, logCompress);
+    } catch (IllegalArgumentException ex) {
+      throw new MojoExecutionException(ex.getMessage(), ex);
+    }
+    factory.newRunner(this).runAsync(startSuccessTimeout, logRotation);
   }
 }
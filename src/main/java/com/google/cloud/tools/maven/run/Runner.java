@@ -19,6 +19,7 @@ package com.google.cloud.tools.maven.run;
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.RunConfiguration;
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
+import com.google.cloud.tools.maven.cloudsdk.DevServerLogRotation;
 import com.google.common.annotations.VisibleForTesting;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -65,15 +66,16 @@ public class Runner {
     }
   }
 
-  /** Run the dev appserver in async mode. */
-  public void runAsync(int startSuccessTimeout) throws MojoExecutionException {
+  /** Run the dev appserver in async mode, with its output file rotated by {@code logRotation}. */
+  public void runAsync(int startSuccessTimeout, DevServerLogRotation logRotation)
+      throws MojoExecutionException {
     runMojo
         .getLog()
         .info("Waiting " + startSuccessTimeout + " seconds for the Dev App Server to start.");
     try {
       runMojo
           .getAppEngineFactory()
-          .devServerRunAsync(startSuccessTimeout)
+          .devServerRunAsync(startSuccessTimeout, logRotation)
           .run(configBuilder.buildRunConfiguration(processServices(), processProjectId()));
     } catch (AppEngineException ex) {
       throw new RuntimeException(ex);
@@ -39,6 +39,36 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   )
   File stagingDirectory;
 
+  /**
+   * Skip staging when none of the staging inputs or parameters changed since the last successful
+   * stage into the same staging directory, and the staged files are unchanged. Changes to the Cloud
+   * SDK are not detected, stage again after updating it. Defaults to false.
+   */
+  @Parameter(
+    defaultValue = "false",
+    alias = "stage.upToDateCheck",
+    property = "app.stage.upToDateCheck"
+  )
+  private boolean upToDateCheck;
+
+  /**
+   * The number of threads used to copy files into the staging directory. Defaults to the number of
+   * available processors.
+   */
+  @Parameter(alias = "stage.parallelism", property = "app.stage.parallelism")
+  private Integer parallelism;
+
+  /**
+   * How files that are staged unchanged (currently WEB-INF/lib jars) are placed in the staging
+   * directory: {@code copy}, {@code hardlink} or {@code reflink-if-available}. Links fall back to
+   * copies when the source and staging directories are on different file systems or linking is not
+   * supported. When appcfg stages the application, it copies the jars first and they are linked
+   * afterwards: jars appcfg copied without their last modified time are read in full to compare
+   * them with their source, which costs extra IO.
+   */
+  @Parameter(defaultValue = "copy", alias = "stage.linkMode", property = "app.stage.linkMode")
+  private String linkMode;
+
   ///////////////////////////////////
   // Standard-only params
   ///////////////////////////////////
@@ -83,13 +113,27 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   private boolean enableJarSplitting;
 
   /**
-   * Files that match the list of comma separated SUFFIXES will be excluded from all jars.
+   * Files that match the list of comma separated SUFFIXES will be excluded from all jars. Entries
+   * containing {@code *} or {@code ?} are glob patterns instead, where {@code **} also matches
+   * across directories.
    *
    * <p>Applies to App Engine standard environment only.
    */
   @Parameter(alias = "stage.jarSplittingExcludes", property = "app.stage.jarSplittingExcludes")
   private String jarSplittingExcludes;
 
+  /**
+   * The maximum size, in megabytes, of the fragments jars are split into, at least 1. Defaults to
+   * 10.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(
+    alias = "stage.jarSplittingFragmentSize",
+    property = "app.stage.jarSplittingFragmentSize"
+  )
+  private Integer jarSplittingFragmentSize;
+
   /**
    * The character encoding to use when compiling JSPs.
    *
@@ -122,6 +166,27 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   @Parameter(alias = "stage.enableJarClasses", property = "app.stage.enableJarClasses")
   private boolean enableJarClasses;
 
+  /**
+   * Update the previous staging directory in place, copying only the files that changed since the
+   * last stage, instead of deleting and rebuilding it. Changes that need to be processed by the
+   * staging tool (JSPs, deployment descriptors, jarred or split libraries) still trigger a full
+   * stage.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(alias = "stage.incremental", property = "app.stage.incremental")
+  private boolean incremental;
+
+  /**
+   * Stage simple applications inside the Maven JVM instead of forking appcfg. Applications that
+   * need JSP compilation, quickstart, jar processing or appengine-web.xml features that cannot be
+   * translated in process are still staged with appcfg.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(alias = "stage.inProcess", property = "app.stage.inProcess")
+  private boolean inProcess;
+
   // always disable update check and do not expose this as a parameter
   private boolean disableUpdateCheck = true;
 
@@ -205,6 +270,10 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
     return jarSplittingExcludes;
   }
 
+  public Integer getJarSplittingFragmentSize() {
+    return jarSplittingFragmentSize;
+  }
+
   public String getCompileEncoding() {
     return compileEncoding;
   }
@@ -221,6 +290,26 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
     return enableJarClasses;
   }
 
+  public boolean isInProcess() {
+    return inProcess;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public boolean isUpToDateCheck() {
+    return upToDateCheck;
+  }
+
+  public String getLinkMode() {
+    return linkMode;
+  }
+
+  public int getParallelism() {
+    return parallelism == null ? Runtime.getRuntime().availableProcessors() : parallelism;
+  }
+
   public boolean isDisableUpdateCheck() {
     return disableUpdateCheck;
   }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.maven.cloudsdk.SessionCache;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * The settings of an appengine-web.xml that the plugin uses. The file is read once with a streaming
+ * parser, and the result is shared by all goals and modules of the build until the file changes.
+ */
+public class AppEngineDescriptor {
+
+  private final List<String> elementNames;
+  private final String runtime;
+  private final boolean vm;
+  private final Boolean threadsafe;
+  private final String service;
+  private final String instanceClass;
+  private final String scaling;
+  private final List<String> staticFileIncludes;
+  private final Map<String, String> envVariables;
+
+  private AppEngineDescriptor(Builder builder) {
+    this.elementNames = builder.elementNames.build();
+    this.runtime = builder.runtime;
+    this.vm = builder.vm;
+    this.threadsafe = builder.threadsafe;
+    this.service = builder.service != null ? builder.service : builder.module;
+    this.instanceClass = builder.instanceClass;
+    this.scaling = builder.scaling;
+    this.staticFileIncludes = builder.staticFileIncludes.build();
+    this.envVariables = Collections.unmodifiableMap(builder.envVariables);
+  }
+
+  /**
+   * Returns the descriptor of {@code appengineWebXml}. The descriptor is cached in {@code session},
+   * if there is one, by path, last modified time and size of the file.
+   */
+  public static AppEngineDescriptor read(Path appengineWebXml, MavenSession session)
+      throws IOException {
+    SessionCache cache = SessionCache.forSession(session);
+    if (cache == null) {
+      return parse(appengineWebXml);
+    }
+    BasicFileAttributes attributes =
+        Files.readAttributes(appengineWebXml, BasicFileAttributes.class);
+    String key =
+        "appengineWebXml:"
+            + appengineWebXml.toAbsolutePath().normalize()
+            + ":"
+            + attributes.lastModifiedTime().toMillis()
+            + ":"
+            + attributes.size();
+    try {
+      return cache.get(
+          key,
+          () -> {
+            try {
+              return parse(appengineWebXml);
+            } catch (IOException ex) {
+              throw new UncheckedIOException(ex);
+            }
+          });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  @VisibleForTesting
+  static AppEngineDescriptor parse(Path appengineWebXml) throws IOException {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    try (InputStream in = Files.newInputStream(appengineWebXml)) {
+      XMLStreamReader reader = factory.createXMLStreamReader(in);
+      try {
+        reader.nextTag();
+        Builder builder = new Builder();
+        while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+          builder.readElement(reader);
+        }
+        return new AppEngineDescriptor(builder);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException("Failed to parse " + appengineWebXml, ex);
+    }
+  }
+
+  /** The names of the top level elements, in document order. */
+  public List<String> getElementNames() {
+    return elementNames;
+  }
+
+  public String getRuntime() {
+    return runtime;
+  }
+
+  /** Whether this is a flexible environment compatible ({@code <vm>true</vm>}) application. */
+  public boolean isVm() {
+    return vm;
+  }
+
+  public Boolean getThreadsafe() {
+    return threadsafe;
+  }
+
+  /** The service, or the module of older descriptors. */
+  public String getService() {
+    return service;
+  }
+
+  public String getInstanceClass() {
+    return instanceClass;
+  }
+
+  /** The scaling type, {@code automatic}, {@code basic} or {@code manual}, if configured. */
+  public String getScaling() {
+    return scaling;
+  }
+
+  /** The {@code path} patterns of the static file includes. */
+  public List<String> getStaticFileIncludes() {
+    return staticFileIncludes;
+  }
+
+  /** The environment variables, in document order. */
+  public Map<String, String> getEnvVariables() {
+    return envVariables;
+  }
+
+  private static class Builder {
+
+    private final ImmutableList.Builder<String> elementNames = ImmutableList.builder();
+    private String runtime;
+    private boolean vm;
+    private Boolean threadsafe;
+    private String service;
+    private String module;
+    private String instanceClass;
+    private String scaling;
+    private final ImmutableList.Builder<String> staticFileIncludes = ImmutableList.builder();
+    private final Map<String, String> envVariables = new LinkedHashMap<>();
+
+    /** Reads a top level element, the reader is on its start and left on its end. */
+    private void readElement(XMLStreamReader reader) throws XMLStreamException {
+      String name = reader.getLocalName();
+      elementNames.add(name);
+      switch (name) {
+        case "runtime":
+          runtime = reader.getElementText().trim();
+          break;
+        case "vm":
+          vm = "true".equals(reader.getElementText().trim());
+          break;
+        case "threadsafe":
+          threadsafe = Boolean.parseBoolean(reader.getElementText().trim());
+          break;
+        case "service":
+          service = reader.getElementText().trim();
+          break;
+        case "module":
+          module = reader.getElementText().trim();
+          break;
+        case "instance-class":
+          instanceClass = reader.getElementText().trim();
+          break;
+        case "automatic-scaling":
+        case "basic-scaling":
+        case "manual-scaling":
+          scaling = name.substring(0, name.indexOf('-'));
+          skipChildren(reader);
+          break;
+        case "static-files":
+          while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+            if ("include".equals(reader.getLocalName())) {
+              String path = reader.getAttributeValue(null, "path");
+              if (path != null) {
+                staticFileIncludes.add(path);
+              }
+            }
+            skipChildren(reader);
+          }
+          break;
+        case "env-variables":
+          while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+            envVariables.put(
+                nullToEmpty(reader.getAttributeValue(null, "name")),
+                nullToEmpty(reader.getAttributeValue(null, "value")));
+            skipChildren(reader);
+          }
+          break;
+        default:
+          skipChildren(reader);
+      }
+    }
+
+    /** Moves the reader from the start of an element to its end. */
+    private static void skipChildren(XMLStreamReader reader) throws XMLStreamException {
+      for (int depth = 1; depth > 0; ) {
+        int event = reader.next();
+        if (event == XMLStreamReader.START_ELEMENT) {
+          depth++;
+        } else if (event == XMLStreamReader.END_ELEMENT) {
+          depth--;
+        }
+      }
+    }
+
+    private static String nullToEmpty(String value) {
+      return value == null ? "" : value;
+    }
+  }
+}
@@ -21,16 +21,9 @@ import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStag
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
 public class AppEngineWebXmlStager implements Stager {
 
@@ -54,6 +47,54 @@ public class AppEngineWebXmlStager implements Stager {
     stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
     stageMojo.getLog().info("Detected App Engine appengine-web.xml based application.");
 
+    // jars are split by the plugin rather than by appcfg
+    JarSplitter jarSplitter = null;
+    if (Boolean.TRUE.equals(config.getEnableJarSplitting())) {
+      jarSplitter =
+          JarSplitter.fromParameters(
+              stageMojo.getJarSplittingFragmentSize(),
+              config.getJarSplittingExcludes(),
+              stageMojo.getParallelism());
+    }
+
+    StagingFingerprint fingerprint = null;
+    if (stageMojo.isUpToDateCheck()) {
+      try {
+        fingerprint =
+            StagingFingerprint.of(config)
+                .putValue("jarSplitter", jarSplitter)
+                .putValue("inProcess", stageMojo.isInProcess())
+                .putValue("linkMode", stageMojo.getLinkMode())
+                .putValue("incremental", stageMojo.isIncremental());
+        if (fingerprint.isUpToDate()) {
+          stageMojo.getLog().info("Staging directory is up to date, skipping staging.");
+          return;
+        }
+        fingerprint.invalidate();
+      } catch (IOException ex) {
+        throw new MojoExecutionException(
+            "Unable to check if the staging directory is up to date.", ex);
+      }
+    }
+
+    StagingCopier copier =
+        new StagingCopier(
+            stageMojo.getParallelism(), LinkMode.fromConfigValue(stageMojo.getLinkMode()));
+
+    IncrementalStaging incrementalStaging = null;
+    if (stageMojo.isIncremental()) {
+      incrementalStaging = new IncrementalStaging(config, copier, jarSplitter, stageMojo.getLog());
+      try {
+        if (incrementalStaging.update()) {
+          recordFingerprint(fingerprint);
+          return;
+        }
+        incrementalStaging.invalidate();
+      } catch (IOException ex) {
+        stageMojo.getLog().warn("Incremental staging failed, staging the whole application.", ex);
+      }
+    }
+
     // delete staging directory if it exists
     if (Files.exists(stagingDirectory)) {
       stageMojo.getLog().info("Deleting the staging directory: " + stagingDirectory);
@@ -67,10 +108,113 @@ public class AppEngineWebXmlStager implements Stager {
       throw new MojoExecutionException("Unable to create staging directory");
     }
 
+    if (!stageInProcess(config, copier)) {
+      try {
+        stageMojo
+            .getAppEngineFactory()
+            .appengineWebXmlStaging()
+            .stageStandard(jarSplitter == null ? config : withoutJarSplitting(config));
+      } catch (AppEngineException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    if (jarSplitter != null) {
+      try {
+        int processed =
+            jarSplitter.processLibraries(
+                stagingDirectory.resolve("WEB-INF").resolve("lib"), stageMojo.getLog());
+        stageMojo.getLog().info("Split or filtered " + processed + " jar(s).");
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to split jars.", ex);
+      }
+    }
+
+    try {
+      int linked = copier.linkUnchangedLibraries(config.getSourceDirectory(), stagingDirectory);
+      if (linked > 0) {
+        stageMojo
+            .getLog()
+            .info("Linked " + linked + " unchanged jar(s) into the staging directory.");
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Unable to link libraries into the staging directory.", ex);
+    }
+
+    if (incrementalStaging != null) {
+      try {
+        incrementalStaging.recordFullStage();
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to write the staging manifest.", ex);
+      }
+    }
+    recordFingerprint(fingerprint);
+  }
+
+  /** Returns a copy of {@code config} that leaves jar splitting to {@link JarSplitter}. */
+  private static AppEngineWebXmlProjectStageConfiguration withoutJarSplitting(
+      AppEngineWebXmlProjectStageConfiguration config) {
+    return AppEngineWebXmlProjectStageConfiguration.builder(
+            config.getSourceDirectory(), config.getStagingDirectory())
+        .compileEncoding(config.getCompileEncoding())
+        .deleteJsps(config.getDeleteJsps())
+        .disableJarJsps(config.getDisableJarJsps())
+        .disableUpdateCheck(config.getDisableUpdateCheck())
+        .dockerfile(config.getDockerfile())
+        .enableJarClasses(config.getEnableJarClasses())
+        .enableJarSplitting(false)
+        .enableQuickstart(config.getEnableQuickstart())
+        .runtime(config.getRuntime())
+        .build();
+  }
+
+  /** Returns {@code true} if the application was staged without appcfg. */
+  private boolean stageInProcess(
+      AppEngineWebXmlProjectStageConfiguration config, StagingCopier copier)
+      throws MojoExecutionException {
+    if (!stageMojo.isInProcess()) {
+      return false;
+    }
+    try {
+      InProcessStaging inProcessStaging =
+          new InProcessStaging(
+              config,
+              readDescriptor(
+                  config.getSourceDirectory().resolve("WEB-INF").resolve("appengine-web.xml"),
+                  stageMojo.getMavenSession()),
+              copier);
+      String unsupportedFeature = inProcessStaging.findUnsupportedFeature();
+      if (unsupportedFeature != null) {
+        stageMojo
+            .getLog()
+            .info("Staging with appcfg, in-process staging does not support " + unsupportedFeature);
+        return false;
+      }
+      stageMojo.getLog().info("Staging the application in process.");
+      inProcessStaging.stage();
+      return true;
+    } catch (IOException ex) {
+      throw new MojoExecutionException("In-process staging failed.", ex);
+    }
+  }
+
+  private static AppEngineDescriptor readDescriptor(Path appengineWebXml, MavenSession session)
+      throws MojoExecutionException {
     try {
-      stageMojo.getAppEngineFactory().appengineWebXmlStaging().stageStandard(config);
-    } catch (AppEngineException ex) {
-      throw new RuntimeException(ex);
+      return AppEngineDescriptor.read(appengineWebXml, session);
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Failed to parse appengine-web.xml", ex);
+    }
+  }
+
+  private static void recordFingerprint(StagingFingerprint fingerprint)
+      throws MojoExecutionException {
+    if (fingerprint != null) {
+      try {
+        fingerprint.record();
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to record the staging fingerprint.", ex);
+      }
     }
   }
 
@@ -114,27 +258,11 @@ public class AppEngineWebXmlStager implements Stager {
 
     String processRuntime() throws MojoExecutionException {
       // force runtime to 'java' for compat projects using Java version >1.7
-      Path appengineWebXml = stageMojo.getAppEngineWebXml();
-      if (Float.parseFloat(stageMojo.getCompileTargetVersion()) > 1.7f && isVm(appengineWebXml)) {
+      if (Float.parseFloat(stageMojo.getCompileTargetVersion()) > 1.7f
+          && readDescriptor(stageMojo.getAppEngineWebXml(), stageMojo.getMavenSession()).isVm()) {
         return "java";
       }
       return null;
     }
-
-    private boolean isVm(Path appengineWebXml) throws MojoExecutionException {
-      try {
-        Document document =
-            DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(appengineWebXml.toFile());
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        String expression = "/appengine-web-app/vm/text()='true'";
-        return (Boolean) xpath.evaluate(expression, document, XPathConstants.BOOLEAN);
-      } catch (XPathExpressionException ex) {
-        throw new MojoExecutionException("XPath evaluation failed on appengine-web.xml", ex);
-      } catch (SAXException | IOException | ParserConfigurationException ex) {
-        throw new MojoExecutionException("Failed to parse appengine-web.xml", ex);
-      }
-    }
   }
 }
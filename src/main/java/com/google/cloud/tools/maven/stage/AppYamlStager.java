@@ -21,6 +21,7 @@ import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfigu
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class AppYamlStager implements Stager {
@@ -45,6 +46,21 @@ public class AppYamlStager implements Stager {
     stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
     stageMojo.getLog().info("Detected App Engine app.yaml based application.");
 
+    StagingFingerprint fingerprint = null;
+    if (stageMojo.isUpToDateCheck()) {
+      try {
+        fingerprint = StagingFingerprint.of(config).putValue("linkMode", stageMojo.getLinkMode());
+        if (fingerprint.isUpToDate()) {
+          stageMojo.getLog().info("Staging directory is up to date, skipping staging.");
+          return;
+        }
+        fingerprint.invalidate();
+      } catch (IOException ex) {
+        throw new MojoExecutionException(
+            "Unable to check if the staging directory is up to date.", ex);
+      }
+    }
+
     if (!Files.exists(stagingDirectory)) {
       try {
         Files.createDirectories(stagingDirectory);
@@ -53,11 +69,51 @@ public class AppYamlStager implements Stager {
       }
     }
 
+    AppYamlProjectStageConfiguration coreConfig = copyExtraFilesDirectories(config);
     try {
-      stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(config);
+      stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(coreConfig);
     } catch (AppEngineException ex) {
       throw new RuntimeException(ex);
     }
+
+    if (fingerprint != null) {
+      try {
+        fingerprint.record();
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to record the staging fingerprint.", ex);
+      }
+    }
+  }
+
+  /**
+   * Copies the extra files directories with the parallel staging copier and returns the
+   * configuration the core library should stage the rest of the application with.
+   */
+  private AppYamlProjectStageConfiguration copyExtraFilesDirectories(
+      AppYamlProjectStageConfiguration config) throws MojoExecutionException {
+    List<Path> extraFilesDirectories = config.getExtraFilesDirectory();
+    if (extraFilesDirectories == null || extraFilesDirectories.isEmpty()) {
+      return config;
+    }
+    StagingCopier copier =
+        new StagingCopier(
+            stageMojo.getParallelism(), LinkMode.fromConfigValue(stageMojo.getLinkMode()));
+    for (Path extraFilesDirectory : extraFilesDirectories) {
+      if (!Files.isDirectory(extraFilesDirectory)) {
+        throw new MojoExecutionException(
+            "Extra files location is not a directory. Location: " + extraFilesDirectory);
+      }
+      try {
+        copier.copyDirectory(extraFilesDirectory, config.getStagingDirectory());
+      } catch (IOException ex) {
+        throw new MojoExecutionException(
+            "Unable to copy extra files directory: " + extraFilesDirectory, ex);
+      }
+    }
+    return AppYamlProjectStageConfiguration.builder(
+            config.getAppEngineDirectory(), config.getArtifact(), config.getStagingDirectory())
+        .dockerDirectory(config.getDockerDirectory())
+        .build();
   }
 
   static class ConfigBuilder {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Stages simple appengine-web.xml based applications inside the Maven JVM instead of forking
+ * appcfg: the exploded WAR is copied, static files are mirrored under {@code __static__} and
+ * app.yaml is generated from appengine-web.xml. Jar splitting is done afterwards by the caller with
+ * {@link JarSplitter}, as for appcfg staged applications.
+ *
+ * <p>Only a small, well understood subset of applications is supported. Anything that appcfg
+ * transforms or translates beyond that (JSPs, quickstart, legacy xml configuration files, security
+ * constraints, most appengine-web.xml elements) is reported by {@link #findUnsupportedFeature} so
+ * the caller can fall back to appcfg.
+ */
+class InProcessStaging {
+
+  private static final String APP_YAML = "app.yaml";
+  private static final String STATIC = "__static__";
+
+  /**
+   * appengine-web.xml elements that {@link #generateAppYaml} translates the same way as appcfg.
+   * {@code application} and {@code version} are left to appcfg, which copies them to app.yaml.
+   */
+  private static final Set<String> SUPPORTED_ELEMENTS =
+      ImmutableSet.of(
+          "runtime", "service", "module", "threadsafe", "instance-class", "env-variables");
+
+  /** Legacy configuration files that appcfg converts to yaml. */
+  private static final List<String> CONVERTED_XML_FILES =
+      ImmutableList.of("cron.xml", "dispatch.xml", "dos.xml", "queue.xml", "datastore-indexes.xml");
+
+  private final AppEngineWebXmlProjectStageConfiguration config;
+  private final AppEngineDescriptor descriptor;
+  private final StagingCopier copier;
+
+  InProcessStaging(
+      AppEngineWebXmlProjectStageConfiguration config,
+      AppEngineDescriptor descriptor,
+      StagingCopier copier) {
+    this.config = config;
+    this.descriptor = descriptor;
+    this.copier = copier;
+  }
+
+  /**
+   * Returns a description of the first feature that requires appcfg, or {@code null} if the
+   * application can be staged in process.
+   */
+  String findUnsupportedFeature() throws IOException {
+    if (Boolean.TRUE.equals(config.getEnableQuickstart())) {
+      return "enableQuickstart";
+    }
+    if (Boolean.TRUE.equals(config.getEnableJarClasses())) {
+      return "enableJarClasses";
+    }
+    if (config.getDockerfile() != null || config.getRuntime() != null) {
+      return "flexible environment compatible staging";
+    }
+
+    Path webInf = config.getSourceDirectory().resolve("WEB-INF");
+    for (String xmlFile : CONVERTED_XML_FILES) {
+      if (Files.exists(webInf.resolve(xmlFile))) {
+        return xmlFile;
+      }
+    }
+    if (containsJsps()) {
+      return "JSP compilation";
+    }
+
+    for (String elementName : descriptor.getElementNames()) {
+      if (!SUPPORTED_ELEMENTS.contains(elementName)) {
+        return "<" + elementName + "> in appengine-web.xml";
+      }
+    }
+    if (!"java8".equals(descriptor.getRuntime())) {
+      return "a runtime other than java8";
+    }
+    if (descriptor.getThreadsafe() == null) {
+      return "missing <threadsafe> in appengine-web.xml";
+    }
+
+    Path webXml = webInf.resolve("web.xml");
+    if (Files.exists(webXml)
+        && parse(webXml).getElementsByTagName("security-constraint").getLength() > 0) {
+      return "security constraints in web.xml";
+    }
+    return null;
+  }
+
+  /** Stages the application, the staging directory must exist and be empty. */
+  void stage() throws IOException {
+    Path source = config.getSourceDirectory();
+    Path staging = config.getStagingDirectory();
+
+    copier.copyDirectory(source, staging);
+
+    // static files are served by App Engine from a separate copy of the public files
+    Map<Path, Path> staticFiles = new LinkedHashMap<>();
+    try (Stream<Path> files = Files.walk(source)) {
+      for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        String relativePath = StagingManifest.toRelativePath(source, file);
+        if (!relativePath.startsWith("WEB-INF/") && !relativePath.startsWith("META-INF/")) {
+          staticFiles.put(file, staging.resolve(STATIC).resolve(relativePath));
+        }
+      }
+    }
+    copier.copy(staticFiles);
+
+    byte[] appYaml = generateAppYaml(descriptor).getBytes(StandardCharsets.UTF_8);
+    Path generated = staging.resolve("WEB-INF").resolve("appengine-generated");
+    Files.createDirectories(generated);
+    Files.write(generated.resolve(APP_YAML), appYaml);
+    Files.write(staging.resolve(APP_YAML), appYaml);
+  }
+
+  /**
+   * Generates app.yaml as appcfg does for the supported elements, including its defaults of warmup
+   * requests and precompilation being enabled.
+   */
+  @VisibleForTesting
+  static String generateAppYaml(AppEngineDescriptor descriptor) {
+    StringBuilder yaml = new StringBuilder();
+    yaml.append("runtime: java8\n");
+    String service = descriptor.getService();
+    if (service != null) {
+      yaml.append("service: ").append(quote(service)).append('\n');
+    }
+    String instanceClass = descriptor.getInstanceClass();
+    if (instanceClass != null) {
+      yaml.append("instance_class: ").append(instanceClass).append('\n');
+    }
+    yaml.append("inbound_services:\n").append("- warmup\n");
+    yaml.append("derived_file_type:\n").append("- java_precompiled\n");
+    yaml.append("threadsafe: ")
+        .append(Boolean.TRUE.equals(descriptor.getThreadsafe()) ? "True" : "False")
+        .append('\n');
+
+    if (!descriptor.getEnvVariables().isEmpty()) {
+      yaml.append("env_variables:\n");
+      for (Map.Entry<String, String> envVariable : descriptor.getEnvVariables().entrySet()) {
+        yaml.append("  ")
+            .append(quote(envVariable.getKey()))
+            .append(": ")
+            .append(quote(envVariable.getValue()))
+            .append('\n');
+      }
+    }
+    yaml.append("api_version: 'user_defined'\n");
+
+    yaml.append("handlers:\n")
+        .append("- url: (/.*)\n")
+        .append("  static_files: " + STATIC + "\\1\n")
+        .append("  upload: " + STATIC + "/.*\n")
+        .append("  require_matching_file: True\n")
+        .append("  login: optional\n")
+        .append("  secure: optional\n")
+        .append("- url: /.*\n")
+        .append("  script: unused\n")
+        .append("  login: optional\n")
+        .append("  secure: optional\n");
+    return yaml.toString();
+  }
+
+  private boolean containsJsps() throws IOException {
+    try (Stream<Path> files = Files.walk(config.getSourceDirectory())) {
+      return files
+          .map(file -> file.getFileName().toString().toLowerCase(Locale.US))
+          .anyMatch(
+              name ->
+                  name.endsWith(".jsp")
+                      || name.endsWith(".jspx")
+                      || name.endsWith(".tag")
+                      || name.endsWith(".tagx"));
+    }
+  }
+
+  private static Document parse(Path xml) throws IOException {
+    try {
+      return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xml.toFile());
+    } catch (SAXException | ParserConfigurationException ex) {
+      throw new IOException("Failed to parse " + xml, ex);
+    }
+  }
+
+  /** Single quotes a yaml scalar. */
+  private static String quote(String value) {
+    return "'" + value.replace("'", "''") + "'";
+  }
+}
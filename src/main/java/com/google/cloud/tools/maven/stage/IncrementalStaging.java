@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Brings an existing appengine-web.xml based staging directory up to date by applying only the
+ * source entries that changed since the last stage. Entries that appcfg transforms while staging
+ * (deployment descriptors, JSPs, jarred classes, split jars and the static file set) cannot be
+ * patched in place, so any change to them asks for a full stage instead.
+ */
+class IncrementalStaging {
+
+  private static final String WEB_INF = "WEB-INF/";
+  private static final String CLASSES = WEB_INF + "classes/";
+  private static final String LIB = WEB_INF + "lib/";
+  private static final String STATIC = "__static__/";
+
+  private final AppEngineWebXmlProjectStageConfiguration config;
+  private final StagingCopier copier;
+  private final JarSplitter jarSplitter;
+  private final Log log;
+  private final Path manifestFile;
+
+  private StagingManifest current;
+
+  /**
+   * Creates an incremental stager.
+   *
+   * @param jarSplitter the splitter that processes WEB-INF/lib, or {@code null} if jar splitting is
+   *     disabled
+   */
+  IncrementalStaging(
+      AppEngineWebXmlProjectStageConfiguration config,
+      StagingCopier copier,
+      JarSplitter jarSplitter,
+      Log log) {
+    this.config = config;
+    this.copier = copier;
+    this.jarSplitter = jarSplitter;
+    this.log = log;
+    this.manifestFile = StagingManifest.manifestFileFor(config.getStagingDirectory());
+  }
+
+  /**
+   * Tries to update the staging directory in place.
+   *
+   * @return {@code true} if the staging directory is now up to date, {@code false} if a full stage
+   *     is required
+   */
+  boolean update() throws IOException {
+    StagingManifest previous = StagingManifest.read(manifestFile);
+    current = StagingManifest.scan(config.getSourceDirectory(), configurationKey(), previous);
+
+    if (previous == null || !Files.isDirectory(config.getStagingDirectory())) {
+      log.info("No previous incremental staging state found, staging the whole application.");
+      return false;
+    }
+    if (!previous.getConfiguration().equals(current.getConfiguration())) {
+      log.info("Staging configuration changed, staging the whole application.");
+      return false;
+    }
+
+    StagingManifest.Delta delta = current.diff(previous);
+    String blocker = findFullStageReason(delta);
+    if (blocker != null) {
+      log.info("Change to " + blocker + " requires a full stage.");
+      return false;
+    }
+
+    // a failure half way through leaves no manifest behind, so the next run does a full stage
+    Files.deleteIfExists(manifestFile);
+    apply(delta);
+    current.write(manifestFile);
+    log.info(
+        "Incrementally staged "
+            + (delta.getAdded().size() + delta.getChanged().size())
+            + " updated and "
+            + delta.getRemoved().size()
+            + " removed file(s).");
+    return true;
+  }
+
+  /** Records the current source state after a full stage has completed. */
+  void recordFullStage() throws IOException {
+    if (current == null) {
+      current =
+          StagingManifest.scan(
+              config.getSourceDirectory(), configurationKey(), StagingManifest.read(manifestFile));
+    }
+    current.write(manifestFile);
+  }
+
+  /** Forgets the recorded state, forcing the next incremental stage to be a full one. */
+  void invalidate() throws IOException {
+    Files.deleteIfExists(manifestFile);
+  }
+
+  private void apply(StagingManifest.Delta delta) throws IOException {
+    Path source = config.getSourceDirectory();
+    Path staging = config.getStagingDirectory();
+    for (String path : delta.getRemoved()) {
+      Files.deleteIfExists(staging.resolve(path));
+    }
+    Map<Path, Path> copies = new LinkedHashMap<>();
+    for (String path : delta.getAdded()) {
+      copies.put(source.resolve(path), staging.resolve(path));
+    }
+    for (String path : delta.getChanged()) {
+      copies.put(source.resolve(path), staging.resolve(path));
+    }
+    copier.copy(copies);
+    for (String path : delta.getChanged()) {
+      // appcfg keeps a second copy of static files for the static file handlers
+      Path staticCopy = staging.resolve(STATIC + path);
+      if (!path.startsWith(WEB_INF) && Files.exists(staticCopy)) {
+        StagingCopier.copyFile(source.resolve(path), staticCopy);
+      }
+    }
+  }
+
+  /** Returns the first entry that cannot be patched in place, or {@code null} if all can. */
+  @VisibleForTesting
+  String findFullStageReason(StagingManifest.Delta delta) {
+    if (!delta.isEmpty() && Boolean.TRUE.equals(config.getEnableQuickstart())) {
+      // quickstart scans every class for servlet annotations
+      return "a quickstart enabled application";
+    }
+    for (String path : delta.getAdded()) {
+      if (requiresFullStage(path) || !path.startsWith(WEB_INF)) {
+        return path;
+      }
+    }
+    for (String path : delta.getRemoved()) {
+      if (requiresFullStage(path) || !path.startsWith(WEB_INF)) {
+        return path;
+      }
+    }
+    for (String path : delta.getChanged()) {
+      if (requiresFullStage(path)) {
+        return path;
+      }
+    }
+    return null;
+  }
+
+  private boolean requiresFullStage(String path) {
+    String lowerCasePath = path.toLowerCase(Locale.US);
+    if (Arrays.asList(".jsp", ".jspx", ".tag", ".tagx")
+        .stream()
+        .anyMatch(lowerCasePath::endsWith)) {
+      return true;
+    }
+    if (path.startsWith(CLASSES)) {
+      return Boolean.TRUE.equals(config.getEnableJarClasses());
+    }
+    if (path.startsWith(LIB)) {
+      return jarSplitter != null;
+    }
+    // deployment descriptors and the legacy xml configuration files
+    return path.startsWith(WEB_INF);
+  }
+
+  /** A key that changes whenever a staging parameter that affects the output changes. */
+  @VisibleForTesting
+  String configurationKey() throws IOException {
+    Path dockerfile = config.getDockerfile();
+    String dockerfileState =
+        dockerfile != null && Files.exists(dockerfile)
+            ? dockerfile + "@" + Files.getLastModifiedTime(dockerfile).toMillis()
+            : String.valueOf(dockerfile);
+    return String.join(
+        "|",
+        String.valueOf(config.getSourceDirectory()),
+        dockerfileState,
+        String.valueOf(config.getEnableQuickstart()),
+        String.valueOf(jarSplitter),
+        String.valueOf(config.getCompileEncoding()),
+        String.valueOf(config.getDeleteJsps()),
+        String.valueOf(config.getEnableJarClasses()),
+        String.valueOf(config.getDisableJarJsps()),
+        String.valueOf(config.getRuntime()));
+  }
+}
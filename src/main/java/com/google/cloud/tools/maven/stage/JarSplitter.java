@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Splits large jars into fragments and removes excluded entries from jars, the plugin side
+ * equivalent of appcfg's {@code --enable_jar_splitting} and {@code --jar_splitting_excludes}.
+ *
+ * <p>Entries are copied in their compressed form straight from the source jar's central directory
+ * into the fragments, nothing is extracted or recompressed. Fragments are planned up front from the
+ * compressed entry sizes, so all fragments of all jars can be written in parallel.
+ */
+class JarSplitter {
+
+  /** The fragment size appcfg uses. */
+  static final int DEFAULT_FRAGMENT_SIZE_MB = 10;
+
+  // local file header and central directory record, without the name and extra field
+  private static final long ENTRY_OVERHEAD = 30 + 46;
+  private static final long END_OF_CENTRAL_DIRECTORY = 22;
+
+  private final long fragmentSize;
+  private final List<String> excludes;
+  private final List<Pattern> excludePatterns;
+  private final int parallelism;
+
+  /**
+   * Creates a splitter.
+   *
+   * @param fragmentSize the maximum size in bytes of a fragment
+   * @param excludes entry name suffixes (like {@code .java}) or glob patterns (like {@code
+   *     org/example/**}) of entries to remove from all jars
+   * @param parallelism the number of fragments written at the same time
+   */
+  JarSplitter(long fragmentSize, List<String> excludes, int parallelism) {
+    this.fragmentSize = fragmentSize;
+    this.excludes = Collections.unmodifiableList(new ArrayList<>(excludes));
+    this.excludePatterns = new ArrayList<>();
+    for (String exclude : excludes) {
+      excludePatterns.add(toPattern(exclude));
+    }
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /** Creates a splitter from the {@code stage.jarSplitting*} parameters. */
+  static JarSplitter fromParameters(
+      Integer fragmentSizeMb, String jarSplittingExcludes, int parallelism)
+      throws MojoExecutionException {
+    if (fragmentSizeMb != null && fragmentSizeMb < 1) {
+      throw new MojoExecutionException(
+          "Invalid jarSplittingFragmentSize " + fragmentSizeMb + ", expected at least 1");
+    }
+    long fragmentSize =
+        (fragmentSizeMb == null ? DEFAULT_FRAGMENT_SIZE_MB : fragmentSizeMb) * 1024L * 1024L;
+    List<String> excludes =
+        jarSplittingExcludes == null
+            ? Collections.emptyList()
+            : Splitter.on(',').trimResults().omitEmptyStrings().splitToList(jarSplittingExcludes);
+    return new JarSplitter(fragmentSize, excludes, parallelism);
+  }
+
+  /**
+   * Splits or filters every jar in {@code libDirectory} that is larger than the fragment size or
+   * contains excluded entries. Processed jars are replaced by their fragments.
+   *
+   * @param log warned about entries that don't fit in a fragment on their own
+   * @return the number of jars that were replaced
+   */
+  int processLibraries(Path libDirectory, Log log) throws IOException {
+    if (!Files.isDirectory(libDirectory)) {
+      return 0;
+    }
+    List<Plan> plans = new ArrayList<>();
+    try (DirectoryStream<Path> jars = Files.newDirectoryStream(libDirectory, "*.jar")) {
+      for (Path jar : jars) {
+        Plan plan = plan(jar);
+        if (plan != null) {
+          plans.add(plan);
+          for (String entry : plan.oversizedEntries) {
+            log.warn(
+                "Entry "
+                    + entry
+                    + " of "
+                    + jar.getFileName()
+                    + " is larger than the jar fragment size of "
+                    + fragmentSize / (1024 * 1024)
+                    + " MB, it is left in a fragment of its own that may exceed the App Engine"
+                    + " file size limit");
+          }
+        }
+      }
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (Plan plan : plans) {
+      for (int i = 0; i < plan.fragments.size(); i++) {
+        List<Integer> entries = plan.fragments.get(i);
+        Path target = plan.temporaryFragment(i);
+        tasks.add(
+            () -> {
+              writeFragment(plan.jar, entries, target);
+              return null;
+            });
+      }
+    }
+    run(tasks);
+
+    for (Plan plan : plans) {
+      // the jar may be linked to the source tree, it is replaced and never written in place
+      Files.delete(plan.jar);
+      for (int i = 0; i < plan.fragments.size(); i++) {
+        Files.move(plan.temporaryFragment(i), plan.fragment(i));
+      }
+    }
+    return plans.size();
+  }
+
+  /** Returns how to rewrite {@code jar}, or {@code null} if it can stay as it is. */
+  @VisibleForTesting
+  Plan plan(Path jar) throws IOException {
+    boolean needsSplitting = Files.size(jar) > fragmentSize;
+    boolean hasExcludedEntries = false;
+    List<List<Integer>> fragments = new ArrayList<>();
+    List<Integer> fragment = new ArrayList<>();
+    List<String> oversizedEntries = new ArrayList<>();
+    long size = END_OF_CENTRAL_DIRECTORY;
+
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      // entries are referred to by position, names may be duplicated
+      List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntriesInPhysicalOrder());
+      for (int index = 0; index < entries.size(); index++) {
+        ZipArchiveEntry entry = entries.get(index);
+        if (isExcluded(entry.getName())) {
+          hasExcludedEntries = true;
+          continue;
+        }
+        long entrySize =
+            ENTRY_OVERHEAD
+                + 2 * entry.getName().getBytes(StandardCharsets.UTF_8).length
+                + entry.getLocalFileDataExtra().length
+                + entry.getCentralDirectoryExtra().length
+                + entry.getCompressedSize();
+        if (!fragment.isEmpty() && size + entrySize > fragmentSize) {
+          fragments.add(fragment);
+          fragment = new ArrayList<>();
+          size = END_OF_CENTRAL_DIRECTORY;
+        }
+        if (END_OF_CENTRAL_DIRECTORY + entrySize > fragmentSize) {
+          oversizedEntries.add(entry.getName());
+        }
+        fragment.add(index);
+        size += entrySize;
+      }
+    }
+    fragments.add(fragment);
+    return needsSplitting || hasExcludedEntries ? new Plan(jar, fragments, oversizedEntries) : null;
+  }
+
+  @VisibleForTesting
+  boolean isExcluded(String entryName) {
+    for (Pattern pattern : excludePatterns) {
+      if (pattern.matcher(entryName).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void writeFragment(Path jar, List<Integer> entryIndexes, Path target)
+      throws IOException {
+    try (ZipFile zipFile = new ZipFile(jar.toFile());
+        ZipArchiveOutputStream out = new ZipArchiveOutputStream(target.toFile())) {
+      List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntriesInPhysicalOrder());
+      for (int index : entryIndexes) {
+        ZipArchiveEntry entry = entries.get(index);
+        try (InputStream raw = zipFile.getRawInputStream(entry)) {
+          out.addRawArchiveEntry(entry, raw);
+        }
+      }
+    }
+  }
+
+  private void run(List<Callable<Void>> tasks) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      for (Future<Void> result : pool.invokeAll(tasks)) {
+        result.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while splitting jars");
+    } catch (ExecutionException ex) {
+      // fork-join tasks wrap checked exceptions, dig out the original failure
+      for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      throw new RuntimeException(ex.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Converts an exclude to a regular expression. Plain values are suffixes, as with appcfg. Values
+   * containing {@code *} or {@code ?} are globs where {@code **} matches across directories.
+   */
+  @VisibleForTesting
+  static Pattern toPattern(String exclude) {
+    if (exclude.indexOf('*') < 0 && exclude.indexOf('?') < 0) {
+      return Pattern.compile(".*" + Pattern.quote(exclude));
+    }
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < exclude.length(); i++) {
+      char c = exclude.charAt(i);
+      if (c == '*' && i + 1 < exclude.length() && exclude.charAt(i + 1) == '*') {
+        regex.append(".*");
+        i++;
+      } else if (c == '*') {
+        regex.append("[^/]*");
+      } else if (c == '?') {
+        regex.append("[^/]");
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+  @Override
+  public String toString() {
+    return "JarSplitter{fragmentSize=" + fragmentSize + ", excludes=" + excludes + "}";
+  }
+
+  /** The fragments a jar is split into, as lists of entry names. */
+  @VisibleForTesting
+  static class Plan {
+    private final Path jar;
+    private final List<List<Integer>> fragments;
+    private final List<String> oversizedEntries;
+
+    Plan(Path jar, List<List<Integer>> fragments, List<String> oversizedEntries) {
+      this.jar = jar;
+      this.fragments = fragments;
+      this.oversizedEntries = oversizedEntries;
+    }
+
+    /** The positions of the entries of every fragment in the jar. */
+    List<List<Integer>> getFragments() {
+      return fragments;
+    }
+
+    /** The entries that exceed the fragment size on their own. */
+    List<String> getOversizedEntries() {
+      return oversizedEntries;
+    }
+
+    /** A jar that fits in a single fragment keeps its name, others are numbered like appcfg. */
+    Path fragment(int index) {
+      if (fragments.size() == 1) {
+        return jar;
+      }
+      return jar.resolveSibling(
+          String.format("%s-%04d.jar", MoreFiles.getNameWithoutExtension(jar), index));
+    }
+
+    Path temporaryFragment(int index) {
+      return jar.resolveSibling(fragment(index).getFileName() + ".part");
+    }
+  }
+}
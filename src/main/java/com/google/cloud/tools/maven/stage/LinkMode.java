@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/** How unchanged files are placed in the staging directory. */
+public enum LinkMode {
+  /** Copy the bytes. */
+  COPY("copy"),
+  /** Hard link to the source file. */
+  HARDLINK("hardlink"),
+  /** Copy-on-write clone of the source file, on file systems that support it. */
+  REFLINK_IF_AVAILABLE("reflink-if-available");
+
+  private final String configValue;
+
+  LinkMode(String configValue) {
+    this.configValue = configValue;
+  }
+
+  /** Parses the {@code stage.linkMode} parameter, {@code null} means {@link #COPY}. */
+  public static LinkMode fromConfigValue(String value) throws MojoExecutionException {
+    if (value == null) {
+      return COPY;
+    }
+    for (LinkMode linkMode : values()) {
+      if (linkMode.configValue.equals(value.trim().toLowerCase(Locale.US))) {
+        return linkMode;
+      }
+    }
+    throw new MojoExecutionException(
+        "Invalid linkMode '"
+            + value
+            + "', expected one of: "
+            + Arrays.stream(values()).map(LinkMode::toString).collect(Collectors.joining(", ")));
+  }
+
+  @Override
+  public String toString() {
+    return configValue;
+  }
+}
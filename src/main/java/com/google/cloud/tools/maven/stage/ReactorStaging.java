@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.maven.cloudsdk.SessionCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The applications staged in the modules of a build, so they can be deployed together by {@code
+ * appengine:deployReactor} once every module is staged, and so later goals of the same build reuse
+ * a staging that is still current instead of staging again. Kept in the {@link SessionCache} of the
+ * build.
+ */
+public class ReactorStaging {
+
+  private static final String CACHE_KEY = ReactorStaging.class.getName();
+
+  private final ConcurrentMap<String, StagedApplication> applications = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the staged applications of {@code session}. Without session data to hold them the
+   * result is empty and not shared.
+   */
+  public static ReactorStaging forSession(MavenSession session) {
+    SessionCache cache = SessionCache.forSession(session);
+    return cache == null ? new ReactorStaging() : cache.get(CACHE_KEY, ReactorStaging::new);
+  }
+
+  /** Records the application that {@code stageMojo} has just staged in {@code stagingTime}. */
+  public void record(AbstractStageMojo stageMojo, Duration stagingTime) {
+    Path stagingDirectory = stageMojo.getStagingDirectory();
+    Path configDirectory;
+    if (stageMojo.isAppEngineWebXmlBased()) {
+      configDirectory = stagingDirectory.resolve("WEB-INF").resolve("appengine-generated");
+    } else if (stageMojo.getAppEngineDirectory() != null) {
+      configDirectory = stageMojo.getAppEngineDirectory();
+    } else {
+      configDirectory =
+          stageMojo.getMavenProject().getBasedir().toPath().resolve("src/main/appengine");
+    }
+    applications.put(
+        stageMojo.getMavenProject().getId(),
+        new StagedApplication(
+            stagingDirectory, configDirectory, stagingTime, artifactStamp(stageMojo)));
+  }
+
+  /**
+   * Whether the application of {@code stageMojo}'s project was staged earlier in this build, into
+   * the same staging directory and from an artifact that hasn't changed since.
+   */
+  public boolean isStaged(AbstractStageMojo stageMojo) {
+    StagedApplication application = applications.get(stageMojo.getMavenProject().getId());
+    return application != null
+        && application.stagingDirectory.equals(stageMojo.getStagingDirectory())
+        && application.artifactStamp.equals(artifactStamp(stageMojo))
+        && Files.isDirectory(application.stagingDirectory);
+  }
+
+  /** Returns the application staged in {@code project}, or {@code null} if it wasn't staged. */
+  public StagedApplication get(MavenProject project) {
+    return applications.get(project.getId());
+  }
+
+  // the artifact is rewritten when the project is packaged again
+  private static String artifactStamp(AbstractStageMojo stageMojo) {
+    Path artifact = stageMojo.getArtifact();
+    if (artifact == null) {
+      return "";
+    }
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(artifact, BasicFileAttributes.class);
+      return attributes.size() + "@" + attributes.lastModifiedTime().toMillis();
+    } catch (IOException ex) {
+      return "";
+    }
+  }
+
+  /**
+   * The staging directory of an application, the directory of its project config yamls and the time
+   * it took to stage.
+   */
+  public static class StagedApplication {
+
+    private final Path stagingDirectory;
+    private final Path configDirectory;
+    private final Duration stagingTime;
+    private final String artifactStamp;
+
+    StagedApplication(
+        Path stagingDirectory, Path configDirectory, Duration stagingTime, String artifactStamp) {
+      this.stagingDirectory = stagingDirectory;
+      this.configDirectory = configDirectory;
+      this.stagingTime = stagingTime;
+      this.artifactStamp = artifactStamp;
+    }
+
+    public Path getStagingDirectory() {
+      return stagingDirectory;
+    }
+
+    public Path getConfigDirectory() {
+      return configDirectory;
+    }
+
+    public Duration getStagingTime() {
+      return stagingTime;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.maven.stage;
 
+import java.time.Duration;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -24,7 +25,7 @@ import org.apache.maven.plugins.annotations.Mojo;
  * Generates a deploy-ready application directory for App Engine standard or flexible environment
  * deployment.
  */
-@Mojo(name = "stage", defaultPhase = LifecyclePhase.PACKAGE)
+@Mojo(name = "stage", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
 public class StageMojo extends AbstractStageMojo {
 
   @Override
@@ -33,6 +34,11 @@ public class StageMojo extends AbstractStageMojo {
       getLog().info("Skipping appengine:stage");
       return;
     }
+    long start = System.nanoTime();
     Stager.newStager(this).stage();
+    if (isAppEngineCompatiblePackaging()) {
+      ReactorStaging.forSession(getMavenSession())
+          .record(this, Duration.ofNanos(System.nanoTime() - start));
+    }
   }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Copies files into the staging directory on a bounded fork-join pool. Staging a large exploded WAR
+ * is dominated by per-file latency rather than bandwidth, so copying many files at once is
+ * considerably faster than a single threaded walk.
+ *
+ * <p>Depending on the {@link LinkMode}, WEB-INF/lib jars are hard linked or reflinked instead of
+ * copied. A staged file may therefore share its data with the source tree: anything that changes a
+ * staged file must replace it (as {@link #copyFile} does) and never write to it in place.
+ */
+class StagingCopier {
+
+  /** Files at least this large are copied with {@link FileChannel#transferTo}. */
+  @VisibleForTesting static final long TRANSFER_THRESHOLD = 1024 * 1024;
+
+  private static final Path WEB_INF_LIB = Paths.get("WEB-INF", "lib");
+
+  private final int parallelism;
+  private final LinkMode linkMode;
+  // set on the first failed link, the rest of the files are copied without trying again
+  private volatile boolean linkUnsupported;
+
+  StagingCopier(int parallelism) {
+    this(parallelism, LinkMode.COPY);
+  }
+
+  StagingCopier(int parallelism, LinkMode linkMode) {
+    this.parallelism = Math.max(1, parallelism);
+    this.linkMode = linkMode;
+  }
+
+  /**
+   * Recursively copies the content of {@code source} into {@code target}, replacing existing files.
+   */
+  void copyDirectory(Path source, Path target) throws IOException {
+    Map<Path, Path> copies = new LinkedHashMap<>();
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            copies.put(file, target.resolve(source.relativize(file).toString()));
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    copy(copies);
+  }
+
+  /** Copies every source key to its target value, replacing existing files. */
+  void copy(Map<Path, Path> copies) throws IOException {
+    Set<Path> parents = new LinkedHashSet<>();
+    for (Path target : copies.values()) {
+      parents.add(target.getParent());
+    }
+    for (Path parent : parents) {
+      Files.createDirectories(parent);
+    }
+
+    if (parallelism == 1 || copies.size() < 2) {
+      for (Map.Entry<Path, Path> copy : copies.entrySet()) {
+        transfer(copy.getKey(), copy.getValue());
+      }
+      return;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>(copies.size());
+    for (Map.Entry<Path, Path> copy : copies.entrySet()) {
+      tasks.add(
+          () -> {
+            transfer(copy.getKey(), copy.getValue());
+            return null;
+          });
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      for (Future<Void> result : pool.invokeAll(tasks)) {
+        result.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while copying files");
+    } catch (ExecutionException ex) {
+      // fork-join tasks wrap checked exceptions, dig out the original failure
+      for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      throw new RuntimeException(ex.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Replaces staged WEB-INF/lib jars that are identical to their source with links, for staging
+   * runs where the copying was done by an external tool. Does nothing in {@link LinkMode#COPY}.
+   *
+   * <p>A staged jar with the size and last modified time of its source is taken as unchanged, like
+   * {@link StagingManifest} does. Only jars that were copied without their timestamp are compared
+   * byte by byte.
+   *
+   * @return the number of jars that are now linked
+   */
+  int linkUnchangedLibraries(Path sourceDirectory, Path stagingDirectory) throws IOException {
+    Path stagedLibraries = stagingDirectory.resolve(WEB_INF_LIB);
+    if (linkMode == LinkMode.COPY || !Files.isDirectory(stagedLibraries)) {
+      return 0;
+    }
+    int linked = 0;
+    try (DirectoryStream<Path> jars = Files.newDirectoryStream(stagedLibraries, "*.jar")) {
+      for (Path staged : jars) {
+        Path source = sourceDirectory.resolve(WEB_INF_LIB).resolve(staged.getFileName());
+        if (Files.isRegularFile(source) && isUnchanged(source, staged) && link(source, staged)) {
+          linked++;
+        }
+      }
+    }
+    return linked;
+  }
+
+  private static boolean isUnchanged(Path source, Path staged) throws IOException {
+    BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+    BasicFileAttributes stagedAttributes = Files.readAttributes(staged, BasicFileAttributes.class);
+    if (sourceAttributes.size() != stagedAttributes.size()) {
+      return false;
+    }
+    return sourceAttributes.lastModifiedTime().equals(stagedAttributes.lastModifiedTime())
+        || com.google.common.io.Files.equal(source.toFile(), staged.toFile());
+  }
+
+  private void transfer(Path source, Path target) throws IOException {
+    if (isLinkable(target) && link(source, target)) {
+      return;
+    }
+    copyFile(source, target);
+  }
+
+  private boolean isLinkable(Path target) {
+    Path directory = target.getParent();
+    return linkMode != LinkMode.COPY
+        && directory != null
+        && directory.endsWith(WEB_INF_LIB)
+        && target.toString().endsWith(".jar");
+  }
+
+  /**
+   * Links {@code target} to {@code source}, replacing {@code target} atomically so a failure never
+   * leaves it missing.
+   *
+   * @return {@code false} if the file could not be linked and should be copied instead
+   */
+  private boolean link(Path source, Path target) throws IOException {
+    if (linkUnsupported) {
+      return false;
+    }
+    Path temporary = target.resolveSibling(target.getFileName() + ".link");
+    Files.deleteIfExists(temporary);
+    try {
+      if (linkMode == LinkMode.HARDLINK) {
+        Files.createLink(temporary, source);
+      } else if (!reflink(source, temporary)) {
+        linkUnsupported = true;
+        return false;
+      }
+    } catch (IOException | UnsupportedOperationException ex) {
+      // most likely the source and staging directories are on different file systems
+      linkUnsupported = true;
+      Files.deleteIfExists(temporary);
+      return false;
+    }
+    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  private static boolean reflink(Path source, Path target) throws IOException {
+    if (System.getProperty("os.name").toLowerCase(Locale.US).contains("windows")) {
+      return false;
+    }
+    Process process =
+        new ProcessBuilder(
+                "cp",
+                "--reflink=always",
+                "--preserve=timestamps",
+                source.toString(),
+                target.toString())
+            .redirectErrorStream(true)
+            .start();
+    try {
+      ByteStreams.exhaust(process.getInputStream());
+      if (process.waitFor() == 0) {
+        return true;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while linking " + source);
+    }
+    Files.deleteIfExists(target);
+    return false;
+  }
+
+  /** Copies {@code source} to {@code target}, replacing rather than overwriting {@code target}. */
+  @VisibleForTesting
+  static void copyFile(Path source, Path target) throws IOException {
+    long size = Files.size(source);
+    if (size < TRANSFER_THRESHOLD) {
+      Files.copy(
+          source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+      return;
+    }
+    // the target may be linked to a source file, truncating it would change the source
+    Files.deleteIfExists(target);
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel out =
+            FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+      long position = 0;
+      while (position < size) {
+        long transferred = in.transferTo(position, size - position, out);
+        if (transferred <= 0) {
+          // the source was truncated while we were copying it
+          break;
+        }
+        position += transferred;
+      }
+    }
+    Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+  }
+}
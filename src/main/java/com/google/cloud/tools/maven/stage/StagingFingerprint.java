@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A hash over everything that goes into a staging run: the staging parameters and the path, size
+ * and last modified time of every input file. If the fingerprint recorded by the last successful
+ * stage matches the current one, and the files in the staging directory are still the ones that
+ * stage wrote, the staging directory is still up to date.
+ *
+ * <p>The version of the Cloud SDK is not part of the fingerprint, an application staged with an
+ * older appcfg stays up to date.
+ *
+ * <p>The fingerprint is kept in a {@code <staging>.fingerprint} file next to the staging directory
+ * rather than inside it, so it is never deployed along with the application.
+ */
+class StagingFingerprint {
+
+  private final Path stagingDirectory;
+  private final Hasher hasher = Hashing.sha256().newHasher();
+  private String hash;
+
+  @VisibleForTesting
+  StagingFingerprint(Path stagingDirectory) {
+    this.stagingDirectory = stagingDirectory;
+  }
+
+  /** Fingerprints the inputs of an appengine-web.xml based stage. */
+  static StagingFingerprint of(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    return new StagingFingerprint(config.getStagingDirectory())
+        .putValue("stager", "appengine-web.xml")
+        .putValue("compileEncoding", config.getCompileEncoding())
+        .putValue("deleteJsps", config.getDeleteJsps())
+        .putValue("disableJarJsps", config.getDisableJarJsps())
+        .putValue("enableJarClasses", config.getEnableJarClasses())
+        .putValue("enableJarSplitting", config.getEnableJarSplitting())
+        .putValue("enableQuickstart", config.getEnableQuickstart())
+        .putValue("jarSplittingExcludes", config.getJarSplittingExcludes())
+        .putValue("runtime", config.getRuntime())
+        .putPath("dockerfile", config.getDockerfile())
+        .putPath("sourceDirectory", config.getSourceDirectory());
+  }
+
+  /** Fingerprints the inputs of an app.yaml based stage. */
+  static StagingFingerprint of(AppYamlProjectStageConfiguration config) throws IOException {
+    StagingFingerprint fingerprint =
+        new StagingFingerprint(config.getStagingDirectory())
+            .putValue("stager", "app.yaml")
+            .putPath("artifact", config.getArtifact())
+            .putPath("appEngineDirectory", config.getAppEngineDirectory())
+            .putPath("dockerDirectory", config.getDockerDirectory());
+    List<Path> extraFilesDirectories = config.getExtraFilesDirectory();
+    if (extraFilesDirectories != null) {
+      for (Path extraFilesDirectory : extraFilesDirectories) {
+        fingerprint.putPath("extraFilesDirectory", extraFilesDirectory);
+      }
+    }
+    return fingerprint;
+  }
+
+  @VisibleForTesting
+  StagingFingerprint putValue(String name, Object value) {
+    hasher.putString(name + "=" + value + "\n", StandardCharsets.UTF_8);
+    return this;
+  }
+
+  /**
+   * Adds a file or, recursively, a directory. Only metadata is hashed, file contents are not read.
+   */
+  @VisibleForTesting
+  StagingFingerprint putPath(String name, Path path) throws IOException {
+    putValue(name, path == null ? null : path.toAbsolutePath());
+    if (path == null || !Files.exists(path)) {
+      return this;
+    }
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(path)) {
+      files = stream.sorted().collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      if (attributes.isRegularFile()) {
+        putValue(
+            StagingManifest.toRelativePath(path, file),
+            attributes.size() + "@" + attributes.lastModifiedTime().toMillis());
+      }
+    }
+    return this;
+  }
+
+  /** Returns the hex encoded fingerprint. */
+  String getHash() {
+    if (hash == null) {
+      hash = hasher.hash().toString();
+    }
+    return hash;
+  }
+
+  /**
+   * Whether the last successful stage recorded this fingerprint, and nothing in the staging
+   * directory changed since.
+   */
+  boolean isUpToDate() throws IOException {
+    Path fingerprintFile = fingerprintFileFor(stagingDirectory);
+    if (!Files.isDirectory(stagingDirectory) || !Files.isRegularFile(fingerprintFile)) {
+      return false;
+    }
+    List<String> recorded = Files.readAllLines(fingerprintFile, StandardCharsets.UTF_8);
+    return recorded.size() == 2
+        && recorded.get(0).equals(getHash())
+        && recorded.get(1).equals(outputHash());
+  }
+
+  /** Records a successful stage, along with the files it wrote. */
+  void record() throws IOException {
+    Files.write(
+        fingerprintFileFor(stagingDirectory),
+        (getHash() + "\n" + outputHash() + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String outputHash() throws IOException {
+    return new StagingFingerprint(stagingDirectory)
+        .putPath("stagingDirectory", stagingDirectory)
+        .getHash();
+  }
+
+  /** Removes the recorded fingerprint, must be called before the staging directory is touched. */
+  void invalidate() throws IOException {
+    Files.deleteIfExists(fingerprintFileFor(stagingDirectory));
+  }
+
+  static Path fingerprintFileFor(Path stagingDirectory) {
+    return stagingDirectory.resolveSibling(stagingDirectory.getFileName() + ".fingerprint");
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of the regular files under a directory, recording the relative path, size, last
+ * modified time and content hash of every file. Comparing the manifests of two staging runs tells
+ * us which entries were added, changed or removed in between.
+ */
+public class StagingManifest {
+
+  private static final String CONFIGURATION_PREFIX = "#configuration=";
+
+  private final String configuration;
+  private final Map<String, Entry> entries;
+
+  @VisibleForTesting
+  StagingManifest(String configuration, Map<String, Entry> entries) {
+    this.configuration = configuration;
+    this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+  }
+
+  /**
+   * Scans {@code root} and builds a manifest of its files. Content hashes are reused from {@code
+   * previous} for files whose size and last modified time did not change, so only new or touched
+   * files are read.
+   *
+   * @param root the directory to scan
+   * @param configuration a key describing the staging configuration that consumes these files
+   * @param previous the manifest of the last run, or {@code null}
+   */
+  public static StagingManifest scan(Path root, String configuration, StagingManifest previous)
+      throws IOException {
+    Map<String, Entry> entries = new TreeMap<>();
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+              throws IOException {
+            if (attributes.isRegularFile()) {
+              String relativePath = toRelativePath(root, file);
+              long size = attributes.size();
+              long lastModified = attributes.lastModifiedTime().toMillis();
+              Entry old = previous == null ? null : previous.entries.get(relativePath);
+              String hash =
+                  old != null && old.size == size && old.lastModified == lastModified
+                      ? old.hash
+                      : hash(file);
+              entries.put(relativePath, new Entry(size, lastModified, hash));
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return new StagingManifest(configuration, entries);
+  }
+
+  /** Reads a manifest written by {@link #write}, returns {@code null} if it is missing or bad. */
+  public static StagingManifest read(Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    String configuration = null;
+    Map<String, Entry> entries = new TreeMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(CONFIGURATION_PREFIX)) {
+          configuration = line.substring(CONFIGURATION_PREFIX.length());
+          continue;
+        }
+        String[] fields = line.split("\t", 4);
+        if (fields.length != 4) {
+          return null;
+        }
+        try {
+          entries.put(
+              fields[3],
+              new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+        } catch (NumberFormatException ex) {
+          return null;
+        }
+      }
+    }
+    return configuration == null ? null : new StagingManifest(configuration, entries);
+  }
+
+  /** Writes this manifest to {@code file}, replacing any previous content. */
+  public void write(Path file) throws IOException {
+    Path directory = file.getParent();
+    if (directory != null) {
+      Files.createDirectories(directory);
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(CONFIGURATION_PREFIX + configuration);
+      writer.newLine();
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        Entry value = entry.getValue();
+        writer.write(
+            value.size + "\t" + value.lastModified + "\t" + value.hash + "\t" + entry.getKey());
+        writer.newLine();
+      }
+    }
+  }
+
+  public String getConfiguration() {
+    return configuration;
+  }
+
+  public Map<String, Entry> getEntries() {
+    return entries;
+  }
+
+  /** Computes the entries that differ between {@code previous} and this manifest. */
+  public Delta diff(StagingManifest previous) {
+    SortedSet<String> added = new TreeSet<>();
+    SortedSet<String> changed = new TreeSet<>();
+    SortedSet<String> removed = new TreeSet<>(previous.entries.keySet());
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      Entry old = previous.entries.get(entry.getKey());
+      removed.remove(entry.getKey());
+      if (old == null) {
+        added.add(entry.getKey());
+      } else if (!old.hasSameContent(entry.getValue())) {
+        changed.add(entry.getKey());
+      }
+    }
+    return new Delta(added, changed, removed);
+  }
+
+  /** Returns the location of the manifest that tracks the given staging directory. */
+  public static Path manifestFileFor(Path stagingDirectory) {
+    return stagingDirectory.resolveSibling(stagingDirectory.getFileName() + ".manifest");
+  }
+
+  static String toRelativePath(Path root, Path file) {
+    return root.relativize(file).toString().replace('\\', '/');
+  }
+
+  private static String hash(Path file) throws IOException {
+    return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha256()).toString();
+  }
+
+  /** Size, modification time and content hash of a single file. */
+  public static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    Entry(long size, long lastModified, String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+
+    boolean hasSameContent(Entry other) {
+      return size == other.size && Objects.equals(hash, other.hash);
+    }
+  }
+
+  /** The relative paths that were added, changed or removed between two manifests. */
+  public static class Delta {
+    private final SortedSet<String> added;
+    private final SortedSet<String> changed;
+    private final SortedSet<String> removed;
+
+    Delta(SortedSet<String> added, SortedSet<String> changed, SortedSet<String> removed) {
+      this.added = Collections.unmodifiableSortedSet(added);
+      this.changed = Collections.unmodifiableSortedSet(changed);
+      this.removed = Collections.unmodifiableSortedSet(removed);
+    }
+
+    public SortedSet<String> getAdded() {
+      return added;
+    }
+
+    public SortedSet<String> getChanged() {
+      return changed;
+    }
+
+    public SortedSet<String> getRemoved() {
+      return removed;
+    }
+
+    public boolean isEmpty() {
+      return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+  }
+}
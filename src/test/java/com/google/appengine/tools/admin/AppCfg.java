@@ -0,0 +1,29 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.appengine.tools.admin;
+
+import com.google.cloud.tools.maven.it.util.FakeCloudSdk;
+import com.google.cloud.tools.maven.it.util.FakeCloudSdkTool;
+import java.io.IOException;
+
+/** The appcfg main class of a {@link FakeCloudSdk}, which has the name of the real one. */
+public class AppCfg {
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    FakeCloudSdkTool.run("appcfg", args);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessExitListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncLogOutputLineListenerTest {
+
+  private static final String UPLOAD_LINE =
+      "INFO: Uploading [/app/WEB-INF/lib/a.jar] to [bucket/1]";
+
+  @Mock private Log log;
+  @Mock private ProcessExitListener exitListener;
+
+  private long nanoTime;
+
+  @Test
+  public void testOnOutputLine_all() {
+    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    Log recordingLog =
+        new SystemStreamLog() {
+          @Override
+          public void info(CharSequence content) {
+            lines.add(content.toString());
+          }
+        };
+    AsyncLogOutputLineListener listener =
+        new AsyncLogOutputLineListener(
+            recordingLog, ProcessOutputVerbosity.ALL, "GCLOUD: ", () -> nanoTime);
+    List<String> expected = new ArrayList<>();
+    // more than fit in the queue
+    for (int i = 0; i < AsyncLogOutputLineListener.CAPACITY * 2; i++) {
+      listener.onOutputLine("line " + i);
+      expected.add("GCLOUD: line " + i);
+    }
+    listener.onOutputLine(UPLOAD_LINE);
+    expected.add("GCLOUD: " + UPLOAD_LINE);
+    listener.close();
+
+    Assert.assertEquals(expected, lines);
+  }
+
+  @Test
+  public void testOnOutputLine_summary() {
+    AsyncLogOutputLineListener listener = newListener(ProcessOutputVerbosity.SUMMARY);
+    listener.onOutputLine("Uploading [3] files to Google Cloud Storage");
+    listener.onOutputLine(UPLOAD_LINE);
+    listener.onOutputLine("INFO: Uploading [/app/WEB-INF/lib/b.jar] to [bucket/2]");
+    listener.onOutputLine("File upload done.");
+    listener.close();
+
+    InOrder inOrder = inOrder(log);
+    inOrder.verify(log).info("GCLOUD: Uploading [3] files to Google Cloud Storage");
+    inOrder.verify(log).info("GCLOUD: File upload done.");
+    inOrder
+        .verify(log)
+        .info(
+            "GCLOUD: (2 file lines not shown, last: "
+                + "INFO: Uploading [/app/WEB-INF/lib/b.jar] to [bucket/2])");
+  }
+
+  @Test
+  public void testOnOutputLine_periodicSummary() {
+    AsyncLogOutputLineListener listener = newListener(ProcessOutputVerbosity.SUMMARY);
+    nanoTime += AsyncLogOutputLineListener.SUMMARY_INTERVAL_NANOS;
+    listener.onOutputLine(UPLOAD_LINE);
+    listener.close();
+
+    // once, the summary on close has nothing new to report
+    verify(log).info("GCLOUD: (1 file lines not shown, last: " + UPLOAD_LINE + ")");
+  }
+
+  @Test
+  public void testOnOutputLine_quiet() {
+    when(log.isDebugEnabled()).thenReturn(true);
+    AsyncLogOutputLineListener listener = newListener(ProcessOutputVerbosity.QUIET);
+    listener.onOutputLine("Beginning deployment of service [default]...");
+    listener.onOutputLine("WARNING: Your project has no default bucket");
+    listener.onOutputLine("ERROR: (gcloud.app.deploy) Permissions error");
+    listener.close();
+
+    verify(log).debug("GCLOUD: Beginning deployment of service [default]...");
+    verify(log).info("GCLOUD: WARNING: Your project has no default bucket");
+    verify(log).info("GCLOUD: ERROR: (gcloud.app.deploy) Permissions error");
+  }
+
+  @Test
+  public void testCloseBefore() throws AppEngineException {
+    AsyncLogOutputLineListener listener = newListener(ProcessOutputVerbosity.ALL);
+    listener.onOutputLine("ERROR: (gcloud.app.deploy) Permissions error");
+    listener.closeBefore(exitListener).onExit(1);
+
+    InOrder inOrder = inOrder(log, exitListener);
+    inOrder.verify(log).info("GCLOUD: ERROR: (gcloud.app.deploy) Permissions error");
+    inOrder.verify(exitListener).onExit(1);
+  }
+
+  @Test
+  public void testOnOutputLine_afterIdle() throws InterruptedException {
+    AsyncLogOutputLineListener listener = newListener(ProcessOutputVerbosity.ALL);
+    listener.onOutputLine("before");
+    // the writer thread stops after a second without output
+    TimeUnit.MILLISECONDS.sleep(1500);
+    listener.onOutputLine("after");
+    listener.close();
+
+    InOrder inOrder = inOrder(log);
+    inOrder.verify(log).info("GCLOUD: before");
+    inOrder.verify(log).info("GCLOUD: after");
+  }
+
+  private AsyncLogOutputLineListener newListener(ProcessOutputVerbosity verbosity) {
+    return new AsyncLogOutputLineListener(log, verbosity, "GCLOUD: ", () -> nanoTime);
+  }
+}
@@ -16,7 +16,11 @@
 
 package com.google.cloud.tools.maven.cloudsdk;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -28,13 +32,20 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateExc
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -50,6 +61,8 @@ public class CloudSdkAppEngineFactoryTest {
   private final String ARTIFACT_ID = "appengine-maven-plugin";
   private final String ARTIFACT_VERSION = "0.1.0";
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private CloudSdkMojo mojoMock;
   @Mock private Log logMock;
   @Mock private MavenSession mavenSession;
@@ -75,14 +88,20 @@ public class CloudSdkAppEngineFactoryTest {
             Mockito.isNull(),
             Mockito.eq(logMock),
             Mockito.<SdkComponent>anyList(),
-            Mockito.anyBoolean());
+            Mockito.anyBoolean(),
+            Mockito.isNull(),
+            Mockito.isNull(),
+            Mockito.isNull());
     doReturn(INSTALL_SDK_PATH)
         .when(cloudSdkDownloader)
         .downloadIfNecessary(
             Mockito.anyString(),
             Mockito.eq(logMock),
             Mockito.<SdkComponent>anyList(),
-            Mockito.anyBoolean());
+            Mockito.anyBoolean(),
+            Mockito.isNull(),
+            Mockito.isNull(),
+            Mockito.isNull());
   }
 
   @Test
@@ -106,7 +125,13 @@ public class CloudSdkAppEngineFactoryTest {
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
         .downloadIfNecessary(
-            CLOUD_SDK_VERSION, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+            CLOUD_SDK_VERSION,
+            logMock,
+            ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+            false,
+            null,
+            null,
+            null);
     verifyNoMoreInteractions(cloudSdkChecker);
   }
 
@@ -122,7 +147,8 @@ public class CloudSdkAppEngineFactoryTest {
     // verify
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
-        .downloadIfNecessary(null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null, null, null);
     verifyNoMoreInteractions(cloudSdkChecker);
   }
 
@@ -138,7 +164,8 @@ public class CloudSdkAppEngineFactoryTest {
 
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
-        .downloadIfNecessary(null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true);
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true, null, null, null);
     verify(mavenSession).isOffline();
     verifyNoMoreInteractions(cloudSdkChecker);
   }
@@ -195,4 +222,158 @@ public class CloudSdkAppEngineFactoryTest {
     verifyNoMoreInteractions(cloudSdkDownloader);
     verifyNoMoreInteractions(cloudSdkChecker);
   }
+
+  @Test
+  public void testGetGcloud_resolvesCloudSdkOnce() {
+    when(mojoMock.getCloudSdkHome()).thenReturn(null);
+
+    factory.getGcloud();
+    factory.getGcloud();
+
+    verify(cloudSdkDownloader)
+        .downloadIfNecessary(null, logMock, ImmutableList.of(), false, null, null, null);
+  }
+
+  @Test
+  public void testBuildCloudSdkWithAppEngineComponents_sharedAcrossSession()
+      throws CloudSdkOutOfDateException, CloudSdkNotFoundException, CloudSdkVersionFileException,
+          AppEngineJavaComponentsNotInstalledException {
+    when(mojoMock.getCloudSdkVersion()).thenReturn(CLOUD_SDK_VERSION);
+    when(mavenSession.getRepositorySession()).thenReturn(new DefaultRepositorySystemSession());
+
+    CloudSdk sdk = factory.buildCloudSdkWithAppEngineComponents();
+    CloudSdk otherSdk =
+        new CloudSdkAppEngineFactory(mojoMock, cloudSdkChecker, cloudSdkDownloader)
+            .buildCloudSdkWithAppEngineComponents();
+
+    Assert.assertSame(sdk, otherSdk);
+    verify(cloudSdkChecker).checkCloudSdk(sdk, CLOUD_SDK_VERSION);
+    verify(cloudSdkChecker).checkForAppEngine(sdk);
+  }
+
+  @Test
+  public void testBuildCloudSdkWithAppEngineComponents_failureNotCached()
+      throws AppEngineJavaComponentsNotInstalledException {
+    Mockito.doThrow(new AppEngineJavaComponentsNotInstalledException("not installed"))
+        .doNothing()
+        .when(cloudSdkChecker)
+        .checkForAppEngine(Mockito.any(CloudSdk.class));
+
+    try {
+      factory.buildCloudSdkWithAppEngineComponents();
+      Assert.fail();
+    } catch (RuntimeException ex) {
+      Assert.assertTrue(ex.getCause() instanceof AppEngineJavaComponentsNotInstalledException);
+    }
+    Assert.assertEquals(CLOUD_SDK_HOME, factory.buildCloudSdkWithAppEngineComponents().getPath());
+    verify(cloudSdkChecker, times(2)).checkForAppEngine(Mockito.any(CloudSdk.class));
+  }
+
+  @Test
+  public void testBuildCloudSdk_checksCachedAcrossBuilds()
+      throws IOException, CloudSdkOutOfDateException, CloudSdkNotFoundException,
+          CloudSdkVersionFileException, AppEngineJavaComponentsNotInstalledException {
+    Path sdkHome = tempFolder.newFolder("google-cloud-sdk").toPath();
+    Files.write(sdkHome.resolve("VERSION"), CLOUD_SDK_VERSION.getBytes("UTF-8"));
+    when(mojoMock.getCloudSdkHome()).thenReturn(sdkHome);
+    when(mojoMock.getCloudSdkVersion()).thenReturn(CLOUD_SDK_VERSION);
+    when(mojoMock.getCloudSdkCacheDirectory()).thenReturn(tempFolder.newFolder("cache").toPath());
+
+    CloudSdk sdk =
+        CloudSdkAppEngineFactory.buildCloudSdk(mojoMock, cloudSdkChecker, cloudSdkDownloader, true);
+    CloudSdkAppEngineFactory.buildCloudSdk(mojoMock, cloudSdkChecker, cloudSdkDownloader, true);
+
+    verify(cloudSdkChecker).checkCloudSdk(sdk, CLOUD_SDK_VERSION);
+    verify(cloudSdkChecker).checkForAppEngine(sdk);
+    verifyNoMoreInteractions(cloudSdkChecker);
+  }
+
+  @Test
+  public void testProvisionCloudSdkInBackground() {
+    when(mojoMock.getCloudSdkHome()).thenReturn(null);
+
+    factory.provisionCloudSdkInBackground(true);
+
+    verify(cloudSdkDownloader, timeout(5000))
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null, null, null);
+    Assert.assertEquals(INSTALL_SDK_PATH, factory.buildCloudSdkWithAppEngineComponents().getPath());
+    verifyNoMoreInteractions(cloudSdkDownloader);
+  }
+
+  @Test
+  public void testProvisionCloudSdkInBackground_failureNotRetried() {
+    when(mojoMock.getCloudSdkHome()).thenReturn(null);
+    RuntimeException failure = new RuntimeException("download failed");
+    doThrow(failure)
+        .when(cloudSdkDownloader)
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null, null, null);
+
+    factory.provisionCloudSdkInBackground(true);
+    // the failure is left for the next use of the Cloud SDK
+    factory.awaitCloudSdkProvisioning();
+
+    try {
+      factory.buildCloudSdkWithAppEngineComponents();
+      Assert.fail();
+    } catch (RuntimeException ex) {
+      Assert.assertSame(failure, ex);
+    }
+    verify(cloudSdkDownloader)
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null, null, null);
+  }
+
+  @Test
+  public void testAwaitCloudSdkProvisioning() {
+    when(mojoMock.getCloudSdkHome()).thenReturn(null);
+    AtomicBoolean provisioned = new AtomicBoolean();
+    doAnswer(
+            invocation -> {
+              Thread.sleep(200);
+              provisioned.set(true);
+              return INSTALL_SDK_PATH;
+            })
+        .when(cloudSdkDownloader)
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null, null, null);
+
+    factory.provisionCloudSdkInBackground(true);
+    factory.awaitCloudSdkProvisioning();
+
+    Assert.assertTrue(provisioned.get());
+  }
+
+  @Test
+  public void testAwaitCloudSdkProvisioning_notStarted() {
+    factory.awaitCloudSdkProvisioning();
+
+    verifyNoMoreInteractions(cloudSdkDownloader);
+  }
+
+  @Test
+  public void testNewConfigReader_doesNotResolveCloudSdk() {
+    factory.newConfigReader();
+
+    verifyNoMoreInteractions(cloudSdkDownloader);
+    verifyNoMoreInteractions(cloudSdkChecker);
+  }
+
+  @Test
+  public void testOutputPrefix_parallelBuild() {
+    MavenProject project = Mockito.mock(MavenProject.class);
+    when(project.getArtifactId()).thenReturn("backend");
+    when(mojoMock.getMavenProject()).thenReturn(project);
+    when(mavenSession.isParallel()).thenReturn(true);
+
+    Assert.assertEquals("GCLOUD [backend]: ", CloudSdkAppEngineFactory.outputPrefix(mojoMock));
+  }
+
+  @Test
+  public void testOutputPrefix_serialBuild() {
+    when(mavenSession.isParallel()).thenReturn(false);
+
+    Assert.assertEquals("GCLOUD: ", CloudSdkAppEngineFactory.outputPrefix(mojoMock));
+  }
 }
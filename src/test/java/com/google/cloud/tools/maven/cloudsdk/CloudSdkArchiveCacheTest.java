@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.stream.Stream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CloudSdkArchiveCacheTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private Path sdkHome;
+  private CloudSdkArchiveCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDirectory = tempFolder.getRoot().toPath().resolve("cache");
+    sdkHome = tempFolder.newFolder("LATEST", "google-cloud-sdk").toPath();
+    Files.createDirectories(sdkHome.resolve("bin"));
+    Files.write(sdkHome.resolve("VERSION"), "192.0.0".getBytes(StandardCharsets.UTF_8));
+    Files.write(sdkHome.resolve("bin").resolve("gcloud"), "#!/bin/sh".getBytes("UTF-8"));
+    cache = new CloudSdkArchiveCache(cacheDirectory);
+  }
+
+  @Test
+  public void testArchiveFor() {
+    String name =
+        cache
+            .archiveFor(null, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA))
+            .getFileName()
+            .toString();
+    Assert.assertTrue(name, name.startsWith("google-cloud-sdk-LATEST-"));
+    Assert.assertTrue(name, name.endsWith("-app-engine-java.tar.gz"));
+
+    Assert.assertNotEquals(
+        cache.archiveFor("192.0.0", Collections.emptyList()),
+        cache.archiveFor("192.0.0", ImmutableList.of(SdkComponent.APP_ENGINE_JAVA)));
+    Assert.assertEquals(cacheDirectory, cache.archiveFor("192.0.0", null).getParent());
+  }
+
+  @Test
+  public void testRestore_noSnapshot() throws IOException {
+    Assert.assertFalse(cache.restore(null, Collections.emptyList(), sdkHome));
+    Assert.assertTrue(Files.exists(sdkHome.resolve("VERSION")));
+  }
+
+  @Test
+  public void testStoreIfAbsent_restore() throws IOException {
+    cache.storeIfAbsent(null, Collections.emptyList(), sdkHome);
+    Assert.assertTrue(Files.isRegularFile(cache.archiveFor(null, Collections.emptyList())));
+
+    // a half installed sdk is replaced
+    Files.delete(sdkHome.resolve("VERSION"));
+    Files.write(sdkHome.resolve("partial"), new byte[1]);
+
+    Assert.assertTrue(cache.restore(null, Collections.emptyList(), sdkHome));
+    Assert.assertEquals(
+        "192.0.0", new String(Files.readAllBytes(sdkHome.resolve("VERSION")), "UTF-8"));
+    Assert.assertTrue(Files.exists(sdkHome.resolve("bin").resolve("gcloud")));
+    Assert.assertFalse(Files.exists(sdkHome.resolve("partial")));
+    Assert.assertFalse(Files.exists(sdkHome.resolveSibling("google-cloud-sdk.restoring")));
+  }
+
+  @Test
+  public void testStoreIfAbsent_keepsExisting() throws IOException {
+    cache.storeIfAbsent(null, Collections.emptyList(), sdkHome);
+    Path archive = cache.archiveFor(null, Collections.emptyList());
+    long size = Files.size(archive);
+
+    Files.write(sdkHome.resolve("extra"), new byte[4096]);
+    cache.storeIfAbsent(null, Collections.emptyList(), sdkHome);
+
+    Assert.assertEquals(size, Files.size(archive));
+  }
+
+  @Test
+  public void testStore_replacesExisting() throws IOException {
+    cache.storeIfAbsent(null, Collections.emptyList(), sdkHome);
+
+    // an update of the latest version is stored over the older snapshot
+    Files.write(sdkHome.resolve("VERSION"), "193.0.0".getBytes(StandardCharsets.UTF_8));
+    cache.store(null, Collections.emptyList(), sdkHome);
+    Files.write(sdkHome.resolve("VERSION"), "192.0.0".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertTrue(cache.restore(null, Collections.emptyList(), sdkHome));
+    Assert.assertEquals(
+        "193.0.0", new String(Files.readAllBytes(sdkHome.resolve("VERSION")), "UTF-8"));
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      Assert.assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  public void testArchive_preservesPermissionsAndLinks() throws IOException {
+    Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path gcloud = sdkHome.resolve("bin").resolve("gcloud");
+    Files.setPosixFilePermissions(gcloud, PosixFilePermissions.fromString("rwxr-xr-x"));
+    Files.createSymbolicLink(sdkHome.resolve("bin").resolve("gcloud-link"), Paths.get("gcloud"));
+    Path archive = tempFolder.getRoot().toPath().resolve("sdk.tar.gz");
+    Path extracted = tempFolder.getRoot().toPath().resolve("extracted");
+
+    CloudSdkArchiveCache.archive(sdkHome, archive);
+    CloudSdkArchiveCache.extract(archive, extracted);
+
+    Assert.assertEquals(
+        "rwxr-xr-x",
+        PosixFilePermissions.toString(
+            Files.getPosixFilePermissions(extracted.resolve("bin").resolve("gcloud"))));
+    Assert.assertEquals(
+        Paths.get("gcloud"),
+        Files.readSymbolicLink(extracted.resolve("bin").resolve("gcloud-link")));
+  }
+
+  @Test
+  public void testExtract_entryOutsideRoot() throws IOException {
+    Path archive = tempFolder.getRoot().toPath().resolve("evil.tar.gz");
+    try (OutputStream file = Files.newOutputStream(archive);
+        TarArchiveOutputStream tar =
+            new TarArchiveOutputStream(new GzipCompressorOutputStream(file))) {
+      TarArchiveEntry entry = new TarArchiveEntry("../evil");
+      entry.setSize(1);
+      tar.putArchiveEntry(entry);
+      tar.write(1);
+      tar.closeArchiveEntry();
+    }
+
+    try {
+      CloudSdkArchiveCache.extract(archive, tempFolder.getRoot().toPath().resolve("extracted"));
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertEquals("Entry ../evil is outside of " + archive, ex.getMessage());
+    }
+    Assert.assertFalse(Files.exists(tempFolder.getRoot().toPath().resolve("evil")));
+  }
+
+  @Test
+  public void testExtract_linkOutsideRoot() throws IOException {
+    Path outside = tempFolder.newFolder("outside").toPath();
+    for (String linkName : new String[] {outside.toString(), "../outside"}) {
+      Path archive = tempFolder.getRoot().toPath().resolve("evil.tar.gz");
+      try (OutputStream file = Files.newOutputStream(archive);
+          TarArchiveOutputStream tar =
+              new TarArchiveOutputStream(new GzipCompressorOutputStream(file))) {
+        TarArchiveEntry link = new TarArchiveEntry("lib", TarConstants.LF_SYMLINK);
+        link.setLinkName(linkName);
+        tar.putArchiveEntry(link);
+        tar.closeArchiveEntry();
+        TarArchiveEntry entry = new TarArchiveEntry("lib/passwd");
+        entry.setSize(1);
+        tar.putArchiveEntry(entry);
+        tar.write(1);
+        tar.closeArchiveEntry();
+      }
+
+      try {
+        CloudSdkArchiveCache.extract(archive, tempFolder.newFolder().toPath());
+        Assert.fail();
+      } catch (IOException ex) {
+        Assert.assertEquals(
+            "Link lib -> " + linkName + " points outside of " + archive, ex.getMessage());
+      }
+      Assert.assertFalse(Files.exists(outside.resolve("passwd")));
+    }
+  }
+
+  @Test
+  public void testExtract_writeThroughExistingLink() throws IOException {
+    Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path outside = tempFolder.newFolder("outside").toPath();
+    Path extracted = tempFolder.newFolder("extracted").toPath();
+    Files.createSymbolicLink(extracted.resolve("lib"), outside);
+    Path archive = tempFolder.getRoot().toPath().resolve("evil.tar.gz");
+    try (OutputStream file = Files.newOutputStream(archive);
+        TarArchiveOutputStream tar =
+            new TarArchiveOutputStream(new GzipCompressorOutputStream(file))) {
+      TarArchiveEntry entry = new TarArchiveEntry("lib/passwd");
+      entry.setSize(1);
+      tar.putArchiveEntry(entry);
+      tar.write(1);
+      tar.closeArchiveEntry();
+    }
+
+    try {
+      CloudSdkArchiveCache.extract(archive, extracted);
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertEquals("Entry lib/passwd is outside of " + archive, ex.getMessage());
+    }
+    Assert.assertFalse(Files.exists(outside.resolve("passwd")));
+  }
+
+  @Test
+  public void testExtract_readOnlyDirectory() throws IOException {
+    Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path bin = sdkHome.resolve("bin");
+    Files.setPosixFilePermissions(bin, PosixFilePermissions.fromString("r-xr-xr-x"));
+    Path archive = tempFolder.getRoot().toPath().resolve("sdk.tar.gz");
+    Path extracted = tempFolder.getRoot().toPath().resolve("extracted");
+    try {
+      CloudSdkArchiveCache.archive(sdkHome, archive);
+      CloudSdkArchiveCache.extract(archive, extracted);
+
+      Assert.assertTrue(Files.exists(extracted.resolve("bin").resolve("gcloud")));
+      Assert.assertEquals(
+          "r-xr-xr-x",
+          PosixFilePermissions.toString(Files.getPosixFilePermissions(extracted.resolve("bin"))));
+    } finally {
+      Files.setPosixFilePermissions(bin, PosixFilePermissions.fromString("rwxr-xr-x"));
+      if (Files.exists(extracted.resolve("bin"))) {
+        Files.setPosixFilePermissions(
+            extracted.resolve("bin"), PosixFilePermissions.fromString("rwxr-xr-x"));
+      }
+    }
+  }
+}
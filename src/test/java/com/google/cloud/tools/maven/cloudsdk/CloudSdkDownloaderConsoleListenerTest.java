@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CloudSdkDownloaderConsoleListenerTest {
+
+  @Mock private Log log;
+
+  @Test
+  public void testConsole_logsCompleteLines() {
+    CloudSdkDownloaderConsoleListener listener = new CloudSdkDownloaderConsoleListener(log);
+    listener.console("Installing com");
+    listener.console("ponents\r\nDone\nPartial");
+
+    verify(log).info("Installing components");
+    verify(log).info("Done");
+    verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testFlush_logsLastLine() {
+    CloudSdkDownloaderConsoleListener listener = new CloudSdkDownloaderConsoleListener(log);
+    listener.console("Done\nERROR: (gcloud.components.install) failed");
+    listener.flush();
+    listener.flush();
+
+    verify(log).info("Done");
+    verify(log).info("ERROR: (gcloud.components.install) failed");
+    verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testConsole_carriageReturnRedrawsLine() {
+    CloudSdkDownloaderConsoleListener listener = new CloudSdkDownloaderConsoleListener(log);
+    listener.console("Downloading 10%\rDownloading 50%\r");
+    listener.console("Downloading 100%\r");
+    listener.console("\nInstalled\r");
+    listener.flush();
+
+    verify(log).info("Downloading 100%");
+    verify(log).info("Installed");
+    verifyNoMoreInteractions(log);
+  }
+}
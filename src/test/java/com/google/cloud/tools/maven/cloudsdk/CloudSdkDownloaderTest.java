@@ -19,7 +19,6 @@ package com.google.cloud.tools.maven.cloudsdk;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -32,25 +31,36 @@ import com.google.cloud.tools.managedcloudsdk.UnsupportedOsException;
 import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponentInstaller;
 import com.google.cloud.tools.managedcloudsdk.components.SdkUpdater;
 import com.google.cloud.tools.managedcloudsdk.install.SdkInstaller;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.function.Function;
 import org.apache.maven.plugin.logging.Log;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CloudSdkDownloaderTest {
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private Log log;
   @Mock private Function<String, ManagedCloudSdk> managedCloudSdkFactory;
   @Mock private ManagedCloudSdk managedCloudSdk;
@@ -59,12 +69,19 @@ public class CloudSdkDownloaderTest {
   @Mock private SdkInstaller installer;
   @Mock private SdkComponentInstaller componentInstaller;
   @Mock private SdkUpdater updater;
+  @Mock private CommandRunner commandRunner;
+  @Mock private CloudSdkValidationCache validationCache;
+  @Mock private CloudSdkArchiveCache archiveCache;
 
   @InjectMocks private CloudSdkDownloader downloader;
 
+  private Path sdkHome;
+
   @Before
   public void setup() {
+    sdkHome = tempFolder.getRoot().toPath().resolve("google-cloud-sdk");
     when(managedCloudSdkFactory.apply(version)).thenReturn(managedCloudSdk);
+    when(managedCloudSdk.getSdkHome()).thenReturn(sdkHome);
     when(managedCloudSdk.newInstaller()).thenReturn(installer);
     when(managedCloudSdk.newComponentInstaller()).thenReturn(componentInstaller);
     when(managedCloudSdk.newUpdater()).thenReturn(updater);
@@ -97,12 +114,53 @@ public class CloudSdkDownloaderTest {
     when(managedCloudSdk.isInstalled()).thenReturn(true);
     when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
     when(managedCloudSdk.hasComponent(SdkComponent.BETA)).thenReturn(false);
+    Path gcloud = sdkHome.resolve("bin").resolve("gcloud");
+    when(managedCloudSdk.getGcloudPath()).thenReturn(gcloud);
     downloader.downloadIfNecessary(
         version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA), false);
     verify(managedCloudSdk, never()).newInstaller();
-    verify(managedCloudSdk, times(2)).newComponentInstaller();
-    verify(componentInstaller).installComponent(eq(SdkComponent.APP_ENGINE_JAVA), any(), any());
-    verify(componentInstaller).installComponent(eq(SdkComponent.BETA), any(), any());
+    // installed with a single gcloud call
+    verify(managedCloudSdk, never()).newComponentInstaller();
+    verify(commandRunner)
+        .run(
+            eq(
+                ImmutableList.of(
+                    gcloud.toString(),
+                    "components",
+                    "install",
+                    "app-engine-java",
+                    "beta",
+                    "--quiet")),
+            eq(sdkHome),
+            Mockito.isNull(),
+            any());
+  }
+
+  @Test
+  public void testDownloadCloudSdk_provisioningSummaryWritten()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException, IOException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
+    when(managedCloudSdk.hasComponent(SdkComponent.BETA)).thenReturn(false);
+    when(managedCloudSdk.getGcloudPath()).thenReturn(sdkHome.resolve("bin").resolve("gcloud"));
+    downloader.downloadIfNecessary(
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA), false);
+
+    Path summaryFile = CloudSdkDownloader.summaryFileFor(sdkHome);
+    String summary = new String(Files.readAllBytes(summaryFile), StandardCharsets.UTF_8);
+    Assert.assertTrue(summary, summary.contains("\"name\":\"Installing app-engine-java, beta\""));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_noProvisioningSummaryWhenInstalled()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+
+    Assert.assertFalse(Files.exists(CloudSdkDownloader.summaryFileFor(sdkHome)));
   }
 
   @Test
@@ -141,6 +199,162 @@ public class CloudSdkDownloaderTest {
     verify(managedCloudSdk).newUpdater();
   }
 
+  @Test
+  public void testDownloadCloudSdk_updateRefreshesArchive()
+      throws IOException, ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(false);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        false,
+        null,
+        null,
+        archiveCache);
+    verify(managedCloudSdk).newUpdater();
+    verify(archiveCache).store(version, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), sdkHome);
+  }
+
+  @Test
+  public void testDownloadCloudSdk_installedWhileWaitingForLock()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(false, true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+    verify(managedCloudSdk, never()).newInstaller();
+    verify(managedCloudSdk, never()).newComponentInstaller();
+    Assert.assertTrue(Files.exists(CloudSdkInstallLock.lockFileFor(sdkHome)));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_installedWithoutLocking()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+    Assert.assertFalse(Files.exists(CloudSdkInstallLock.lockFileFor(sdkHome)));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_restoredFromArchive()
+      throws IOException, ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(false);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    when(archiveCache.restore(version, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), sdkHome))
+        .thenReturn(true);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        false,
+        null,
+        null,
+        archiveCache);
+    verify(managedCloudSdk, never()).newInstaller();
+    verify(managedCloudSdk, never()).newComponentInstaller();
+    verify(archiveCache, never()).storeIfAbsent(any(), any(), any());
+  }
+
+  @Test
+  public void testDownloadCloudSdk_storedInArchive()
+      throws IOException, ManagedSdkVerificationException, ManagedSdkVersionMismatchException,
+          InterruptedException, CommandExitException, CommandExecutionException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        false,
+        null,
+        null,
+        archiveCache);
+    verify(componentInstaller).installComponent(eq(SdkComponent.APP_ENGINE_JAVA), any(), any());
+    verify(archiveCache)
+        .storeIfAbsent(version, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), sdkHome);
+  }
+
+  @Test
+  public void testDownloadCloudSdk_offlineRestoredFromArchive()
+      throws IOException, ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(false);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        true,
+        null,
+        null,
+        archiveCache);
+    verify(archiveCache).restore(version, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), sdkHome);
+    verify(managedCloudSdk, never()).newInstaller();
+    verify(managedCloudSdk, never()).isUpToDate();
+  }
+
+  @Test
+  public void testDownloadCloudSdk_validationCached()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    when(validationCache.isValidated(sdkHome, "installed [app-engine-java]")).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        false,
+        validationCache,
+        null,
+        null);
+    verify(managedCloudSdk, never()).isInstalled();
+    verify(managedCloudSdk, never()).hasComponent(any());
+    verify(validationCache, never()).recordValidated(any(), any());
+  }
+
+  @Test
+  public void testDownloadCloudSdk_validationRecorded()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    downloader.downloadIfNecessary(
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+        false,
+        validationCache,
+        null,
+        null);
+    verify(validationCache).recordValidated(sdkHome, "installed [app-engine-java]");
+  }
+
+  @Test
+  public void testDownloadCloudSdk_updateCheckThrottled()
+      throws IOException, ManagedSdkVerificationException, ManagedSdkVersionMismatchException,
+          InterruptedException, CommandExitException, CommandExecutionException {
+    Files.createDirectories(sdkHome);
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(false);
+
+    downloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, null, Duration.ofHours(24), null);
+    verify(updater).update(any(), any());
+    Mockito.clearInvocations(managedCloudSdk);
+
+    downloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, null, Duration.ofHours(24), null);
+
+    verify(managedCloudSdk, never()).isUpToDate();
+    verify(managedCloudSdk, never()).newUpdater();
+    Assert.assertTrue(Files.exists(UpdateCheckThrottle.timestampFileFor(sdkHome)));
+  }
+
   @Test
   public void testDownloadCloudSdk_offlineMode() {
     downloader.downloadIfNecessary(
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CloudSdkInstallLockTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path sdkHome;
+
+  @Before
+  public void setUp() {
+    sdkHome = tempFolder.getRoot().toPath().resolve("LATEST").resolve("google-cloud-sdk");
+  }
+
+  @Test
+  public void testLockFileFor() {
+    Assert.assertEquals(
+        tempFolder.getRoot().toPath().resolve("LATEST").resolve("google-cloud-sdk.lock"),
+        CloudSdkInstallLock.lockFileFor(sdkHome));
+  }
+
+  @Test
+  public void testAcquire_createsLockFile() throws IOException, InterruptedException {
+    try (CloudSdkInstallLock lock = CloudSdkInstallLock.acquire(sdkHome, log)) {
+      Assert.assertTrue(Files.exists(CloudSdkInstallLock.lockFileFor(sdkHome)));
+    }
+  }
+
+  @Test
+  public void testAcquire_waitsForHolder() throws Exception {
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiter;
+    try (CloudSdkInstallLock lock = CloudSdkInstallLock.acquire(sdkHome, log)) {
+      waiter =
+          new Thread(
+              () -> {
+                try (CloudSdkInstallLock other = CloudSdkInstallLock.acquire(sdkHome, log)) {
+                  acquired.countDown();
+                } catch (IOException | InterruptedException ex) {
+                  throw new RuntimeException(ex);
+                }
+              });
+      waiter.start();
+
+      verify(log, timeout(5000))
+          .info("Waiting for another build to finish installing the Cloud SDK at " + sdkHome);
+      Assert.assertEquals(1, acquired.getCount());
+    }
+
+    Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    waiter.join();
+  }
+
+  @Test
+  public void testAcquire_afterRelease() throws IOException, InterruptedException {
+    CloudSdkInstallLock.acquire(sdkHome, log).close();
+
+    try (CloudSdkInstallLock lock = CloudSdkInstallLock.acquire(sdkHome, log)) {
+      Assert.assertNotNull(lock);
+    }
+  }
+}
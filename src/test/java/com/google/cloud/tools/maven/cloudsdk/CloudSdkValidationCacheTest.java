@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CloudSdkValidationCacheTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path sdkHome;
+  private CloudSdkValidationCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    sdkHome = tempFolder.newFolder("google-cloud-sdk").toPath();
+    Files.write(sdkHome.resolve("VERSION"), "192.0.0".getBytes(StandardCharsets.UTF_8));
+    cache = new CloudSdkValidationCache(tempFolder.newFolder("cache").toPath());
+  }
+
+  @Test
+  public void testIsValidated_recorded() {
+    Assert.assertFalse(cache.isValidated(sdkHome, "version 192.0.0"));
+
+    cache.recordValidated(sdkHome, "version 192.0.0");
+
+    Assert.assertTrue(cache.isValidated(sdkHome, "version 192.0.0"));
+    Assert.assertFalse(cache.isValidated(sdkHome, "version 193.0.0"));
+  }
+
+  @Test
+  public void testIsValidated_versionFileChanged() throws IOException {
+    cache.recordValidated(sdkHome, "version 192.0.0");
+
+    Files.setLastModifiedTime(
+        sdkHome.resolve("VERSION"), FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+    Assert.assertFalse(cache.isValidated(sdkHome, "version 192.0.0"));
+  }
+
+  @Test
+  public void testIsValidated_componentsChanged() throws IOException {
+    Path install = Files.createDirectory(sdkHome.resolve(".install"));
+    cache.recordValidated(sdkHome, "components [app-engine-java]");
+
+    Files.setLastModifiedTime(install, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+    Assert.assertFalse(cache.isValidated(sdkHome, "components [app-engine-java]"));
+  }
+
+  @Test
+  public void testRecordValidated_notAnSdk() throws IOException {
+    Path notAnSdk = tempFolder.newFolder("not-an-sdk").toPath();
+
+    cache.recordValidated(notAnSdk, "version 192.0.0");
+
+    Assert.assertNull(cache.markerFile(notAnSdk, "version 192.0.0"));
+    Assert.assertFalse(cache.isValidated(notAnSdk, "version 192.0.0"));
+  }
+}
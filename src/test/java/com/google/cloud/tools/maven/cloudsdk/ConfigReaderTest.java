@@ -21,6 +21,14 @@ import static org.mockito.Mockito.mock;
 
 import com.google.cloud.tools.appengine.operations.Gcloud;
 import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkConfig;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import junitparams.converters.Nullable;
@@ -30,7 +38,6 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -41,12 +48,15 @@ public class ConfigReaderTest {
   @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Mock private Gcloud gcloud;
-  @InjectMocks private ConfigReader testReader;
+  private CloudSdkConfig config;
+  private ConfigReader testReader;
 
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
-    Mockito.when(gcloud.getConfig()).thenReturn(mock(CloudSdkConfig.class));
+    testReader = newReader(null, ImmutableMap.of());
+    config = mock(CloudSdkConfig.class);
+    Mockito.when(gcloud.getConfig()).thenReturn(config);
   }
 
   @Test
@@ -68,4 +78,128 @@ public class ConfigReaderTest {
       Assert.assertEquals("Project was not found in gcloud config", ex.getMessage());
     }
   }
+
+  @Test
+  public void testGetProjectId_readOncePerSession() throws Exception {
+    Mockito.when(gcloud.getConfig().getProject()).thenReturn("some-project");
+
+    Assert.assertEquals("some-project", testReader.getProjectId());
+    Assert.assertEquals("some-project", testReader.getProjectId());
+    Mockito.verify(config, Mockito.times(1)).getProject();
+  }
+
+  @Test
+  public void testGetProjectId_fromConfigurationFile() throws Exception {
+    writeConfiguration(
+        "default", "[core]\naccount = someone@example.com\nproject = file-project\n");
+
+    Assert.assertEquals("file-project", testReader.getProjectId());
+    Mockito.verifyZeroInteractions(gcloud);
+  }
+
+  @Test
+  public void testGetProjectId_fromActiveConfigurationFile() throws Exception {
+    writeConfiguration("default", "[core]\nproject = default-project\n");
+    writeConfiguration("staging", "[core]\nproject = staging-project\n");
+    Files.write(
+        configDirectory().resolve("active_config"), "staging".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals("staging-project", testReader.getProjectId());
+    Mockito.verifyZeroInteractions(gcloud);
+  }
+
+  @Test
+  public void testGetProjectId_fromProjectOverride() throws Exception {
+    writeConfiguration("default", "[core]\nproject = file-project\n");
+
+    Assert.assertEquals(
+        "env-project",
+        newReader(null, ImmutableMap.of("CLOUDSDK_CORE_PROJECT", "env-project")).getProjectId());
+    Mockito.verifyZeroInteractions(gcloud);
+  }
+
+  @Test
+  public void testGetProjectId_unrecognizedConfigurationFallsBackToGcloud() throws Exception {
+    writeConfiguration("default", "project file-project\n");
+    Mockito.when(gcloud.getConfig().getProject()).thenReturn("some-project");
+
+    Assert.assertEquals("some-project", testReader.getProjectId());
+  }
+
+  @Test
+  public void testGetProjectId_projectCache() throws Exception {
+    Path configFile = writeConfiguration("default", "[core]\naccount = someone@example.com\n");
+    GcloudProjectCache projectCache =
+        new GcloudProjectCache(
+            temporaryFolder.newFolder().toPath(), () -> temporaryFolder.getRoot().toPath(), null);
+    Mockito.when(gcloud.getConfig().getProject()).thenReturn("some-project");
+
+    Assert.assertEquals("some-project", newReader(projectCache, ImmutableMap.of()).getProjectId());
+    Assert.assertEquals("some-project", projectCache.get(configFile));
+    Assert.assertEquals("some-project", newReader(projectCache, ImmutableMap.of()).getProjectId());
+    Mockito.verify(config, Mockito.times(1)).getProject();
+  }
+
+  @Test
+  public void testGetProjectId_projectCacheInvalidatedByConfigurationChange() throws Exception {
+    Path configFile = writeConfiguration("default", "[core]\naccount = someone@example.com\n");
+    GcloudProjectCache projectCache =
+        new GcloudProjectCache(
+            temporaryFolder.newFolder().toPath(), () -> temporaryFolder.getRoot().toPath(), null);
+    projectCache.put(configFile, "some-project");
+    Files.setLastModifiedTime(configFile, FileTime.fromMillis(0));
+    Mockito.when(gcloud.getConfig().getProject()).thenReturn("other-project");
+
+    Assert.assertEquals("other-project", newReader(projectCache, ImmutableMap.of()).getProjectId());
+  }
+
+  @Test
+  public void testGetProjectId_readOncePerInstallation() throws Exception {
+    Mockito.when(gcloud.getConfig().getProject()).thenReturn("some-project", "other-project");
+    SessionCache sessionCache = new SessionCache();
+
+    Assert.assertEquals(
+        "some-project", newReader(sessionCache, "gcloudProject:/sdk", null).getProjectId());
+    Assert.assertEquals(
+        "some-project", newReader(sessionCache, "gcloudProject:/sdk", null).getProjectId());
+    Assert.assertEquals(
+        "other-project", newReader(sessionCache, "gcloudProject:/other-sdk", null).getProjectId());
+  }
+
+  private ConfigReader newReader(GcloudProjectCache projectCache, Map<String, String> environment)
+      throws IOException {
+    return newReader(new SessionCache(), "gcloudProject", projectCache, environment);
+  }
+
+  private ConfigReader newReader(
+      SessionCache sessionCache, String projectKey, GcloudProjectCache projectCache)
+      throws IOException {
+    return newReader(sessionCache, projectKey, projectCache, ImmutableMap.of());
+  }
+
+  private ConfigReader newReader(
+      SessionCache sessionCache,
+      String projectKey,
+      GcloudProjectCache projectCache,
+      Map<String, String> environment)
+      throws IOException {
+    Map<String, String> configEnvironment = new HashMap<>(environment);
+    configEnvironment.put("CLOUDSDK_CONFIG", configDirectory().toString());
+    return new ConfigReader(
+        () -> gcloud,
+        sessionCache,
+        projectKey,
+        projectCache,
+        new GcloudConfigDirectory(configEnvironment, "/home/nobody", false));
+  }
+
+  private Path configDirectory() {
+    return temporaryFolder.getRoot().toPath().resolve("gcloud");
+  }
+
+  private Path writeConfiguration(String name, String properties) throws IOException {
+    Path configFile = configDirectory().resolve("configurations").resolve("config_" + name);
+    Files.createDirectories(configFile.getParent());
+    return Files.write(configFile, properties.getBytes(StandardCharsets.UTF_8));
+  }
 }
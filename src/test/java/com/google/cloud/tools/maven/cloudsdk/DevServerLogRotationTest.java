@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DevServerLogRotationTest {
+
+  @Test
+  public void testParseSize() {
+    Assert.assertEquals(0, DevServerLogRotation.parseSize("0"));
+    Assert.assertEquals(100, DevServerLogRotation.parseSize("100"));
+    Assert.assertEquals(100, DevServerLogRotation.parseSize("100B"));
+    Assert.assertEquals(512 * 1024, DevServerLogRotation.parseSize("512KB"));
+    Assert.assertEquals(100 * 1024 * 1024, DevServerLogRotation.parseSize(" 100 mb "));
+    Assert.assertEquals(2L * 1024 * 1024 * 1024, DevServerLogRotation.parseSize("2g"));
+  }
+
+  @Test
+  public void testParseSize_invalid() {
+    try {
+      DevServerLogRotation.parseSize("100TB");
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals(
+          "Invalid logMaxSize '100TB', expected a number of bytes like 512KB or 100MB",
+          ex.getMessage());
+    }
+  }
+}
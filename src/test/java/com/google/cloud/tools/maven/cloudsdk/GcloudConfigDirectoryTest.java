@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GcloudConfigDirectoryTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testGetDirectory_userHome() {
+    GcloudConfigDirectory directory =
+        new GcloudConfigDirectory(ImmutableMap.of(), "/home/user", false);
+    Assert.assertEquals(Paths.get("/home/user", ".config", "gcloud"), directory.getDirectory());
+  }
+
+  @Test
+  public void testGetDirectory_windowsAppData() {
+    GcloudConfigDirectory directory =
+        new GcloudConfigDirectory(ImmutableMap.of("APPDATA", "/appdata"), "/home/user", true);
+    Assert.assertEquals(Paths.get("/appdata", "gcloud"), directory.getDirectory());
+  }
+
+  @Test
+  public void testGetDirectory_cloudSdkConfig() {
+    GcloudConfigDirectory directory =
+        new GcloudConfigDirectory(
+            ImmutableMap.of("CLOUDSDK_CONFIG", "/custom", "APPDATA", "/appdata"),
+            "/home/user",
+            true);
+    Assert.assertEquals(Paths.get("/custom"), directory.getDirectory());
+  }
+
+  @Test
+  public void testGetActiveConfigurationFile_default() {
+    GcloudConfigDirectory directory = newDirectory(ImmutableMap.of());
+    Assert.assertEquals(
+        tempFolder.getRoot().toPath().resolve("configurations").resolve("config_default"),
+        directory.getActiveConfigurationFile());
+  }
+
+  @Test
+  public void testGetActiveConfigurationFile_activeConfig() throws IOException {
+    Files.write(
+        tempFolder.getRoot().toPath().resolve("active_config"),
+        "staging\n".getBytes(StandardCharsets.UTF_8));
+    GcloudConfigDirectory directory = newDirectory(ImmutableMap.of());
+    Assert.assertEquals("staging", directory.getActiveConfigurationName());
+  }
+
+  @Test
+  public void testGetActiveConfigurationFile_activeConfigName() throws IOException {
+    Files.write(
+        tempFolder.getRoot().toPath().resolve("active_config"),
+        "staging".getBytes(StandardCharsets.UTF_8));
+    GcloudConfigDirectory directory =
+        newDirectory(ImmutableMap.of("CLOUDSDK_ACTIVE_CONFIG_NAME", "prod"));
+    Path configFile = directory.getActiveConfigurationFile();
+    Assert.assertEquals("config_prod", configFile.getFileName().toString());
+  }
+
+  @Test
+  public void testGetProjectOverride() {
+    Assert.assertNull(newDirectory(ImmutableMap.of()).getProjectOverride());
+    Assert.assertNull(
+        newDirectory(ImmutableMap.of("CLOUDSDK_CORE_PROJECT", "")).getProjectOverride());
+    Assert.assertEquals(
+        "env-project",
+        newDirectory(ImmutableMap.of("CLOUDSDK_CORE_PROJECT", "env-project")).getProjectOverride());
+  }
+
+  @Test
+  public void testReadProject() throws IOException {
+    writeConfiguration("default", "[core]\nproject = file-project\n");
+    Assert.assertEquals("file-project", newDirectory(ImmutableMap.of()).readProject());
+  }
+
+  @Test
+  public void testReadProject_noConfiguration() {
+    Assert.assertNull(newDirectory(ImmutableMap.of()).readProject());
+  }
+
+  @Test
+  public void testReadProject_noProject() throws IOException {
+    writeConfiguration("default", "[core]\naccount = someone@example.com\n");
+    Assert.assertNull(newDirectory(ImmutableMap.of()).readProject());
+  }
+
+  @Test
+  public void testReadProject_unrecognizedFormat() throws IOException {
+    writeConfiguration("default", "[core]\nproject\n");
+    Assert.assertNull(newDirectory(ImmutableMap.of()).readProject());
+  }
+
+  @Test
+  public void testReadProperty() throws IOException {
+    Path file =
+        writeConfiguration(
+            "default",
+            "# comment\n"
+                + "[compute]\n"
+                + "project = wrong-section\n"
+                + "; comment\n"
+                + "[core]\n"
+                + "account: someone@example.com\n"
+                + "  continued\n"
+                + "\n"
+                + "Project=core-project\n");
+    Assert.assertEquals(
+        "core-project", GcloudConfigDirectory.readProperty(file, "core", "project"));
+    Assert.assertEquals(
+        "someone@example.com", GcloudConfigDirectory.readProperty(file, "core", "account"));
+    Assert.assertNull(GcloudConfigDirectory.readProperty(file, "core", "disable_usage_reporting"));
+  }
+
+  private Path writeConfiguration(String name, String properties) throws IOException {
+    Path configFile =
+        tempFolder.getRoot().toPath().resolve("configurations").resolve("config_" + name);
+    Files.createDirectories(configFile.getParent());
+    return Files.write(configFile, properties.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private GcloudConfigDirectory newDirectory(ImmutableMap<String, String> environment) {
+    return new GcloudConfigDirectory(
+        ImmutableMap.<String, String>builder()
+            .putAll(environment)
+            .put("CLOUDSDK_CONFIG", tempFolder.getRoot().toString())
+            .build(),
+        "/home/nobody",
+        false);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GcloudProjectCacheTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path configFile;
+  private Path cloudSdkHome;
+  private Path cacheDirectory;
+  private GcloudProjectCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    configFile = tempFolder.newFile("config_default").toPath();
+    Files.setLastModifiedTime(configFile, FileTime.fromMillis(1000));
+    cloudSdkHome = tempFolder.newFolder("google-cloud-sdk").toPath();
+    cacheDirectory = tempFolder.newFolder("cache").toPath();
+    cache = new GcloudProjectCache(cacheDirectory, () -> cloudSdkHome, null);
+  }
+
+  @Test
+  public void testGet_notCached() {
+    Assert.assertNull(cache.get(configFile));
+  }
+
+  @Test
+  public void testGet_cached() {
+    cache.put(configFile, "some-project");
+    Assert.assertEquals("some-project", cache.get(configFile));
+  }
+
+  @Test
+  public void testGet_configurationChanged() throws IOException {
+    cache.put(configFile, "some-project");
+    Files.setLastModifiedTime(configFile, FileTime.fromMillis(2000));
+    Assert.assertNull(cache.get(configFile));
+  }
+
+  @Test
+  public void testGet_installationPropertiesChanged() throws IOException {
+    Path installationProperties = Files.createFile(cloudSdkHome.resolve("properties"));
+    Files.setLastModifiedTime(installationProperties, FileTime.fromMillis(1000));
+    cache.put(configFile, "some-project");
+    Assert.assertEquals("some-project", cache.get(configFile));
+
+    Files.setLastModifiedTime(installationProperties, FileTime.fromMillis(2000));
+    Assert.assertNull(cache.get(configFile));
+  }
+
+  @Test
+  public void testGet_installationPropertiesCreated() throws IOException {
+    cache.put(configFile, "some-project");
+    Files.createFile(cloudSdkHome.resolve("properties"));
+    Assert.assertNull(cache.get(configFile));
+  }
+
+  @Test
+  public void testGet_projectOverrideChanged() {
+    new GcloudProjectCache(cacheDirectory, () -> cloudSdkHome, "env-project")
+        .put(configFile, "env-project");
+    Assert.assertNull(cache.get(configFile));
+    Assert.assertNull(
+        new GcloudProjectCache(cacheDirectory, () -> cloudSdkHome, "other-project")
+            .get(configFile));
+    Assert.assertEquals(
+        "env-project",
+        new GcloudProjectCache(cacheDirectory, () -> cloudSdkHome, "env-project").get(configFile));
+  }
+
+  @Test
+  public void testGet_configurationDeleted() throws IOException {
+    cache.put(configFile, "some-project");
+    Files.delete(configFile);
+    Assert.assertNull(cache.get(configFile));
+  }
+
+  @Test
+  public void testPut_missingConfigurationIgnored() throws IOException {
+    Files.delete(configFile);
+    cache.put(configFile, "some-project");
+    Assert.assertFalse(Files.exists(cache.entryFile(configFile)));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LoggingProgressListenerTest {
+
+  @Mock private Log log;
+
+  private long nanoTime;
+  private LoggingProgressListener.Summary summary;
+  private LoggingProgressListener listener;
+
+  @Before
+  public void setUp() {
+    summary = new LoggingProgressListener.Summary();
+    listener = new LoggingProgressListener(log, () -> nanoTime, summary);
+  }
+
+  @Test
+  public void testUpdate_throttled() {
+    listener.start("Downloading sdk.tar.gz", 100 * 1024 * 1024);
+    advanceSeconds(1);
+    listener.update(10 * 1024 * 1024);
+
+    verify(log).info("Downloading sdk.tar.gz (100.0 MB)");
+    verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testUpdate_rateAndEta() {
+    listener.start("Downloading sdk.tar.gz", 100 * 1024 * 1024);
+    advanceSeconds(1);
+    listener.update(10 * 1024 * 1024);
+    advanceSeconds(4);
+    listener.update(10 * 1024 * 1024);
+
+    verify(log).info("Downloading sdk.tar.gz: 20.0 MB of 100.0 MB (20%), 4.0 MB/s, 20s left");
+  }
+
+  @Test
+  public void testUpdate_unknownTotal() {
+    listener.start("Extracting archive", ProgressListener.UNKNOWN);
+    listener.update(2048);
+    advanceSeconds(5);
+    listener.update(3072);
+
+    verify(log).info("Extracting archive");
+    verify(log).info("Extracting archive: 5.0 KB, 1.0 KB/s");
+  }
+
+  @Test
+  public void testDone_recordsTiming() {
+    listener.start("Downloading sdk.tar.gz", 2048);
+    listener.update(2048);
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(1500);
+    listener.done();
+
+    verify(log).info("Downloading sdk.tar.gz: done in 1.5s (2.0 KB)");
+    Assert.assertEquals(
+        "{\"tasks\":[{\"name\":\"Downloading sdk.tar.gz\",\"millis\":1500,\"workDone\":2048}]}",
+        summary.toJson());
+  }
+
+  @Test
+  public void testNewChild_sharesSummary() {
+    listener.start("Installing Cloud SDK", 100);
+    ProgressListener download = listener.newChild(50);
+    download.start("Downloading", 10);
+    advanceSeconds(2);
+    download.done();
+    ProgressListener extract = listener.newChild(50);
+    extract.start("Extracting", 10);
+    advanceSeconds(1);
+    extract.done();
+    listener.done();
+
+    Assert.assertEquals(
+        "{\"tasks\":["
+            + "{\"name\":\"Downloading\",\"millis\":2000,\"workDone\":0},"
+            + "{\"name\":\"Extracting\",\"millis\":1000,\"workDone\":0},"
+            + "{\"name\":\"Installing Cloud SDK\",\"millis\":3000,\"workDone\":0}]}",
+        summary.toJson());
+  }
+
+  @Test
+  public void testFormat() {
+    Assert.assertEquals("1023 B", LoggingProgressListener.format(1023));
+    Assert.assertEquals("1.5 KB", LoggingProgressListener.format(1536));
+    Assert.assertEquals("2.0 GB", LoggingProgressListener.format(2L * 1024 * 1024 * 1024));
+  }
+
+  private void advanceSeconds(long seconds) {
+    nanoTime += TimeUnit.SECONDS.toNanos(seconds);
+  }
+}
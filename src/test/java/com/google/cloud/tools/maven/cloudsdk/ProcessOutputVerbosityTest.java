@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessOutputVerbosityTest {
+
+  @Test
+  public void testFromConfigValue() {
+    Assert.assertEquals(ProcessOutputVerbosity.ALL, ProcessOutputVerbosity.fromConfigValue(null));
+    Assert.assertEquals(ProcessOutputVerbosity.ALL, ProcessOutputVerbosity.fromConfigValue("all"));
+    Assert.assertEquals(
+        ProcessOutputVerbosity.SUMMARY, ProcessOutputVerbosity.fromConfigValue("Summary"));
+    Assert.assertEquals(
+        ProcessOutputVerbosity.QUIET, ProcessOutputVerbosity.fromConfigValue(" quiet "));
+  }
+
+  @Test
+  public void testFromConfigValue_invalid() {
+    try {
+      ProcessOutputVerbosity.fromConfigValue("verbose");
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals(
+          "Invalid processOutputVerbosity 'verbose', expected one of: all, summary, quiet",
+          ex.getMessage());
+    }
+  }
+}
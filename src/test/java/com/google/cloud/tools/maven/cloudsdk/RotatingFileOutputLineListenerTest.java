@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RotatingFileOutputLineListenerTest {
+
+  private static final String NL = System.lineSeparator();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path file;
+
+  @Before
+  public void setUp() {
+    file = tempFolder.getRoot().toPath().resolve("dev_appserver.out");
+  }
+
+  @Test
+  public void testWrite() throws IOException {
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(file, DevServerLogRotation.DEFAULT, log);
+    listener.onOutputLine("line 1");
+    listener.onOutputLine("line 2");
+    listener.close();
+
+    Assert.assertEquals("line 1" + NL + "line 2" + NL, read(file));
+  }
+
+  @Test
+  public void testWrite_truncatesPreviousRun() throws IOException {
+    Files.write(file, "old".getBytes(StandardCharsets.UTF_8));
+    Path oldSegment = Files.write(file.resolveSibling("dev_appserver.out.1.gz"), new byte[0]);
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(file, DevServerLogRotation.DEFAULT, log);
+    listener.onOutputLine("new");
+    listener.close();
+
+    Assert.assertEquals("new" + NL, read(file));
+    Assert.assertFalse(Files.exists(oldSegment));
+  }
+
+  @Test
+  public void testRotate() throws IOException {
+    long lineSize = ("line 0" + NL).length();
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(
+            file, new DevServerLogRotation(lineSize * 2, 2, false), log);
+    for (int i = 0; i < 7; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Assert.assertEquals("line 6" + NL, read(file));
+    Assert.assertEquals("line 4" + NL + "line 5" + NL, read(listener.segment(1, false)));
+    Assert.assertEquals("line 2" + NL + "line 3" + NL, read(listener.segment(2, false)));
+    Assert.assertFalse(Files.exists(listener.segment(3, false)));
+  }
+
+  @Test
+  public void testRotate_compressed() throws IOException {
+    long lineSize = ("line 0" + NL).length();
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(file, new DevServerLogRotation(lineSize, 1, true), log);
+    for (int i = 0; i < 3; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Assert.assertEquals("line 2" + NL, read(file));
+    Assert.assertFalse(Files.exists(listener.segment(1, false)));
+    try (InputStream gzip = new GZIPInputStream(Files.newInputStream(listener.segment(1, true)))) {
+      Assert.assertEquals(
+          "line 1" + NL, new String(ByteStreams.toByteArray(gzip), StandardCharsets.UTF_8));
+    }
+    Assert.assertFalse(Files.exists(listener.segment(2, true)));
+  }
+
+  @Test
+  public void testRotate_compressedInOrder() throws IOException {
+    long lineSize = ("line 0" + NL).length();
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(file, new DevServerLogRotation(lineSize, 2, true), log);
+    for (int i = 0; i < 5; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Assert.assertEquals("line 4" + NL, read(file));
+    Assert.assertEquals("line 3" + NL, readCompressed(listener.segment(1, true)));
+    Assert.assertEquals("line 2" + NL, readCompressed(listener.segment(2, true)));
+    try (Stream<Path> files = Files.list(tempFolder.getRoot().toPath())) {
+      Assert.assertEquals(3, files.count());
+    }
+  }
+
+  @Test
+  public void testRotate_noRotatedFiles() throws IOException {
+    long lineSize = ("line 0" + NL).length();
+    RotatingFileOutputLineListener listener =
+        new RotatingFileOutputLineListener(file, new DevServerLogRotation(lineSize, 0, false), log);
+    listener.onOutputLine("line 0");
+    listener.onOutputLine("line 1");
+    listener.close();
+
+    Assert.assertEquals("line 1" + NL, read(file));
+    Assert.assertFalse(Files.exists(listener.segment(1, false)));
+  }
+
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+
+  private static String readCompressed(Path path) throws IOException {
+    try (InputStream gzip = new GZIPInputStream(Files.newInputStream(path))) {
+      return new String(ByteStreams.toByteArray(gzip), StandardCharsets.UTF_8);
+    }
+  }
+}
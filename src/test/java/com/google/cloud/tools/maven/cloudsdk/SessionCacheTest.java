@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SessionCacheTest {
+
+  @Mock private MavenSession mavenSession;
+
+  @Test
+  public void testGet_computesOnce() {
+    SessionCache cache = new SessionCache();
+    AtomicInteger calls = new AtomicInteger();
+
+    Assert.assertEquals(
+        "value",
+        cache.get(
+            "key",
+            () -> {
+              calls.incrementAndGet();
+              return "value";
+            }));
+    Assert.assertEquals("value", cache.get("key", () -> "other"));
+    Assert.assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testGet_failureNotCached() {
+    SessionCache cache = new SessionCache();
+    try {
+      cache.get(
+          "key",
+          () -> {
+            throw new IllegalStateException("failed");
+          });
+      Assert.fail();
+    } catch (IllegalStateException ex) {
+      Assert.assertEquals("failed", ex.getMessage());
+    }
+
+    Assert.assertEquals("value", cache.get("key", () -> "value"));
+  }
+
+  @Test
+  public void testComputeInBackground_failureReportedOnce() {
+    SessionCache cache = new SessionCache();
+    cache.computeInBackground(
+        "key",
+        () -> {
+          throw new IllegalStateException("failed");
+        },
+        "test");
+
+    try {
+      cache.get("key", () -> "not called");
+      Assert.fail();
+    } catch (IllegalStateException ex) {
+      Assert.assertEquals("failed", ex.getMessage());
+    }
+    Assert.assertEquals("value", cache.get("key", () -> "value"));
+  }
+
+  @Test
+  public void testComputeInBackground_alreadyComputed() throws Exception {
+    SessionCache cache = new SessionCache();
+    cache.get("key", () -> "value");
+
+    Future<?> computation = cache.computeInBackground("key", () -> "other", "test");
+
+    Assert.assertEquals("value", computation.get());
+    Assert.assertEquals("value", cache.get("key", () -> "other"));
+  }
+
+  @Test
+  public void testInvalidate() {
+    SessionCache cache = new SessionCache();
+    cache.get("key", () -> "value");
+
+    cache.invalidate("key");
+
+    Assert.assertEquals("other", cache.get("key", () -> "other"));
+  }
+
+  @Test
+  public void testForSession_sharedBySession() {
+    when(mavenSession.getRepositorySession()).thenReturn(new DefaultRepositorySystemSession());
+
+    SessionCache cache = SessionCache.forSession(mavenSession);
+
+    Assert.assertNotNull(cache);
+    Assert.assertSame(cache, SessionCache.forSession(mavenSession));
+  }
+
+  @Test
+  public void testForSession_noSessionData() {
+    Assert.assertNull(SessionCache.forSession(mavenSession));
+    Assert.assertNull(SessionCache.forSession(null));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UpdateCheckThrottleTest {
+
+  private static final Instant NOW = Instant.parse("2018-10-01T12:00:00Z");
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path sdkHome;
+
+  @Before
+  public void setUp() throws IOException {
+    sdkHome = tempFolder.newFolder("google-cloud-sdk").toPath();
+  }
+
+  @Test
+  public void testParseInterval() {
+    Assert.assertNull(UpdateCheckThrottle.parseInterval(null));
+    Assert.assertEquals(Duration.ZERO, UpdateCheckThrottle.parseInterval("0"));
+    Assert.assertEquals(Duration.ofSeconds(90), UpdateCheckThrottle.parseInterval("90"));
+    Assert.assertEquals(Duration.ofSeconds(90), UpdateCheckThrottle.parseInterval("90s"));
+    Assert.assertEquals(Duration.ofMinutes(30), UpdateCheckThrottle.parseInterval("30m"));
+    Assert.assertEquals(Duration.ofHours(24), UpdateCheckThrottle.parseInterval(" 24H "));
+    Assert.assertEquals(Duration.ofDays(7), UpdateCheckThrottle.parseInterval("7d"));
+  }
+
+  @Test
+  public void testParseInterval_invalid() {
+    try {
+      UpdateCheckThrottle.parseInterval("daily");
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals(
+          "Invalid cloudSdkUpdateCheckInterval 'daily', expected a number of seconds, minutes,"
+              + " hours or days like 30m or 24h",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testIsCheckDue_neverChecked() {
+    Assert.assertTrue(throttleAt(NOW, Duration.ofHours(24)).isCheckDue());
+  }
+
+  @Test
+  public void testIsCheckDue_withinInterval() {
+    throttleAt(NOW, Duration.ofHours(24)).recordCheck();
+
+    Assert.assertFalse(throttleAt(NOW.plusSeconds(3600), Duration.ofHours(24)).isCheckDue());
+  }
+
+  @Test
+  public void testIsCheckDue_intervalElapsed() {
+    throttleAt(NOW, Duration.ofHours(24)).recordCheck();
+
+    Assert.assertTrue(
+        throttleAt(NOW.plus(Duration.ofHours(24)), Duration.ofHours(24)).isCheckDue());
+  }
+
+  @Test
+  public void testIsCheckDue_zeroInterval() {
+    throttleAt(NOW, Duration.ZERO).recordCheck();
+
+    Assert.assertTrue(throttleAt(NOW, Duration.ZERO).isCheckDue());
+  }
+
+  @Test
+  public void testIsCheckDue_lastCheckInTheFuture() {
+    throttleAt(NOW, Duration.ofHours(24)).recordCheck();
+
+    Assert.assertTrue(throttleAt(NOW.minusSeconds(60), Duration.ofHours(24)).isCheckDue());
+  }
+
+  private UpdateCheckThrottle throttleAt(Instant now, Duration interval) {
+    return new UpdateCheckThrottle(sdkHome, interval, Clock.fixed(now, ZoneOffset.UTC));
+  }
+}
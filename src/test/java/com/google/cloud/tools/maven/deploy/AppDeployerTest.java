@@ -24,12 +24,14 @@ import com.google.cloud.tools.appengine.configuration.DeployProjectConfiguration
 import com.google.cloud.tools.appengine.operations.Deployment;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
 import com.google.cloud.tools.maven.stage.Stager;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -60,6 +62,7 @@ public class AppDeployerTest {
   @Mock private DeployConfiguration deployConfiguration;
   @Mock private DeployProjectConfigurationConfiguration deployProjectConfigurationConfiguration;
   @Mock private Log mockLog;
+  @Mock private ReactorStaging reactorStaging;
 
   private AppDeployer testDeployer;
 
@@ -68,11 +71,14 @@ public class AppDeployerTest {
     stagingDirectory = tempFolder.newFolder("staging").toPath();
     appengineDirectory = tempFolder.newFolder("appengine").toPath();
 
-    testDeployer = new AppDeployer(deployMojo, stager, configBuilder, appengineDirectory);
+    testDeployer =
+        new AppDeployer(deployMojo, stager, configBuilder, appengineDirectory, reactorStaging);
 
     Mockito.when(deployMojo.getStagingDirectory()).thenReturn(stagingDirectory);
     Mockito.when(deployMojo.getAppEngineFactory()).thenReturn(appEngineFactory);
     Mockito.when(appEngineFactory.deployment()).thenReturn(appEngineDeployment);
+    Mockito.when(appEngineFactory.deployment(Mockito.any(DeployOutputParser.class)))
+        .thenReturn(appEngineDeployment);
     Mockito.when(configBuilder.buildDeployProjectConfigurationConfiguration(appengineDirectory))
         .thenReturn(deployProjectConfigurationConfiguration);
     Mockito.when(deployMojo.getLog()).thenReturn(mockLog);
@@ -85,6 +91,38 @@ public class AppDeployerTest {
     testDeployer.deploy();
     Mockito.verify(stager).stage();
     Mockito.verify(appEngineDeployment).deploy(deployConfiguration);
+    Mockito.verify(appEngineFactory).awaitCloudSdkProvisioning();
+  }
+
+  @Test
+  public void testDeploy_stagingFailureAwaitsCloudSdkProvisioning() throws MojoExecutionException {
+    MojoExecutionException failure = new MojoExecutionException("staging failed");
+    Mockito.doThrow(failure).when(stager).stage();
+
+    try {
+      testDeployer.deploy();
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertSame(failure, ex);
+    }
+    Mockito.verify(appEngineFactory).awaitCloudSdkProvisioning();
+    Mockito.verifyNoMoreInteractions(appEngineDeployment);
+  }
+
+  @Test
+  public void testDeploy_failure() throws AppEngineException {
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(stagingDirectory)))
+        .thenReturn(deployConfiguration);
+    Mockito.doThrow(new AppEngineException("test"))
+        .when(appEngineDeployment)
+        .deploy(deployConfiguration);
+
+    try {
+      testDeployer.deploy();
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("App Engine application deployment failed", ex.getMessage());
+    }
   }
 
   private List<Path> createStagedYamls(String... names) throws IOException {
@@ -150,10 +188,48 @@ public class AppDeployerTest {
     }
   }
 
+  @Test
+  public void testDeploy_reusesStaging() throws MojoExecutionException, AppEngineException {
+    Mockito.when(reactorStaging.isStaged(deployMojo)).thenReturn(true);
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(stagingDirectory)))
+        .thenReturn(deployConfiguration);
+
+    testDeployer.deploy();
+
+    Mockito.verify(stager, Mockito.never()).stage();
+    Mockito.verify(appEngineDeployment).deploy(deployConfiguration);
+  }
+
+  @Test
+  public void testDeploy_recordsStaging() throws MojoExecutionException {
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(stagingDirectory)))
+        .thenReturn(deployConfiguration);
+
+    testDeployer.deploy();
+
+    Mockito.verify(stager).stage();
+    Mockito.verify(reactorStaging).record(Mockito.eq(deployMojo), Mockito.any(Duration.class));
+  }
+
+  @Test
+  public void testDeployCron_generatedConfiguration()
+      throws MojoExecutionException, AppEngineException {
+    // appengine-web.xml based applications generate their config yamls while staging
+    Path generatedDirectory = stagingDirectory.resolve("WEB-INF").resolve("appengine-generated");
+    Mockito.when(configBuilder.buildDeployProjectConfigurationConfiguration(generatedDirectory))
+        .thenReturn(deployProjectConfigurationConfiguration);
+
+    new AppDeployer(deployMojo, stager, configBuilder, generatedDirectory, reactorStaging)
+        .deployCron();
+
+    Mockito.verify(stager).stage();
+    Mockito.verify(appEngineDeployment).deployCron(deployProjectConfigurationConfiguration);
+  }
+
   @Test
   public void testDeployCron() throws MojoExecutionException, AppEngineException {
     testDeployer.deployCron();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployCron(deployProjectConfigurationConfiguration);
   }
@@ -161,7 +237,7 @@ public class AppDeployerTest {
   @Test
   public void testDeployDos() throws MojoExecutionException, AppEngineException {
     testDeployer.deployDos();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployDos(deployProjectConfigurationConfiguration);
   }
@@ -169,7 +245,7 @@ public class AppDeployerTest {
   @Test
   public void testDeployDispatch() throws MojoExecutionException, AppEngineException {
     testDeployer.deployDispatch();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployDispatch(deployProjectConfigurationConfiguration);
   }
@@ -177,7 +253,7 @@ public class AppDeployerTest {
   @Test
   public void testDeployIndex() throws MojoExecutionException, AppEngineException {
     testDeployer.deployIndex();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployIndex(deployProjectConfigurationConfiguration);
   }
@@ -185,7 +261,7 @@ public class AppDeployerTest {
   @Test
   public void testDeployQueue() throws MojoExecutionException, AppEngineException {
     testDeployer.deployQueue();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployQueue(deployProjectConfigurationConfiguration);
   }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.maven.deploy.DeployEvent.Type;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeployOutputParserTest {
+
+  private static final Instant NOW = Instant.parse("2018-06-01T10:15:30Z");
+
+  private List<DeployEvent> events;
+  private DeployOutputParser parser;
+
+  @Before
+  public void setUp() {
+    events = new ArrayList<>();
+    parser = new DeployOutputParser(events::add, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void testStandardDeployment() {
+    parse(
+        "Beginning deployment of service [default]...",
+        "INFO: Manifest: [3] files",
+        "#============================================================#",
+        "#= Uploading 2 files to Google Cloud Storage                =#",
+        "#============================================================#",
+        "INFO: Uploading [/tmp/staging/WEB-INF/web.xml] to [staging.my-project.appspot.com/1a2b]",
+        "INFO: Uploading [/tmp/staging/index.html] to [staging.my-project.appspot.com/3c4d]",
+        "File upload done.",
+        "Updating service [default]...........done.",
+        "Setting traffic split for service [default]...done.",
+        "Deployed service [default] to [https://my-project.appspot.com]");
+
+    Assert.assertEquals(
+        "[SERVICE_STARTED default, MANIFEST 3, UPLOAD_STARTED 2, UPLOAD_FINISHED,"
+            + " VERSION_UPDATED default, TRAFFIC_MIGRATED default, SERVICE_DEPLOYED default]",
+        describe(events));
+    Assert.assertEquals(NOW, events.get(0).getTime());
+  }
+
+  @Test
+  public void testFlexibleDeployment_interactive() {
+    parse(
+        "Beginning deployment of service [default]...",
+        "Building and pushing image for service [default]",
+        "Started cloud build [0a1b2c3d].",
+        "Step 1/3 : FROM gcr.io/google-appengine/openjdk",
+        "Updating service [default] (this may take several minutes)...",
+        "...done.",
+        "Deployed service [default] to [https://my-project.appspot.com]");
+
+    Assert.assertEquals(
+        "[SERVICE_STARTED default, BUILD_STARTED default, BUILD_STARTED 0a1b2c3d,"
+            + " VERSION_UPDATE_STARTED default, STEP_DONE, SERVICE_DEPLOYED default]",
+        describe(events));
+  }
+
+  @Test
+  public void testOtherLinesIgnored() {
+    parse(
+        "Services to deploy:",
+        "descriptor:      [/tmp/staging/app.yaml]",
+        "Uploading files",
+        "You can stream logs from the command line by running:",
+        "");
+
+    Assert.assertEquals(0, events.size());
+  }
+
+  @Test
+  public void testUploadWithoutCount() {
+    parse("File upload done.");
+
+    Assert.assertEquals(Type.UPLOAD_FINISHED, events.get(0).getType());
+    Assert.assertNull(events.get(0).getSubject());
+    Assert.assertEquals(-1, events.get(0).getCount());
+  }
+
+  private void parse(String... lines) {
+    for (String line : lines) {
+      parser.onOutputLine(line);
+    }
+  }
+
+  private static String describe(List<DeployEvent> events) {
+    return events
+        .stream()
+        .map(
+            event ->
+                event.getType()
+                    + (event.getSubject() != null ? " " + event.getSubject() : "")
+                    + (event.getCount() >= 0 ? " " + event.getCount() : ""))
+        .collect(Collectors.joining(", ", "[", "]"));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.tools.maven.deploy.DeployEvent.Type;
+import com.google.cloud.tools.maven.deploy.DeployProgressReporter.Phase;
+import java.time.Duration;
+import java.time.Instant;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeployProgressReporterTest {
+
+  private static final Instant START = Instant.parse("2018-06-01T10:15:30Z");
+
+  @Mock private Log log;
+
+  private DeployProgressReporter reporter;
+
+  @Before
+  public void setUp() {
+    reporter = new DeployProgressReporter(log);
+  }
+
+  @Test
+  public void testUploadFinished() {
+    event(0, Type.UPLOAD_STARTED, null, 40);
+    event(8000, Type.UPLOAD_FINISHED, null, -1);
+
+    verify(log).info("Uploaded 40 files in 8.0s (5.0 files/s)");
+    Assert.assertEquals(Duration.ofSeconds(8), reporter.getDurations().get(Phase.UPLOAD));
+  }
+
+  @Test
+  public void testUploadFinished_prefix() {
+    reporter = new DeployProgressReporter(log, "[backend] ");
+    event(0, Type.UPLOAD_STARTED, null, 40);
+    event(8000, Type.UPLOAD_FINISHED, null, -1);
+
+    verify(log).info("[backend] Uploaded 40 files in 8.0s (5.0 files/s)");
+  }
+
+  @Test
+  public void testReport_nonInteractive() {
+    event(0, Type.SERVICE_STARTED, "default", -1);
+    event(1500, Type.UPLOAD_STARTED, null, 0);
+    event(4000, Type.UPLOAD_FINISHED, null, -1);
+    // without a terminal finished steps are printed on one line
+    event(34000, Type.VERSION_UPDATED, "default", -1);
+    event(36000, Type.TRAFFIC_MIGRATED, "default", -1);
+    event(36000, Type.SERVICE_DEPLOYED, "default", -1);
+    reporter.report();
+
+    verify(log)
+        .info(
+            "Deployment timings: file manifest 1.5s, upload 2.5s, version update 30.0s,"
+                + " traffic migration 2.0s");
+  }
+
+  @Test
+  public void testReport_interactive() {
+    event(0, Type.SERVICE_STARTED, "default", -1);
+    event(1000, Type.BUILD_STARTED, "default", -1);
+    event(2000, Type.BUILD_STARTED, "0a1b2c3d", -1);
+    event(61000, Type.VERSION_UPDATE_STARTED, "default", -1);
+    event(91000, Type.STEP_DONE, null, -1);
+    event(91000, Type.SERVICE_DEPLOYED, "default", -1);
+
+    Assert.assertEquals(Duration.ofSeconds(1), reporter.getDurations().get(Phase.MANIFEST));
+    Assert.assertEquals(Duration.ofSeconds(60), reporter.getDurations().get(Phase.BUILD));
+    Assert.assertEquals(Duration.ofSeconds(30), reporter.getDurations().get(Phase.VERSION_UPDATE));
+  }
+
+  @Test
+  public void testReport_summedOverServices() {
+    event(0, Type.SERVICE_STARTED, "default", -1);
+    event(10000, Type.VERSION_UPDATED, "default", -1);
+    event(10000, Type.SERVICE_STARTED, "backend", -1);
+    event(15000, Type.VERSION_UPDATED, "backend", -1);
+
+    Assert.assertEquals(Duration.ofSeconds(15), reporter.getDurations().get(Phase.VERSION_UPDATE));
+  }
+
+  @Test
+  public void testReport_nothingRecognized() {
+    reporter.report();
+
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  private void event(long millis, Type type, String subject, long count) {
+    reporter.accept(new DeployEvent(type, START.plusMillis(millis), subject, count));
+  }
+}
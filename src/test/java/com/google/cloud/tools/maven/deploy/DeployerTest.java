@@ -19,6 +19,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -63,6 +64,7 @@ public class DeployerTest {
         deployMojo.getStagingDirectory().resolve("WEB-INF").resolve("appengine-generated"),
         deployer.appengineDirectory);
     Assert.assertEquals(AppEngineWebXmlStager.class, deployer.stager.getClass());
+    Mockito.verify(appEngineFactory).provisionCloudSdkInBackground(true);
   }
 
   @Test
@@ -76,6 +78,7 @@ public class DeployerTest {
     Mockito.verify(deployMojo, times(0)).getAppEngineWebXml();
     Assert.assertEquals(appengineDir, deployer.appengineDirectory);
     Assert.assertEquals(AppYamlStager.class, deployer.stager.getClass());
+    Mockito.verify(appEngineFactory).provisionCloudSdkInBackground(false);
   }
 
   @Test
@@ -92,6 +95,24 @@ public class DeployerTest {
     }
   }
 
+  @Test
+  public void testNewDeployer_failureAwaitsCloudSdkProvisioning() throws MojoExecutionException {
+    Mockito.when(deployMojo.isAppEngineCompatiblePackaging()).thenReturn(true);
+    Mockito.when(deployMojo.getArtifact()).thenReturn(tempFolder.getRoot().toPath());
+    RuntimeException failure = new RuntimeException("config reader failed");
+    Mockito.when(appEngineFactory.newConfigReader()).thenThrow(failure);
+
+    try {
+      new Deployer.Factory().newDeployer(deployMojo);
+      Assert.fail();
+    } catch (RuntimeException ex) {
+      Assert.assertSame(failure, ex);
+    }
+    InOrder inOrder = Mockito.inOrder(appEngineFactory);
+    inOrder.verify(appEngineFactory).provisionCloudSdkInBackground(false);
+    inOrder.verify(appEngineFactory).awaitCloudSdkProvisioning();
+  }
+
   @Test
   public void testNewDeployer_noOpDeployer() throws MojoExecutionException {
     Mockito.when(deployMojo.isAppEngineCompatiblePackaging()).thenReturn(false);
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.appengine.operations.Deployment;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import com.google.cloud.tools.maven.stage.ReactorStaging.StagedApplication;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactorDeployerTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private AbstractDeployMojo deployMojo;
+  @Mock private ConfigBuilder configBuilder;
+  @Mock private ReactorStaging reactorStaging;
+  @Mock private CloudSdkAppEngineFactory appEngineFactory;
+  @Mock private Deployment deployment;
+  @Mock private DeployConfiguration deployConfiguration;
+  @Mock private Log log;
+
+  @Mock private MavenProject parent;
+  @Mock private MavenProject frontend;
+  @Mock private MavenProject backend;
+
+  private ReactorDeployer testDeployer;
+
+  @Before
+  public void setUp() {
+    Mockito.when(deployMojo.getLog()).thenReturn(log);
+    Mockito.when(frontend.getArtifactId()).thenReturn("frontend");
+    Mockito.when(backend.getArtifactId()).thenReturn("backend");
+    testDeployer = new ReactorDeployer(deployMojo, configBuilder, reactorStaging);
+  }
+
+  private StagedApplication stage(MavenProject project, String... configYamls) throws IOException {
+    Path staging = tempFolder.newFolder(project.getArtifactId(), "staging").toPath();
+    Path config = tempFolder.newFolder(project.getArtifactId(), "appengine").toPath();
+    Files.createFile(staging.resolve("app.yaml"));
+    for (String yaml : configYamls) {
+      Files.createFile(config.resolve(yaml));
+    }
+    StagedApplication application = Mockito.mock(StagedApplication.class);
+    Mockito.when(application.getStagingDirectory()).thenReturn(staging);
+    Mockito.when(application.getConfigDirectory()).thenReturn(config);
+    Mockito.when(reactorStaging.get(project)).thenReturn(application);
+    return application;
+  }
+
+  @Test
+  public void testDeploy_singleDeployment()
+      throws IOException, MojoExecutionException, AppEngineException {
+    StagedApplication frontendApplication = stage(frontend, "dispatch.yaml");
+    StagedApplication backendApplication = stage(backend, "cron.yaml", "queue.yaml");
+    Mockito.when(deployMojo.getAppEngineFactory()).thenReturn(appEngineFactory);
+    Mockito.when(appEngineFactory.deployment(Mockito.any(DeployOutputParser.class)))
+        .thenReturn(deployment);
+    Mockito.when(
+            configBuilder.buildDeployConfiguration(
+                ImmutableList.of(
+                    frontendApplication.getStagingDirectory().resolve("app.yaml"),
+                    backendApplication.getStagingDirectory().resolve("app.yaml"),
+                    frontendApplication.getConfigDirectory().resolve("dispatch.yaml"),
+                    backendApplication.getConfigDirectory().resolve("cron.yaml"),
+                    backendApplication.getConfigDirectory().resolve("queue.yaml"))))
+        .thenReturn(deployConfiguration);
+
+    testDeployer.deploy(ImmutableList.of(parent, frontend, backend));
+
+    Mockito.verify(deployment).deploy(deployConfiguration);
+  }
+
+  @Test
+  public void testDeploy_duplicateConfigYaml() throws IOException {
+    stage(frontend, "cron.yaml");
+    stage(backend, "cron.yaml");
+
+    try {
+      testDeployer.deploy(ImmutableList.of(frontend, backend));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Failed to deploy reactor: cron.yaml found in both frontend and backend",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testDeploy_missingAppYaml() throws IOException {
+    StagedApplication application = stage(frontend);
+    Files.delete(application.getStagingDirectory().resolve("app.yaml"));
+
+    try {
+      testDeployer.deploy(ImmutableList.of(frontend));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Failed to deploy reactor: could not find app.yaml of frontend", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testDeploy_nothingStaged() {
+    try {
+      testDeployer.deploy(ImmutableList.of(parent));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertTrue(ex.getMessage().contains("appengine:stage appengine:deployReactor"));
+    }
+  }
+}
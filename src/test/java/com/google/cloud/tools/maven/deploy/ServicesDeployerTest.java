@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.appengine.operations.Deployment;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
+import com.google.cloud.tools.maven.deploy.ServicesDeployer.ServiceResult;
+import com.google.cloud.tools.maven.stage.ReactorStaging;
+import com.google.cloud.tools.maven.stage.ReactorStaging.StagedApplication;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServicesDeployerTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private AbstractDeployMojo deployMojo;
+  @Mock private ConfigBuilder configBuilder;
+  @Mock private ReactorStaging reactorStaging;
+  @Mock private CloudSdkAppEngineFactory appEngineFactory;
+  @Mock private Deployment frontendDeployment;
+  @Mock private Deployment backendDeployment;
+  @Mock private DeployConfiguration frontendConfiguration;
+  @Mock private DeployConfiguration backendConfiguration;
+  @Mock private Log log;
+
+  @Mock private MavenProject parent;
+  @Mock private MavenProject frontend;
+  @Mock private MavenProject backend;
+
+  @Before
+  public void setUp() {
+    Mockito.when(deployMojo.getLog()).thenReturn(log);
+    Mockito.when(frontend.getArtifactId()).thenReturn("frontend");
+    Mockito.when(backend.getArtifactId()).thenReturn("backend");
+  }
+
+  private Path stage(MavenProject project) throws IOException {
+    Path staging = tempFolder.newFolder(project.getArtifactId()).toPath();
+    Path appYaml = Files.createFile(staging.resolve("app.yaml"));
+    StagedApplication application = Mockito.mock(StagedApplication.class);
+    Mockito.when(application.getStagingDirectory()).thenReturn(staging);
+    Mockito.when(application.getStagingTime()).thenReturn(Duration.ofSeconds(2));
+    Mockito.when(reactorStaging.get(project)).thenReturn(application);
+    return appYaml;
+  }
+
+  private void mockDeployments() throws IOException {
+    Path frontendAppYaml = stage(frontend);
+    Path backendAppYaml = stage(backend);
+    Mockito.when(
+            configBuilder.buildDeployConfiguration(
+                Mockito.eq(ImmutableList.of(frontendAppYaml)), Mockito.any(DeployService.class)))
+        .thenReturn(frontendConfiguration);
+    Mockito.when(
+            configBuilder.buildDeployConfiguration(
+                Mockito.eq(ImmutableList.of(backendAppYaml)), Mockito.any(DeployService.class)))
+        .thenReturn(backendConfiguration);
+    Mockito.when(deployMojo.getAppEngineFactory()).thenReturn(appEngineFactory);
+    Mockito.when(
+            appEngineFactory.deployment(
+                Mockito.any(DeployOutputParser.class), Mockito.eq("GCLOUD [frontend]: ")))
+        .thenReturn(frontendDeployment);
+    Mockito.when(
+            appEngineFactory.deployment(
+                Mockito.any(DeployOutputParser.class), Mockito.eq("GCLOUD [backend]: ")))
+        .thenReturn(backendDeployment);
+  }
+
+  @Test
+  public void testDeploy_allStagedModules()
+      throws IOException, MojoExecutionException, AppEngineException {
+    mockDeployments();
+
+    new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 2)
+        .deploy(ImmutableList.of(parent, frontend, backend), null);
+
+    Mockito.verify(frontendDeployment).deploy(frontendConfiguration);
+    Mockito.verify(backendDeployment).deploy(backendConfiguration);
+    Mockito.verify(log).info(ArgumentMatchers.startsWith("Service deployment summary:"));
+  }
+
+  @Test
+  public void testDeploy_failureDoesNotStopOtherServices() throws IOException, AppEngineException {
+    mockDeployments();
+    Mockito.doThrow(new AppEngineException("quota exceeded"))
+        .when(frontendDeployment)
+        .deploy(frontendConfiguration);
+
+    try {
+      new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 1)
+          .deploy(ImmutableList.of(frontend, backend), null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Failed to deploy services: frontend", ex.getMessage());
+    }
+    Mockito.verify(backendDeployment).deploy(backendConfiguration);
+  }
+
+  @Test
+  public void testDeploy_configuredServices() throws IOException, MojoExecutionException {
+    Path backendAppYaml = stage(backend);
+    DeployService service = new DeployService("backend");
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(backendAppYaml), service))
+        .thenReturn(backendConfiguration);
+    Mockito.when(deployMojo.getAppEngineFactory()).thenReturn(appEngineFactory);
+    Mockito.when(
+            appEngineFactory.deployment(
+                Mockito.any(DeployOutputParser.class), Mockito.eq("GCLOUD [backend]: ")))
+        .thenReturn(backendDeployment);
+
+    new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 4)
+        .deploy(ImmutableList.of(frontend, backend), ImmutableList.of(service));
+
+    Mockito.verifyNoMoreInteractions(frontendDeployment);
+  }
+
+  @Test
+  public void testDeploy_serviceNotStaged() {
+    try {
+      new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 4)
+          .deploy(ImmutableList.of(frontend), ImmutableList.of(new DeployService("frontend")));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Failed to deploy services: module frontend was not staged", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testDeploy_sameArtifactIdInOtherGroup() throws IOException {
+    MavenProject otherFrontend = Mockito.mock(MavenProject.class);
+    Mockito.when(otherFrontend.getArtifactId()).thenReturn("frontend");
+    Mockito.when(otherFrontend.getId()).thenReturn("com.example.other:frontend:war:1.0");
+    Mockito.when(frontend.getId()).thenReturn("com.example:frontend:war:1.0");
+    stage(frontend);
+    StagedApplication application = Mockito.mock(StagedApplication.class);
+    Mockito.when(reactorStaging.get(otherFrontend)).thenReturn(application);
+
+    try {
+      new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 4)
+          .deploy(ImmutableList.of(frontend, otherFrontend), null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Failed to deploy services: modules com.example:frontend:war:1.0 and"
+              + " com.example.other:frontend:war:1.0 have the same artifactId frontend",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testDeploy_unexpectedError() throws IOException, AppEngineException {
+    mockDeployments();
+    Mockito.doThrow(new NoClassDefFoundError("com/example/Missing"))
+        .when(backendDeployment)
+        .deploy(backendConfiguration);
+
+    try {
+      new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 2)
+          .deploy(ImmutableList.of(frontend, backend), null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Failed to deploy service backend", ex.getMessage());
+      Assert.assertTrue(ex.getCause() instanceof NoClassDefFoundError);
+    }
+  }
+
+  @Test
+  public void testDeploy_invalidParallelism() {
+    try {
+      new ServicesDeployer(deployMojo, configBuilder, reactorStaging, 0)
+          .deploy(ImmutableList.of(frontend), null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Invalid deployParallelism 0, expected at least 1", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testSummary() {
+    String summary =
+        ServicesDeployer.summary(
+            ImmutableList.of(
+                new ServiceResult(
+                    "frontend", Duration.ofMillis(3200), Duration.ofMillis(45100), null),
+                new ServiceResult(
+                    "api", null, Duration.ofSeconds(50), new AppEngineException("failed"))));
+
+    Assert.assertEquals(
+        String.format(
+            "Service deployment summary:%n"
+                + "  service    staging    deploy  result%n"
+                + "  frontend      3.2s     45.1s  OK%n"
+                + "  api              -     50.0s  FAILED"),
+        summary);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.it.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * A Cloud SDK installation that doesn't need the network or a real Cloud SDK, to test and benchmark
+ * the plugin's own overhead. Point {@code cloudSdkHome} at {@link #getHome()}.
+ *
+ * <p>{@code bin/gcloud} is a shell script, the App Engine tools jar runs {@link FakeCloudSdkTool}
+ * from the test classes as appcfg and the dev server. Every tool appends its command line to {@code
+ * invocations.log}, waits for {@link #setLatencyMillis} and prints {@link #setOutputLines} lines of
+ * output, in the format of the real tool where the plugin parses it. Only runs on systems with a
+ * POSIX shell.
+ *
+ * <p>To benchmark a build against it, create one with {@code java -cp target/test-classes
+ * com.google.cloud.tools.maven.it.util.FakeCloudSdk <directory> [latencyMillis] [outputLines]} and
+ * run the build with {@code -DcloudSdkHome=<directory>}.
+ */
+public class FakeCloudSdk {
+
+  private static final String[] FILES = {"VERSION", "bin/gcloud", "bin/dev_appserver.py"};
+  private static final String TOOLS_JAR =
+      "platform/google_appengine/google/appengine/tools/java/lib/appengine-tools-api.jar";
+
+  private final Path home;
+  private final Properties config = new Properties();
+
+  private FakeCloudSdk(Path home) {
+    this.home = home;
+  }
+
+  /** Creates a fake Cloud SDK with the App Engine Java components at {@code home}. */
+  public static FakeCloudSdk create(Path home) throws IOException {
+    for (String file : FILES) {
+      Path target = home.resolve(file);
+      Files.createDirectories(target.getParent());
+      try (InputStream resource =
+          FakeCloudSdk.class.getResourceAsStream("/fake-cloud-sdk/" + file)) {
+        Files.copy(resource, target);
+      }
+      // resources are copied to test-classes without their executable bit
+      if (file.startsWith("bin/") && !target.toFile().setExecutable(true)) {
+        throw new IOException("Can't make " + target + " executable");
+      }
+    }
+    writeToolsJar(home.resolve(TOOLS_JAR));
+    FakeCloudSdk sdk = new FakeCloudSdk(home);
+    sdk.writeConfig();
+    return sdk;
+  }
+
+  public Path getHome() {
+    return home;
+  }
+
+  /** Sets how long every invocation takes before it prints its output. */
+  public FakeCloudSdk setLatencyMillis(long latencyMillis) throws IOException {
+    return set("latencyMillis", latencyMillis);
+  }
+
+  /** Sets the number of output lines, for a deployment the number of uploaded files. */
+  public FakeCloudSdk setOutputLines(int outputLines) throws IOException {
+    return set("outputLines", outputLines);
+  }
+
+  /** Sets the exit code of every invocation. */
+  public FakeCloudSdk setExitCode(int exitCode) throws IOException {
+    return set("exitCode", exitCode);
+  }
+
+  /** Sets the project of the gcloud configuration. */
+  public FakeCloudSdk setProject(String project) throws IOException {
+    return set("project", project);
+  }
+
+  /** Returns the command lines of all invocations so far, like {@code gcloud app deploy ...}. */
+  public List<String> getInvocations() throws IOException {
+    Path log = home.resolve(FakeCloudSdkTool.INVOCATIONS_LOG);
+    return Files.exists(log)
+        ? Files.readAllLines(log, StandardCharsets.UTF_8)
+        : Collections.<String>emptyList();
+  }
+
+  private FakeCloudSdk set(String key, Object value) throws IOException {
+    config.setProperty(key, String.valueOf(value));
+    writeConfig();
+    return this;
+  }
+
+  // read by bin/gcloud as a shell script too, so only simple key=value lines
+  private void writeConfig() throws IOException {
+    try (Writer writer =
+        Files.newBufferedWriter(home.resolve(FakeCloudSdkTool.CONFIG), StandardCharsets.UTF_8)) {
+      for (String key : config.stringPropertyNames()) {
+        writer.write(key + "=" + config.getProperty(key) + "\n");
+      }
+    }
+  }
+
+  /** The tools jar only points at the test classes, which contain the fake tool classes. */
+  private static void writeToolsJar(Path jar) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    try {
+      manifest
+          .getMainAttributes()
+          .put(
+              Attributes.Name.CLASS_PATH,
+              FakeCloudSdkTool.class
+                  .getProtectionDomain()
+                  .getCodeSource()
+                  .getLocation()
+                  .toURI()
+                  .toString());
+    } catch (URISyntaxException ex) {
+      throw new IOException(ex);
+    }
+    Files.createDirectories(jar.getParent());
+    try (OutputStream file = Files.newOutputStream(jar);
+        JarOutputStream unused = new JarOutputStream(file, manifest)) {
+      // only the manifest
+    }
+  }
+
+  /** Creates a fake Cloud SDK for a benchmark, see the class documentation. */
+  public static void main(String[] args) throws IOException {
+    FakeCloudSdk sdk = create(Paths.get(args[0]).toAbsolutePath());
+    if (args.length > 1) {
+      sdk.setLatencyMillis(Long.parseLong(args[1]));
+    }
+    if (args.length > 2) {
+      sdk.setOutputLines(Integer.parseInt(args[2]));
+    }
+    System.out.println("Created a fake Cloud SDK at " + sdk.getHome());
+  }
+}
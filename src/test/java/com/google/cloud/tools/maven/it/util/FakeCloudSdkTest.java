@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.it.util;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkMojo;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class FakeCloudSdkTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private FakeCloudSdk fakeCloudSdk;
+  private CloudSdkAppEngineFactory factory;
+
+  @Before
+  public void setUp() throws IOException {
+    Assume.assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+
+    fakeCloudSdk = FakeCloudSdk.create(tempFolder.newFolder("google-cloud-sdk").toPath());
+    CloudSdkMojo mojo = Mockito.mock(CloudSdkMojo.class);
+    Mockito.when(mojo.getCloudSdkHome()).thenReturn(fakeCloudSdk.getHome());
+    Mockito.when(mojo.getLog()).thenReturn(new SystemStreamLog());
+    factory = new CloudSdkAppEngineFactory(mojo);
+  }
+
+  @Test
+  public void testDeploy() throws IOException, AppEngineException {
+    fakeCloudSdk.setOutputLines(100);
+    Path appYaml = Files.createFile(tempFolder.getRoot().toPath().resolve("app.yaml"));
+    List<String> output = Collections.synchronizedList(new ArrayList<>());
+
+    factory
+        .deployment(output::add)
+        .deploy(DeployConfiguration.builder(ImmutableList.of(appYaml)).build());
+
+    Assert.assertTrue(
+        fakeCloudSdk.getInvocations().get(0).startsWith("gcloud app deploy " + appYaml));
+    Assert.assertEquals(106, output.size());
+    Assert.assertTrue(
+        output.contains("Deployed service [default] to [https://fake-project.appspot.com]"));
+  }
+
+  @Test
+  public void testDeploy_latency() throws IOException, AppEngineException {
+    fakeCloudSdk.setLatencyMillis(500);
+    Path appYaml = Files.createFile(tempFolder.getRoot().toPath().resolve("app.yaml"));
+
+    long start = System.nanoTime();
+    factory.deployment().deploy(DeployConfiguration.builder(ImmutableList.of(appYaml)).build());
+
+    Assert.assertTrue(System.nanoTime() - start >= 500_000_000L);
+  }
+
+  @Test
+  public void testDeploy_failure() throws IOException {
+    fakeCloudSdk.setExitCode(1);
+    Path appYaml = Files.createFile(tempFolder.getRoot().toPath().resolve("app.yaml"));
+
+    try {
+      factory.deployment().deploy(DeployConfiguration.builder(ImmutableList.of(appYaml)).build());
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(1, fakeCloudSdk.getInvocations().size());
+    }
+  }
+
+  @Test
+  public void testGetConfig() throws Exception {
+    fakeCloudSdk.setProject("my-project");
+
+    Assert.assertEquals("my-project", factory.getGcloud().getConfig().getProject());
+    Assert.assertEquals("gcloud config list --format json", fakeCloudSdk.getInvocations().get(0));
+  }
+
+  @Test
+  public void testStageStandard() throws IOException, AppEngineException {
+    Path source = tempFolder.newFolder("exploded-war").toPath();
+    Files.createDirectories(source.resolve("WEB-INF"));
+    Files.createFile(source.resolve("WEB-INF/appengine-web.xml"));
+    Path staging = tempFolder.getRoot().toPath().resolve("staging");
+
+    factory
+        .appengineWebXmlStaging()
+        .stageStandard(AppEngineWebXmlProjectStageConfiguration.builder(source, staging).build());
+
+    Assert.assertTrue(Files.exists(staging.resolve("WEB-INF/appengine-web.xml")));
+    Assert.assertTrue(Files.exists(staging.resolve("app.yaml")));
+    Assert.assertTrue(fakeCloudSdk.getInvocations().get(0).startsWith("appcfg "));
+  }
+}
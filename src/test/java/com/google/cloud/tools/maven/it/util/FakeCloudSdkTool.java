@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.it.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * The Java tools of a {@link FakeCloudSdk}, appcfg and the dev server. Runs in its own JVM from the
+ * fake App Engine tools jar, so it only uses the JDK.
+ */
+public class FakeCloudSdkTool {
+
+  static final String CONFIG = "fake-sdk.properties";
+  static final String INVOCATIONS_LOG = "invocations.log";
+
+  /** Runs {@code tool} with the command line arguments {@code args} and exits. */
+  public static void run(String tool, String[] args) throws IOException, InterruptedException {
+    Path sdkHome = findSdkHome();
+    Properties config = new Properties();
+    try (InputStream in = Files.newInputStream(sdkHome.resolve(CONFIG))) {
+      config.load(in);
+    }
+    Files.write(
+        sdkHome.resolve(INVOCATIONS_LOG),
+        (tool + " " + String.join(" ", args) + "\n").getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    Thread.sleep(Long.parseLong(config.getProperty("latencyMillis", "0")));
+
+    int outputLines = Integer.parseInt(config.getProperty("outputLines", "0"));
+    for (int i = 0; i < outputLines; i++) {
+      System.out.println(tool + " output line " + i);
+    }
+    if ("appcfg".equals(tool) && args.length >= 3 && "stage".equals(args[args.length - 3])) {
+      stage(Paths.get(args[args.length - 2]), Paths.get(args[args.length - 1]));
+    }
+    if ("dev_appserver".equals(tool)) {
+      // what the plugin waits for when it starts the dev server asynchronously
+      System.out.println("INFO: Dev App Server is now running");
+    }
+    System.exit(Integer.parseInt(config.getProperty("exitCode", "0")));
+  }
+
+  /** Copies the exploded application and adds the app.yaml that appcfg would generate. */
+  private static void stage(Path source, Path staging) throws IOException {
+    try (Stream<Path> files = Files.walk(source)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Path target = staging.resolve(source.relativize(file).toString());
+        if (Files.isDirectory(file)) {
+          Files.createDirectories(target);
+        } else {
+          Files.copy(file, target);
+        }
+      }
+    }
+    Path appYaml = staging.resolve("app.yaml");
+    if (!Files.exists(appYaml)) {
+      Files.write(appYaml, "runtime: java8\n".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** The tools jar is the first class path entry, somewhere below the Cloud SDK home. */
+  private static Path findSdkHome() throws IOException {
+    String classPath = System.getProperty("java.class.path");
+    Path jar = Paths.get(classPath.split(File.pathSeparator)[0]).toAbsolutePath();
+    for (Path dir = jar.getParent(); dir != null; dir = dir.getParent()) {
+      if (Files.exists(dir.resolve(CONFIG))) {
+        return dir;
+      }
+    }
+    throw new IOException("No fake Cloud SDK above " + jar + " in " + classPath);
+  }
+}
@@ -16,10 +16,13 @@
 
 package com.google.cloud.tools.maven.run;
 
+import com.google.cloud.tools.maven.cloudsdk.DevServerLogRotation;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -41,8 +44,30 @@ public class RunAsyncMojoTest {
   @Test
   public void testExecute_smokeTest() throws MojoExecutionException {
     testMojo.startSuccessTimeout = 34;
+    testMojo.logMaxSize = "10MB";
+    testMojo.logMaxFiles = 3;
+    testMojo.logCompress = true;
     testMojo.execute();
-    Mockito.verify(runner).runAsync(34);
+
+    ArgumentCaptor<DevServerLogRotation> logRotation =
+        ArgumentCaptor.forClass(DevServerLogRotation.class);
+    Mockito.verify(runner).runAsync(Mockito.eq(34), logRotation.capture());
+    Assert.assertEquals(10 * 1024 * 1024, logRotation.getValue().getMaxFileSize());
+    Assert.assertEquals(3, logRotation.getValue().getMaxFiles());
+    Assert.assertTrue(logRotation.getValue().isCompress());
+  }
+
+  @Test
+  public void testExecute_invalidLogMaxSize() {
+    testMojo.logMaxSize = "lots";
+    try {
+      testMojo.execute();
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Invalid logMaxSize 'lots', expected a number of bytes like 512KB or 100MB",
+          ex.getMessage());
+    }
   }
 
   @Test
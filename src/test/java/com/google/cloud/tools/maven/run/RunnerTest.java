@@ -27,6 +27,7 @@ import com.google.cloud.tools.appengine.operations.DevServer;
 import com.google.cloud.tools.appengine.operations.Gcloud;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
+import com.google.cloud.tools.maven.cloudsdk.DevServerLogRotation;
 import com.google.cloud.tools.maven.run.Runner.ConfigBuilder;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
@@ -106,10 +107,11 @@ public class RunnerTest {
   public void testRunAsync() throws MojoExecutionException, IOException, AppEngineException {
     final int START_SUCCESS_TIMEOUT = 25;
 
-    when(appengineFactory.devServerRunAsync(START_SUCCESS_TIMEOUT)).thenReturn(devServer);
+    when(appengineFactory.devServerRunAsync(START_SUCCESS_TIMEOUT, DevServerLogRotation.DEFAULT))
+        .thenReturn(devServer);
     setUpAppEngineWebXml();
 
-    testRunner.runAsync(START_SUCCESS_TIMEOUT);
+    testRunner.runAsync(START_SUCCESS_TIMEOUT, DevServerLogRotation.DEFAULT);
 
     verify(devServer).run(configBuilder.buildRunConfiguration(ImmutableList.of(appDir), null));
     verify(logMock).info(contains("25 seconds"));
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class AppEngineDescriptorTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path appengineWebXml;
+
+  @Before
+  public void setUp() {
+    appengineWebXml = tempFolder.getRoot().toPath().resolve("appengine-web.xml");
+  }
+
+  @Test
+  public void testParse() throws IOException {
+    write(
+        "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n"
+            + "  <!-- the runtime -->\n"
+            + "  <runtime> java8 </runtime>\n"
+            + "  <service>backend</service>\n"
+            + "  <threadsafe>false</threadsafe>\n"
+            + "  <instance-class>B2</instance-class>\n"
+            + "  <basic-scaling><max-instances>2</max-instances></basic-scaling>\n"
+            + "  <static-files>\n"
+            + "    <include path=\"/**.png\" expiration=\"1d\"/>\n"
+            + "    <exclude path=\"/data/**\"/>\n"
+            + "    <include path=\"/css/*\"><http-header name=\"a\" value=\"b\"/></include>\n"
+            + "  </static-files>\n"
+            + "  <env-variables>\n"
+            + "    <env-var name=\"KEY\" value=\"it's\"/>\n"
+            + "    <env-var name=\"OTHER\" value=\"\"/>\n"
+            + "  </env-variables>\n"
+            + "</appengine-web-app>\n");
+
+    AppEngineDescriptor descriptor = AppEngineDescriptor.parse(appengineWebXml);
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            "runtime",
+            "service",
+            "threadsafe",
+            "instance-class",
+            "basic-scaling",
+            "static-files",
+            "env-variables"),
+        descriptor.getElementNames());
+    Assert.assertEquals("java8", descriptor.getRuntime());
+    Assert.assertFalse(descriptor.isVm());
+    Assert.assertEquals(Boolean.FALSE, descriptor.getThreadsafe());
+    Assert.assertEquals("backend", descriptor.getService());
+    Assert.assertEquals("B2", descriptor.getInstanceClass());
+    Assert.assertEquals("basic", descriptor.getScaling());
+    Assert.assertEquals(ImmutableList.of("/**.png", "/css/*"), descriptor.getStaticFileIncludes());
+    Assert.assertEquals(ImmutableMap.of("KEY", "it's", "OTHER", ""), descriptor.getEnvVariables());
+  }
+
+  @Test
+  public void testParse_defaults() throws IOException {
+    write("<appengine-web-app/>");
+
+    AppEngineDescriptor descriptor = AppEngineDescriptor.parse(appengineWebXml);
+
+    Assert.assertEquals(ImmutableList.of(), descriptor.getElementNames());
+    Assert.assertNull(descriptor.getRuntime());
+    Assert.assertFalse(descriptor.isVm());
+    Assert.assertNull(descriptor.getThreadsafe());
+    Assert.assertNull(descriptor.getService());
+    Assert.assertNull(descriptor.getScaling());
+    Assert.assertEquals(ImmutableList.of(), descriptor.getStaticFileIncludes());
+    Assert.assertEquals(ImmutableMap.of(), descriptor.getEnvVariables());
+  }
+
+  @Test
+  public void testParse_vmAndModule() throws IOException {
+    write("<appengine-web-app><vm>true</vm><module>legacy</module></appengine-web-app>");
+
+    AppEngineDescriptor descriptor = AppEngineDescriptor.parse(appengineWebXml);
+
+    Assert.assertTrue(descriptor.isVm());
+    Assert.assertEquals("legacy", descriptor.getService());
+  }
+
+  @Test
+  public void testParse_malformed() throws IOException {
+    write("<appengine-web-app><runtime>java8</appengine-web-app>");
+
+    try {
+      AppEngineDescriptor.parse(appengineWebXml);
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertEquals("Failed to parse " + appengineWebXml, ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testRead_cachedInSession() throws IOException {
+    MavenSession session = Mockito.mock(MavenSession.class);
+    Mockito.when(session.getRepositorySession()).thenReturn(new DefaultRepositorySystemSession());
+    write("<appengine-web-app><runtime>java8</runtime></appengine-web-app>");
+
+    AppEngineDescriptor descriptor = AppEngineDescriptor.read(appengineWebXml, session);
+
+    Assert.assertSame(descriptor, AppEngineDescriptor.read(appengineWebXml, session));
+
+    write("<appengine-web-app><runtime>java11</runtime></appengine-web-app>");
+    Files.setLastModifiedTime(
+        appengineWebXml,
+        FileTime.fromMillis(Files.getLastModifiedTime(appengineWebXml).toMillis() + 2000));
+
+    Assert.assertEquals("java11", AppEngineDescriptor.read(appengineWebXml, session).getRuntime());
+  }
+
+  @Test
+  public void testRead_withoutSession() throws IOException {
+    write("<appengine-web-app><runtime>java8</runtime></appengine-web-app>");
+
+    Assert.assertEquals("java8", AppEngineDescriptor.read(appengineWebXml, null).getRuntime());
+  }
+
+  private void write(String content) throws IOException {
+    Files.write(appengineWebXml, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
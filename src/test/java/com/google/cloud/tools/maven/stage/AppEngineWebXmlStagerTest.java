@@ -16,6 +16,8 @@
 
 package com.google.cloud.tools.maven.stage;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,6 +40,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -80,6 +83,124 @@ public class AppEngineWebXmlStagerTest {
     verify(logMock).info("Detected App Engine appengine-web.xml based application.");
   }
 
+  @Test
+  public void testStage_jarSplittingDoneByPlugin() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Path stagingDirectory = tempFolder.getRoot().toPath().resolve("staging");
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory()).thenReturn(stagingDirectory);
+    when(stagingConfiguration.getEnableJarSplitting()).thenReturn(true);
+    when(stagingConfiguration.getJarSplittingExcludes()).thenReturn(".java");
+    when(stagingConfiguration.getDeleteJsps()).thenReturn(true);
+    when(stageMojo.getJarSplittingFragmentSize()).thenReturn(null);
+
+    testStager.stage();
+
+    ArgumentCaptor<AppEngineWebXmlProjectStageConfiguration> appcfgConfig =
+        ArgumentCaptor.forClass(AppEngineWebXmlProjectStageConfiguration.class);
+    verify(staging).stageStandard(appcfgConfig.capture());
+    Assert.assertFalse(appcfgConfig.getValue().getEnableJarSplitting());
+    Assert.assertNull(appcfgConfig.getValue().getJarSplittingExcludes());
+    Assert.assertTrue(appcfgConfig.getValue().getDeleteJsps());
+    Assert.assertEquals(stagingDirectory, appcfgConfig.getValue().getStagingDirectory());
+  }
+
+  @Test
+  public void testStage_inProcess() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Files.createDirectories(sourceDirectory.resolve("WEB-INF"));
+    Files.write(
+        sourceDirectory.resolve("WEB-INF/appengine-web.xml"),
+        ("<appengine-web-app><runtime>java8</runtime><threadsafe>true</threadsafe>"
+                + "</appengine-web-app>")
+            .getBytes(StandardCharsets.UTF_8));
+    Path stagingDirectory = tempFolder.getRoot().toPath().resolve("staging");
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory()).thenReturn(stagingDirectory);
+    when(stageMojo.isInProcess()).thenReturn(true);
+
+    testStager.stage();
+
+    verify(appengineFactory, never()).appengineWebXmlStaging();
+    Assert.assertTrue(Files.exists(stagingDirectory.resolve("app.yaml")));
+  }
+
+  @Test
+  public void testStage_inProcessFallsBackToAppcfg() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Files.createDirectories(sourceDirectory.resolve("WEB-INF"));
+    Files.write(
+        sourceDirectory.resolve("WEB-INF/appengine-web.xml"),
+        "<appengine-web-app><runtime>java8</runtime></appengine-web-app>"
+            .getBytes(StandardCharsets.UTF_8));
+    Files.write(sourceDirectory.resolve("index.jsp"), "<html/>".getBytes(StandardCharsets.UTF_8));
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("staging"));
+    when(stageMojo.isInProcess()).thenReturn(true);
+
+    testStager.stage();
+
+    verify(staging).stageStandard(stagingConfiguration);
+    verify(logMock)
+        .info("Staging with appcfg, in-process staging does not support JSP compilation");
+  }
+
+  @Test
+  public void testStage_skipsWhenUpToDate() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Files.write(sourceDirectory.resolve("index.html"), "index".getBytes(StandardCharsets.UTF_8));
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("staging"));
+    when(stageMojo.isUpToDateCheck()).thenReturn(true);
+
+    testStager.stage();
+    testStager.stage();
+
+    verify(staging, times(1)).stageStandard(stagingConfiguration);
+    verify(logMock).info("Staging directory is up to date, skipping staging.");
+  }
+
+  @Test
+  public void testStage_restagesWhenSourceChanged() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("staging"));
+    when(stageMojo.isUpToDateCheck()).thenReturn(true);
+
+    testStager.stage();
+    Files.write(sourceDirectory.resolve("index.html"), "index".getBytes(StandardCharsets.UTF_8));
+    testStager.stage();
+
+    verify(staging, times(2)).stageStandard(stagingConfiguration);
+  }
+
+  @Test
+  public void testStage_restagesWhenInProcessChanged() throws Exception {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Files.createDirectories(sourceDirectory.resolve("WEB-INF"));
+    Files.write(
+        sourceDirectory.resolve("WEB-INF/appengine-web.xml"),
+        ("<appengine-web-app><runtime>java8</runtime><threadsafe>true</threadsafe>"
+                + "</appengine-web-app>")
+            .getBytes(StandardCharsets.UTF_8));
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    when(stagingConfiguration.getStagingDirectory())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("staging"));
+    when(stageMojo.isUpToDateCheck()).thenReturn(true);
+    when(stageMojo.isInProcess()).thenReturn(true);
+
+    testStager.stage();
+    verify(appengineFactory, never()).appengineWebXmlStaging();
+
+    when(stageMojo.isInProcess()).thenReturn(false);
+    testStager.stage();
+
+    verify(staging).stageStandard(stagingConfiguration);
+  }
+
   @Test
   @Parameters({
     "dockerfile|dockerfile1|dockerfile2|dockerfile",
@@ -16,19 +16,27 @@
 
 package com.google.cloud.tools.maven.stage;
 
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
 import com.google.cloud.tools.appengine.operations.AppYamlProjectStaging;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.stage.AppYamlStager.ConfigBuilder;
+import com.google.common.collect.ImmutableList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import junitparams.JUnitParamsRunner;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -58,4 +66,36 @@ public class AppYamlStagerTest {
     when(configBuilder.buildConfiguration()).thenReturn(stagingConfiguration);
     when(stagingConfiguration.getStagingDirectory()).thenReturn(tempFolder.getRoot().toPath());
   }
+
+  @Test
+  public void testStage_copiesExtraFilesDirectories() throws Exception {
+    Path stagingDirectory = tempFolder.newFolder("staging").toPath();
+    Path extraFilesDirectory = tempFolder.newFolder("extra").toPath();
+    Files.write(extraFilesDirectory.resolve("extra.txt"), "extra".getBytes(StandardCharsets.UTF_8));
+    Path appEngineDirectory = tempFolder.newFolder("appengine").toPath();
+    Path artifact = tempFolder.newFile("app.jar").toPath();
+    when(stagingConfiguration.getStagingDirectory()).thenReturn(stagingDirectory);
+    when(stagingConfiguration.getAppEngineDirectory()).thenReturn(appEngineDirectory);
+    when(stagingConfiguration.getArtifact()).thenReturn(artifact);
+    when(stagingConfiguration.getExtraFilesDirectory())
+        .thenReturn(ImmutableList.of(extraFilesDirectory));
+    when(stageMojo.getParallelism()).thenReturn(2);
+
+    testStager.stage();
+
+    Assert.assertTrue(Files.exists(stagingDirectory.resolve("extra.txt")));
+    ArgumentCaptor<AppYamlProjectStageConfiguration> coreConfig =
+        ArgumentCaptor.forClass(AppYamlProjectStageConfiguration.class);
+    verify(staging).stageArchive(coreConfig.capture());
+    Assert.assertNull(coreConfig.getValue().getExtraFilesDirectory());
+    Assert.assertEquals(artifact, coreConfig.getValue().getArtifact());
+    Assert.assertEquals(stagingDirectory, coreConfig.getValue().getStagingDirectory());
+  }
+
+  @Test
+  public void testStage_noExtraFilesDirectories() throws Exception {
+    testStager.stage();
+
+    verify(staging).stageArchive(stagingConfiguration);
+  }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class InProcessStagingTest {
+
+  private static final String APPENGINE_WEB_XML =
+      "<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">"
+          + "<runtime>java8</runtime>"
+          + "<service>backend</service>"
+          + "<threadsafe>true</threadsafe>"
+          + "<env-variables><env-var name=\"KEY\" value=\"it's\"/></env-variables>"
+          + "</appengine-web-app>";
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path source;
+  private Path staging;
+
+  @Before
+  public void setUp() throws IOException {
+    source = tempFolder.newFolder("source").toPath();
+    staging = tempFolder.newFolder("staging").toPath();
+    write("WEB-INF/appengine-web.xml", APPENGINE_WEB_XML);
+    write("WEB-INF/web.xml", "<web-app/>");
+    write("WEB-INF/classes/Foo.class", "foo");
+    write("WEB-INF/lib/foo.jar", "jar");
+    write("css/style.css", "body {}");
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_supported() throws IOException {
+    Assert.assertNull(newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_configuration() throws IOException {
+    Assert.assertEquals(
+        "enableQuickstart",
+        newInProcessStaging(config().enableQuickstart(true).build()).findUnsupportedFeature());
+    Assert.assertEquals(
+        "enableJarClasses",
+        newInProcessStaging(config().enableJarClasses(true).build()).findUnsupportedFeature());
+    // jars are split by the plugin after staging
+    Assert.assertNull(
+        newInProcessStaging(config().enableJarSplitting(true).build()).findUnsupportedFeature());
+  }
+
+  @Test
+  @Parameters({"index.jsp", "WEB-INF/tags/foo.tag"})
+  public void testFindUnsupportedFeature_jsp(String jsp) throws IOException {
+    write(jsp, "<html/>");
+
+    Assert.assertEquals(
+        "JSP compilation", newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_legacyXml() throws IOException {
+    write("WEB-INF/cron.xml", "<cronentries/>");
+
+    Assert.assertEquals("cron.xml", newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_unsupportedElement() throws IOException {
+    write(
+        "WEB-INF/appengine-web.xml",
+        "<appengine-web-app><runtime>java8</runtime><static-files/></appengine-web-app>");
+
+    Assert.assertEquals(
+        "<static-files> in appengine-web.xml",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_systemProperties() throws IOException {
+    // not translated to app.yaml, appcfg has to stage these
+    write(
+        "WEB-INF/appengine-web.xml",
+        "<appengine-web-app><runtime>java8</runtime>"
+            + "<system-properties><property name=\"key\" value=\"value\"/></system-properties>"
+            + "</appengine-web-app>");
+
+    Assert.assertEquals(
+        "<system-properties> in appengine-web.xml",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_java7() throws IOException {
+    write("WEB-INF/appengine-web.xml", "<appengine-web-app/>");
+
+    Assert.assertEquals(
+        "a runtime other than java8",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_noThreadsafe() throws IOException {
+    write(
+        "WEB-INF/appengine-web.xml",
+        "<appengine-web-app><runtime>java8</runtime></appengine-web-app>");
+
+    Assert.assertEquals(
+        "missing <threadsafe> in appengine-web.xml",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  @Parameters({"application", "version"})
+  public void testFindUnsupportedFeature_copiedByAppcfg(String element) throws IOException {
+    write(
+        "WEB-INF/appengine-web.xml",
+        "<appengine-web-app><runtime>java8</runtime><threadsafe>true</threadsafe>"
+            + "<"
+            + element
+            + ">value</"
+            + element
+            + ">"
+            + "</appengine-web-app>");
+
+    Assert.assertEquals(
+        "<" + element + "> in appengine-web.xml",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testFindUnsupportedFeature_securityConstraint() throws IOException {
+    write("WEB-INF/web.xml", "<web-app><security-constraint/></web-app>");
+
+    Assert.assertEquals(
+        "security constraints in web.xml",
+        newInProcessStaging(config().build()).findUnsupportedFeature());
+  }
+
+  @Test
+  public void testStage() throws IOException {
+    newInProcessStaging(config().build()).stage();
+
+    Assert.assertEquals("foo", read(staging.resolve("WEB-INF/classes/Foo.class")));
+    Assert.assertEquals("jar", read(staging.resolve("WEB-INF/lib/foo.jar")));
+    Assert.assertEquals("body {}", read(staging.resolve("css/style.css")));
+    Assert.assertEquals("body {}", read(staging.resolve("__static__/css/style.css")));
+    Assert.assertFalse(Files.exists(staging.resolve("__static__/WEB-INF")));
+    String appYaml = read(staging.resolve("app.yaml"));
+    Assert.assertEquals(appYaml, read(staging.resolve("WEB-INF/appengine-generated/app.yaml")));
+    Assert.assertEquals(
+        "runtime: java8\n"
+            + "service: 'backend'\n"
+            + "inbound_services:\n"
+            + "- warmup\n"
+            + "derived_file_type:\n"
+            + "- java_precompiled\n"
+            + "threadsafe: True\n"
+            + "env_variables:\n"
+            + "  'KEY': 'it''s'\n"
+            + "api_version: 'user_defined'\n"
+            + "handlers:\n"
+            + "- url: (/.*)\n"
+            + "  static_files: __static__\\1\n"
+            + "  upload: __static__/.*\n"
+            + "  require_matching_file: True\n"
+            + "  login: optional\n"
+            + "  secure: optional\n"
+            + "- url: /.*\n"
+            + "  script: unused\n"
+            + "  login: optional\n"
+            + "  secure: optional\n",
+        appYaml);
+  }
+
+  @Test
+  public void testStage_matchesAppcfg() throws IOException {
+    // appcfg-app.yaml is the app.yaml that appcfg generates when staging the sample webapp
+    Path project = Paths.get("src/test/resources/projects/in-process-staging");
+    source = project.resolve("webapp");
+    InProcessStaging inProcessStaging = newInProcessStaging(config().build());
+    Assert.assertNull(inProcessStaging.findUnsupportedFeature());
+
+    inProcessStaging.stage();
+
+    Assert.assertEquals(
+        read(project.resolve("appcfg-app.yaml")), read(staging.resolve("app.yaml")));
+  }
+
+  private AppEngineWebXmlProjectStageConfiguration.Builder config() {
+    return AppEngineWebXmlProjectStageConfiguration.builder(source, staging);
+  }
+
+  private InProcessStaging newInProcessStaging(AppEngineWebXmlProjectStageConfiguration config)
+      throws IOException {
+    AppEngineDescriptor descriptor =
+        AppEngineDescriptor.parse(source.resolve("WEB-INF/appengine-web.xml"));
+    return new InProcessStaging(config, descriptor, new StagingCopier(2));
+  }
+
+  private void write(String path, String content) throws IOException {
+    Path file = source.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncrementalStagingTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path source;
+  private Path staging;
+
+  @Before
+  public void setUp() throws IOException {
+    source = tempFolder.newFolder("source").toPath();
+    staging = tempFolder.newFolder("staging").toPath();
+    write(source, "index.html", "index");
+    write(source, "WEB-INF/appengine-web.xml", "<appengine-web-app/>");
+    write(source, "WEB-INF/classes/Foo.class", "foo");
+    write(source, "WEB-INF/lib/foo.jar", "jar");
+  }
+
+  @Test
+  public void testUpdate_noManifest() throws IOException {
+    Assert.assertFalse(newIncrementalStaging(config()).update());
+  }
+
+  @Test
+  public void testUpdate_noChanges() throws IOException {
+    fullStage(config());
+
+    Assert.assertTrue(newIncrementalStaging(config()).update());
+  }
+
+  @Test
+  public void testUpdate_copiesChangedClasses() throws IOException {
+    fullStage(config());
+    write(source, "WEB-INF/classes/Foo.class", "foo2");
+    write(source, "WEB-INF/classes/Bar.class", "bar");
+
+    Assert.assertTrue(newIncrementalStaging(config()).update());
+    Assert.assertEquals("foo2", read(staging, "WEB-INF/classes/Foo.class"));
+    Assert.assertEquals("bar", read(staging, "WEB-INF/classes/Bar.class"));
+  }
+
+  @Test
+  public void testUpdate_removesDeletedLibraries() throws IOException {
+    fullStage(config());
+    Files.delete(source.resolve("WEB-INF/lib/foo.jar"));
+
+    Assert.assertTrue(newIncrementalStaging(config()).update());
+    Assert.assertFalse(Files.exists(staging.resolve("WEB-INF/lib/foo.jar")));
+  }
+
+  @Test
+  public void testUpdate_updatesStaticCopy() throws IOException {
+    fullStage(config());
+    write(staging, "__static__/index.html", "index");
+    write(source, "index.html", "index2");
+
+    Assert.assertTrue(newIncrementalStaging(config()).update());
+    Assert.assertEquals("index2", read(staging, "index.html"));
+    Assert.assertEquals("index2", read(staging, "__static__/index.html"));
+  }
+
+  @Test
+  public void testUpdate_descriptorChangeRequiresFullStage() throws IOException {
+    fullStage(config());
+    write(source, "WEB-INF/appengine-web.xml", "<appengine-web-app><threadsafe/>");
+
+    Assert.assertFalse(newIncrementalStaging(config()).update());
+  }
+
+  @Test
+  public void testUpdate_jspChangeRequiresFullStage() throws IOException {
+    fullStage(config());
+    write(source, "index.jsp", "<html/>");
+
+    Assert.assertFalse(newIncrementalStaging(config()).update());
+  }
+
+  @Test
+  public void testUpdate_newStaticFileRequiresFullStage() throws IOException {
+    fullStage(config());
+    write(source, "style.css", "body {}");
+
+    Assert.assertFalse(newIncrementalStaging(config()).update());
+  }
+
+  @Test
+  public void testUpdate_jarredClassesRequireFullStage() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config =
+        AppEngineWebXmlProjectStageConfiguration.builder(source, staging)
+            .enableJarClasses(true)
+            .build();
+    fullStage(config);
+    write(source, "WEB-INF/classes/Foo.class", "foo2");
+
+    Assert.assertFalse(newIncrementalStaging(config).update());
+  }
+
+  @Test
+  public void testUpdate_configurationChangeRequiresFullStage() throws IOException {
+    fullStage(config());
+    AppEngineWebXmlProjectStageConfiguration config =
+        AppEngineWebXmlProjectStageConfiguration.builder(source, staging).deleteJsps(true).build();
+
+    Assert.assertFalse(newIncrementalStaging(config).update());
+  }
+
+  @Test
+  public void testInvalidate() throws IOException {
+    fullStage(config());
+    newIncrementalStaging(config()).invalidate();
+
+    Assert.assertFalse(Files.exists(StagingManifest.manifestFileFor(staging)));
+  }
+
+  private AppEngineWebXmlProjectStageConfiguration config() {
+    return AppEngineWebXmlProjectStageConfiguration.builder(source, staging).build();
+  }
+
+  private IncrementalStaging newIncrementalStaging(
+      AppEngineWebXmlProjectStageConfiguration config) {
+    return new IncrementalStaging(config, new StagingCopier(2), null, log);
+  }
+
+  /** Simulates a full stage by copying the sources and recording the manifest. */
+  private void fullStage(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    IncrementalStaging incrementalStaging = newIncrementalStaging(config);
+    Assert.assertFalse(incrementalStaging.update());
+    for (String path : StagingManifest.scan(source, "", null).getEntries().keySet()) {
+      write(staging, path, read(source, path));
+    }
+    incrementalStaging.recordFullStage();
+  }
+
+  private static void write(Path root, String path, String content) throws IOException {
+    Path file = root.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path root, String path) throws IOException {
+    return new String(Files.readAllBytes(root.resolve(path)), StandardCharsets.UTF_8);
+  }
+}
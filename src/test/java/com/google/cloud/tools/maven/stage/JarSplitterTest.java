@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+@RunWith(JUnitParamsRunner.class)
+public class JarSplitterTest {
+
+  private static final long FRAGMENT_SIZE = 64 * 1024;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Log log = Mockito.mock(Log.class);
+  private Path lib;
+  private final Map<String, byte[]> entries = new HashMap<>();
+
+  @Before
+  public void setUp() throws IOException {
+    lib = tempFolder.newFolder("WEB-INF", "lib").toPath();
+    Random random = new Random(42);
+    for (int i = 0; i < 40; i++) {
+      // random bytes do not compress, so each entry takes about 8 kB in the jar
+      byte[] content = new byte[8 * 1024];
+      random.nextBytes(content);
+      entries.put("com/example/Class" + i + ".class", content);
+    }
+    entries.put("com/example/Source.java", new byte[] {1, 2, 3});
+    entries.put("META-INF/MANIFEST.MF", new byte[] {4, 5, 6});
+    writeJar(lib.resolve("large.jar"), entries);
+    writeJar(lib.resolve("small.jar"), ImmutableMap.of("com/example/Small.class", new byte[] {7}));
+  }
+
+  @Test
+  public void testProcessLibraries_splitsLargeJars() throws IOException {
+    JarSplitter splitter = new JarSplitter(FRAGMENT_SIZE, ImmutableList.of(), 4);
+
+    Assert.assertEquals(1, splitter.processLibraries(lib, log));
+
+    Set<String> jars = listJars();
+    Assert.assertFalse(jars.contains("large.jar"));
+    Assert.assertTrue(jars.contains("small.jar"));
+    Assert.assertTrue(jars.contains("large-0000.jar"));
+    Assert.assertTrue(jars.size() > 3);
+    Map<String, byte[]> splitEntries = new HashMap<>();
+    for (String jar : jars) {
+      if (jar.startsWith("large-")) {
+        Assert.assertTrue(Files.size(lib.resolve(jar)) <= FRAGMENT_SIZE);
+        splitEntries.putAll(readJar(lib.resolve(jar)));
+      }
+    }
+    Assert.assertEquals(entries.keySet(), splitEntries.keySet());
+    for (String entry : entries.keySet()) {
+      Assert.assertArrayEquals(entries.get(entry), splitEntries.get(entry));
+    }
+  }
+
+  @Test
+  public void testProcessLibraries_excludes() throws IOException {
+    JarSplitter splitter = new JarSplitter(FRAGMENT_SIZE * 100, ImmutableList.of(".java"), 4);
+
+    Assert.assertEquals(1, splitter.processLibraries(lib, log));
+
+    Assert.assertEquals(ImmutableSet.of("large.jar", "small.jar"), listJars());
+    Map<String, byte[]> filtered = readJar(lib.resolve("large.jar"));
+    Assert.assertFalse(filtered.containsKey("com/example/Source.java"));
+    Assert.assertEquals(entries.size() - 1, filtered.size());
+  }
+
+  @Test
+  public void testProcessLibraries_nothingToDo() throws IOException {
+    JarSplitter splitter = new JarSplitter(FRAGMENT_SIZE * 100, ImmutableList.of(), 4);
+
+    Assert.assertEquals(0, splitter.processLibraries(lib, log));
+    Assert.assertEquals(ImmutableSet.of("large.jar", "small.jar"), listJars());
+  }
+
+  @Test
+  public void testProcessLibraries_doesNotModifyLinkedSource() throws IOException {
+    Path source = tempFolder.newFolder("source").toPath().resolve("large.jar");
+    Files.move(lib.resolve("large.jar"), source);
+    Files.createLink(lib.resolve("large.jar"), source);
+    long sourceSize = Files.size(source);
+
+    new JarSplitter(FRAGMENT_SIZE, ImmutableList.of(), 2).processLibraries(lib, log);
+
+    Assert.assertEquals(sourceSize, Files.size(source));
+    Assert.assertEquals(entries.keySet(), readJar(source).keySet());
+  }
+
+  @Test
+  public void testProcessLibraries_warnsAboutOversizedEntries() throws IOException {
+    byte[] model = new byte[(int) FRAGMENT_SIZE * 2];
+    new Random(42).nextBytes(model);
+    writeJar(lib.resolve("model.jar"), ImmutableMap.of("models/big.bin", model));
+
+    new JarSplitter(FRAGMENT_SIZE * 1024, ImmutableList.of(), 2).processLibraries(lib, log);
+    Mockito.verifyZeroInteractions(log);
+
+    JarSplitter splitter = new JarSplitter(FRAGMENT_SIZE, ImmutableList.of(), 2);
+    Assert.assertEquals(
+        ImmutableList.of("models/big.bin"),
+        splitter.plan(lib.resolve("model.jar")).getOversizedEntries());
+    splitter.processLibraries(lib, log);
+
+    Mockito.verify(log)
+        .warn(Mockito.startsWith("Entry models/big.bin of model.jar is larger than the jar"));
+  }
+
+  @Test
+  public void testProcessLibraries_keepsDuplicateEntries() throws IOException {
+    Path jar = lib.resolve("duplicates.jar");
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(jar.toFile())) {
+      for (byte content = 1; content <= 2; content++) {
+        out.putArchiveEntry(new ZipArchiveEntry("com/example/Duplicate.class"));
+        out.write(new byte[] {content});
+        out.closeArchiveEntry();
+      }
+      out.putArchiveEntry(new ZipArchiveEntry("com/example/Source.java"));
+      out.write(new byte[] {3});
+      out.closeArchiveEntry();
+    }
+
+    new JarSplitter(FRAGMENT_SIZE, ImmutableList.of(".java"), 2).processLibraries(lib, log);
+
+    try (org.apache.commons.compress.archivers.zip.ZipFile zipFile =
+        new org.apache.commons.compress.archivers.zip.ZipFile(jar.toFile())) {
+      Assert.assertEquals(
+          ImmutableList.of("com/example/Duplicate.class", "com/example/Duplicate.class"),
+          Collections.list(zipFile.getEntriesInPhysicalOrder())
+              .stream()
+              .map(ZipArchiveEntry::getName)
+              .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  @Parameters({
+    ".java|com/example/Foo.java|true",
+    ".java|com/example/Foo.class|false",
+    "com/example/*.java|com/example/Foo.java|true",
+    "com/example/*.java|com/example/sub/Foo.java|false",
+    "com/**.java|com/example/sub/Foo.java|true",
+    "META-INF/*.S?|META-INF/CERT.SF|true",
+    "META-INF/*.S?|META-INF/CERT.RSA|false"
+  })
+  public void testIsExcluded(String exclude, String entryName, boolean excluded) {
+    JarSplitter splitter = new JarSplitter(FRAGMENT_SIZE, ImmutableList.of(exclude), 1);
+
+    Assert.assertEquals(excluded, splitter.isExcluded(entryName));
+  }
+
+  @Test
+  public void testFromParameters_invalidFragmentSize() {
+    try {
+      JarSplitter.fromParameters(0, null, 1);
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Invalid jarSplittingFragmentSize 0, expected at least 1", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testFromParameters() throws MojoExecutionException {
+    JarSplitter splitter = JarSplitter.fromParameters(null, " .java, *.txt ,", 1);
+
+    Assert.assertEquals(
+        "JarSplitter{fragmentSize=10485760, excludes=[.java, *.txt]}", splitter.toString());
+  }
+
+  private Set<String> listJars() throws IOException {
+    try (Stream<Path> files = Files.list(lib)) {
+      return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+    }
+  }
+
+  private static void writeJar(Path jar, Map<String, byte[]> content) throws IOException {
+    try (OutputStream out = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (Map.Entry<String, byte[]> entry : content.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+  }
+
+  private static Map<String, byte[]> readJar(Path jar) throws IOException {
+    Map<String, byte[]> content = new HashMap<>();
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        content.put(entry.getName(), ByteStreams.toByteArray(zipFile.getInputStream(entry)));
+      }
+    }
+    return content;
+  }
+}
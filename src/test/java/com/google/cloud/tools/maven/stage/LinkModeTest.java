@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LinkModeTest {
+
+  @Test
+  public void testFromConfigValue() throws MojoExecutionException {
+    Assert.assertEquals(LinkMode.COPY, LinkMode.fromConfigValue(null));
+    Assert.assertEquals(LinkMode.COPY, LinkMode.fromConfigValue("copy"));
+    Assert.assertEquals(LinkMode.HARDLINK, LinkMode.fromConfigValue("HardLink"));
+    Assert.assertEquals(
+        LinkMode.REFLINK_IF_AVAILABLE, LinkMode.fromConfigValue("reflink-if-available"));
+  }
+
+  @Test
+  public void testFromConfigValue_invalid() {
+    try {
+      LinkMode.fromConfigValue("symlink");
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Invalid linkMode 'symlink', expected one of: copy, hardlink, reflink-if-available",
+          ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.maven.stage.ReactorStaging.StagedApplication;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactorStagingTest {
+
+  private static final Duration STAGING_TIME = Duration.ofMillis(1500);
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private AbstractStageMojo stageMojo;
+  @Mock private MavenProject project;
+
+  private final Path stagingDirectory = Paths.get("module", "target", "appengine-staging");
+  private final ReactorStaging reactorStaging = ReactorStaging.forSession(null);
+
+  @Before
+  public void setUp() {
+    Mockito.when(project.getId()).thenReturn("com.example:module:jar:1.0");
+    Mockito.when(stageMojo.getMavenProject()).thenReturn(project);
+    Mockito.when(stageMojo.getStagingDirectory()).thenReturn(stagingDirectory);
+  }
+
+  @Test
+  public void testRecord_appEngineWebXml() {
+    Mockito.when(stageMojo.isAppEngineWebXmlBased()).thenReturn(true);
+
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    StagedApplication application = reactorStaging.get(project);
+    Assert.assertEquals(stagingDirectory, application.getStagingDirectory());
+    Assert.assertEquals(
+        stagingDirectory.resolve("WEB-INF").resolve("appengine-generated"),
+        application.getConfigDirectory());
+    Assert.assertEquals(STAGING_TIME, application.getStagingTime());
+  }
+
+  @Test
+  public void testRecord_appYaml() {
+    Path appEngineDirectory = Paths.get("module", "src", "main", "appengine-config");
+    Mockito.when(stageMojo.getAppEngineDirectory()).thenReturn(appEngineDirectory);
+
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Assert.assertEquals(appEngineDirectory, reactorStaging.get(project).getConfigDirectory());
+  }
+
+  @Test
+  public void testRecord_appYamlDefaultDirectory() {
+    Mockito.when(project.getBasedir()).thenReturn(new File("module"));
+
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Assert.assertEquals(
+        Paths.get("module", "src", "main", "appengine"),
+        reactorStaging.get(project).getConfigDirectory());
+  }
+
+  @Test
+  public void testGet_notStaged() {
+    MavenProject other = Mockito.mock(MavenProject.class);
+    Mockito.when(other.getId()).thenReturn("com.example:other:jar:1.0");
+    Mockito.when(stageMojo.isAppEngineWebXmlBased()).thenReturn(true);
+
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Assert.assertNull(reactorStaging.get(other));
+  }
+
+  @Test
+  public void testIsStaged() throws IOException {
+    Path artifact = tempFolder.newFile("module.war").toPath();
+    Path staging = tempFolder.newFolder("staging").toPath();
+    Mockito.when(stageMojo.getArtifact()).thenReturn(artifact);
+    Mockito.when(stageMojo.getStagingDirectory()).thenReturn(staging);
+    Mockito.when(stageMojo.isAppEngineWebXmlBased()).thenReturn(true);
+    Assert.assertFalse(reactorStaging.isStaged(stageMojo));
+
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Assert.assertTrue(reactorStaging.isStaged(stageMojo));
+  }
+
+  @Test
+  public void testIsStaged_artifactChanged() throws IOException {
+    Path artifact = tempFolder.newFile("module.war").toPath();
+    Path staging = tempFolder.newFolder("staging").toPath();
+    Mockito.when(stageMojo.getArtifact()).thenReturn(artifact);
+    Mockito.when(stageMojo.getStagingDirectory()).thenReturn(staging);
+    Mockito.when(stageMojo.isAppEngineWebXmlBased()).thenReturn(true);
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Files.write(artifact, new byte[] {1, 2, 3});
+
+    Assert.assertFalse(reactorStaging.isStaged(stageMojo));
+  }
+
+  @Test
+  public void testIsStaged_otherStagingDirectory() throws IOException {
+    Path staging = tempFolder.newFolder("staging").toPath();
+    Mockito.when(stageMojo.getStagingDirectory()).thenReturn(staging);
+    Mockito.when(stageMojo.isAppEngineWebXmlBased()).thenReturn(true);
+    reactorStaging.record(stageMojo, STAGING_TIME);
+
+    Mockito.when(stageMojo.getStagingDirectory())
+        .thenReturn(tempFolder.newFolder("other").toPath());
+
+    Assert.assertFalse(reactorStaging.isStaged(stageMojo));
+  }
+}
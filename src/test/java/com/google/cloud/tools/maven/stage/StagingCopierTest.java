@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class StagingCopierTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path source;
+  private Path target;
+
+  @Before
+  public void setUp() throws IOException {
+    source = tempFolder.newFolder("source").toPath();
+    target = tempFolder.getRoot().toPath().resolve("target");
+    for (int i = 0; i < 20; i++) {
+      write(source.resolve("dir" + (i % 3)).resolve("file" + i), "content" + i);
+    }
+    Files.createDirectories(source.resolve("empty"));
+  }
+
+  @Test
+  @Parameters({"1", "4"})
+  public void testCopyDirectory(int parallelism) throws IOException {
+    new StagingCopier(parallelism).copyDirectory(source, target);
+
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("content" + i, read(target.resolve("dir" + (i % 3)).resolve("file" + i)));
+    }
+    Assert.assertTrue(Files.isDirectory(target.resolve("empty")));
+  }
+
+  @Test
+  public void testCopyDirectory_replacesExisting() throws IOException {
+    write(target.resolve("dir0").resolve("file0"), "old");
+
+    new StagingCopier(4).copyDirectory(source, target);
+
+    Assert.assertEquals("content0", read(target.resolve("dir0").resolve("file0")));
+  }
+
+  @Test
+  public void testCopy_failurePropagated() throws IOException {
+    try {
+      new StagingCopier(4)
+          .copy(
+              ImmutableMap.of(
+                  source.resolve("missing1"), target.resolve("a"),
+                  source.resolve("missing2"), target.resolve("b")));
+      Assert.fail();
+    } catch (NoSuchFileException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCopyFile_large() throws IOException {
+    byte[] content = new byte[(int) StagingCopier.TRANSFER_THRESHOLD * 3 + 17];
+    Arrays.fill(content, (byte) 7);
+    Path large = source.resolve("large.jar");
+    Files.write(large, content);
+    Files.createDirectories(target);
+
+    StagingCopier.copyFile(large, target.resolve("large.jar"));
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(target.resolve("large.jar")));
+    Assert.assertEquals(
+        Files.getLastModifiedTime(large), Files.getLastModifiedTime(target.resolve("large.jar")));
+  }
+
+  @Test
+  public void testCopy_hardlinksLibraries() throws IOException {
+    Path jar = source.resolve("WEB-INF/lib/foo.jar");
+    Path html = source.resolve("index.html");
+    write(jar, "jar");
+    write(html, "html");
+
+    new StagingCopier(2, LinkMode.HARDLINK)
+        .copy(
+            ImmutableMap.of(
+                jar, target.resolve("WEB-INF/lib/foo.jar"),
+                html, target.resolve("index.html")));
+
+    Assert.assertTrue(Files.isSameFile(jar, target.resolve("WEB-INF/lib/foo.jar")));
+    Assert.assertEquals("html", read(target.resolve("index.html")));
+    write(target.resolve("index.html"), "changed");
+    Assert.assertEquals("html", read(html));
+  }
+
+  @Test
+  public void testCopyFile_doesNotWriteThroughLink() throws IOException {
+    Path jar = source.resolve("WEB-INF/lib/foo.jar");
+    write(jar, "jar");
+    new StagingCopier(1, LinkMode.HARDLINK)
+        .copy(ImmutableMap.of(jar, target.resolve("WEB-INF/lib/foo.jar")));
+    byte[] large = new byte[(int) StagingCopier.TRANSFER_THRESHOLD + 1];
+    Path largeSource = source.resolve("large.jar");
+    Files.write(largeSource, large);
+
+    StagingCopier.copyFile(largeSource, target.resolve("WEB-INF/lib/foo.jar"));
+
+    Assert.assertEquals("jar", read(jar));
+    Assert.assertEquals(large.length, Files.size(target.resolve("WEB-INF/lib/foo.jar")));
+  }
+
+  @Test
+  public void testLinkUnchangedLibraries() throws IOException {
+    write(source.resolve("WEB-INF/lib/same.jar"), "same");
+    write(source.resolve("WEB-INF/lib/changed.jar"), "source");
+    write(target.resolve("WEB-INF/lib/same.jar"), "same");
+    write(target.resolve("WEB-INF/lib/changed.jar"), "staged");
+    write(target.resolve("WEB-INF/lib/staged-only.jar"), "staged");
+    Files.setLastModifiedTime(target.resolve("WEB-INF/lib/same.jar"), FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(target.resolve("WEB-INF/lib/changed.jar"), FileTime.fromMillis(1000));
+
+    int linked = new StagingCopier(1, LinkMode.HARDLINK).linkUnchangedLibraries(source, target);
+
+    Assert.assertEquals(1, linked);
+    Assert.assertTrue(
+        Files.isSameFile(
+            source.resolve("WEB-INF/lib/same.jar"), target.resolve("WEB-INF/lib/same.jar")));
+    Assert.assertEquals("staged", read(target.resolve("WEB-INF/lib/changed.jar")));
+    Assert.assertFalse(Files.exists(target.resolve("WEB-INF/lib/same.jar.link")));
+  }
+
+  @Test
+  public void testLinkUnchangedLibraries_sameTimestamp() throws IOException {
+    write(source.resolve("WEB-INF/lib/same.jar"), "same");
+    Files.setLastModifiedTime(source.resolve("WEB-INF/lib/same.jar"), FileTime.fromMillis(1000));
+    Files.createDirectories(target.resolve("WEB-INF/lib"));
+    Files.copy(
+        source.resolve("WEB-INF/lib/same.jar"),
+        target.resolve("WEB-INF/lib/same.jar"),
+        StandardCopyOption.COPY_ATTRIBUTES);
+
+    Assert.assertEquals(
+        1, new StagingCopier(1, LinkMode.HARDLINK).linkUnchangedLibraries(source, target));
+    Assert.assertTrue(
+        Files.isSameFile(
+            source.resolve("WEB-INF/lib/same.jar"), target.resolve("WEB-INF/lib/same.jar")));
+  }
+
+  @Test
+  public void testLinkUnchangedLibraries_copyMode() throws IOException {
+    write(source.resolve("WEB-INF/lib/same.jar"), "same");
+    write(target.resolve("WEB-INF/lib/same.jar"), "same");
+
+    Assert.assertEquals(0, new StagingCopier(1).linkUnchangedLibraries(source, target));
+    Assert.assertFalse(
+        Files.isSameFile(
+            source.resolve("WEB-INF/lib/same.jar"), target.resolve("WEB-INF/lib/same.jar")));
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StagingFingerprintTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path source;
+  private Path staging;
+
+  @Before
+  public void setUp() throws IOException {
+    source = tempFolder.newFolder("source").toPath();
+    staging = tempFolder.newFolder("staging").toPath();
+    Files.write(source.resolve("index.html"), "index".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testIsUpToDate_nothingRecorded() throws IOException {
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_recorded() throws IOException {
+    StagingFingerprint.of(config().build()).record();
+
+    Assert.assertTrue(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_stagingDirectoryDeleted() throws IOException {
+    StagingFingerprint.of(config().build()).record();
+    Files.delete(staging);
+
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_stagedFileChanged() throws IOException {
+    Path stagedFile =
+        Files.write(staging.resolve("index.html"), "index".getBytes(StandardCharsets.UTF_8));
+    StagingFingerprint.of(config().build()).record();
+    Assert.assertTrue(StagingFingerprint.of(config().build()).isUpToDate());
+
+    Files.setLastModifiedTime(stagedFile, FileTime.fromMillis(0));
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_stagedFileDeleted() throws IOException {
+    Path stagedFile =
+        Files.write(staging.resolve("index.html"), "index".getBytes(StandardCharsets.UTF_8));
+    StagingFingerprint.of(config().build()).record();
+
+    Files.delete(stagedFile);
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_parameterChanged() throws IOException {
+    StagingFingerprint.of(config().build()).record();
+
+    Assert.assertFalse(StagingFingerprint.of(config().deleteJsps(true).build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_sourceTouched() throws IOException {
+    StagingFingerprint.of(config().build()).record();
+    Path index = source.resolve("index.html");
+    Files.setLastModifiedTime(
+        index, FileTime.fromMillis(Files.getLastModifiedTime(index).toMillis() + 10000));
+
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testIsUpToDate_sourceAdded() throws IOException {
+    StagingFingerprint.of(config().build()).record();
+    Files.write(source.resolve("new.html"), "new".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertFalse(StagingFingerprint.of(config().build()).isUpToDate());
+  }
+
+  @Test
+  public void testInvalidate() throws IOException {
+    StagingFingerprint fingerprint = StagingFingerprint.of(config().build());
+    fingerprint.record();
+    fingerprint.invalidate();
+
+    Assert.assertFalse(fingerprint.isUpToDate());
+  }
+
+  @Test
+  public void testAppYaml_extraFilesDirectoryChanged() throws IOException {
+    Path artifact = tempFolder.newFile("app.jar").toPath();
+    Path appEngineDirectory = tempFolder.newFolder("appengine").toPath();
+    AppYamlProjectStageConfiguration config =
+        AppYamlProjectStageConfiguration.builder(appEngineDirectory, artifact, staging)
+            .extraFilesDirectories(ImmutableList.of(source))
+            .build();
+    StagingFingerprint.of(config).record();
+    Assert.assertTrue(StagingFingerprint.of(config).isUpToDate());
+
+    Files.write(source.resolve("new.html"), "new".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertFalse(StagingFingerprint.of(config).isUpToDate());
+  }
+
+  private AppEngineWebXmlProjectStageConfiguration.Builder config() {
+    return AppEngineWebXmlProjectStageConfiguration.builder(source, staging);
+  }
+}
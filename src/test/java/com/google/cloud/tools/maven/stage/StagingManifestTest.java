@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StagingManifestTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void setUp() throws IOException {
+    root = tempFolder.newFolder("source").toPath();
+    write("index.html", "hello");
+    write("WEB-INF/classes/Foo.class", "foo");
+  }
+
+  @Test
+  public void testScan() throws IOException {
+    StagingManifest manifest = StagingManifest.scan(root, "config", null);
+
+    Assert.assertEquals("config", manifest.getConfiguration());
+    Assert.assertEquals(
+        ImmutableSet.of("index.html", "WEB-INF/classes/Foo.class"), manifest.getEntries().keySet());
+    Assert.assertEquals(5, manifest.getEntries().get("index.html").getSize());
+  }
+
+  @Test
+  public void testWriteRead_roundTrip() throws IOException {
+    StagingManifest manifest = StagingManifest.scan(root, "config", null);
+    Path file = tempFolder.getRoot().toPath().resolve("staging.manifest");
+
+    manifest.write(file);
+    StagingManifest read = StagingManifest.read(file);
+
+    Assert.assertEquals("config", read.getConfiguration());
+    Assert.assertTrue(read.diff(manifest).isEmpty());
+    Assert.assertEquals(
+        manifest.getEntries().get("index.html").getHash(),
+        read.getEntries().get("index.html").getHash());
+  }
+
+  @Test
+  public void testRead_missing() throws IOException {
+    Assert.assertNull(StagingManifest.read(tempFolder.getRoot().toPath().resolve("missing")));
+  }
+
+  @Test
+  public void testRead_malformed() throws IOException {
+    Path file = tempFolder.newFile("bad.manifest").toPath();
+    Files.write(file, "#configuration=x\nnot a manifest line\n".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertNull(StagingManifest.read(file));
+  }
+
+  @Test
+  public void testDiff() throws IOException {
+    StagingManifest previous = StagingManifest.scan(root, "config", null);
+    write("index.html", "changed");
+    write("WEB-INF/classes/Bar.class", "bar");
+    Files.delete(root.resolve("WEB-INF/classes/Foo.class"));
+
+    StagingManifest.Delta delta = StagingManifest.scan(root, "config", previous).diff(previous);
+
+    Assert.assertEquals(ImmutableSet.of("WEB-INF/classes/Bar.class"), delta.getAdded());
+    Assert.assertEquals(ImmutableSet.of("index.html"), delta.getChanged());
+    Assert.assertEquals(ImmutableSet.of("WEB-INF/classes/Foo.class"), delta.getRemoved());
+  }
+
+  @Test
+  public void testDiff_touchedButUnchanged() throws IOException {
+    StagingManifest previous = StagingManifest.scan(root, "config", null);
+    Path file = root.resolve("index.html");
+    Files.setLastModifiedTime(
+        file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+
+    Assert.assertTrue(StagingManifest.scan(root, "config", previous).diff(previous).isEmpty());
+  }
+
+  @Test
+  public void testManifestFileFor() {
+    Path staging = tempFolder.getRoot().toPath().resolve("appengine-staging");
+
+    Assert.assertEquals(
+        tempFolder.getRoot().toPath().resolve("appengine-staging.manifest"),
+        StagingManifest.manifestFileFor(staging));
+  }
+
+  private void write(String path, String content) throws IOException {
+    Path file = root.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
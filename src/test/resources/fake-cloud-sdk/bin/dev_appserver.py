@@ -0,0 +1,6 @@
+#!/usr/bin/env python
+# Fake dev_appserver.py, the Cloud SDK layout requires it. The Java dev server is started from
+# appengine-tools-api.jar, see FakeCloudSdk.
+import sys
+
+sys.exit(0)